@@ -0,0 +1,172 @@
+package com.parc.chat.tokenizer.benchmarks;
+
+import java.util.Random;
+
+/**
+ * Synthetic micro-text corpora for the benchmarks. Every message is put together from the word lists below by a
+ * seeded random generator, so a corpus is the same on every run and results of different releases can be
+ * compared. No corpus has any real user data in it.
+ */
+public enum Corpus {
+
+	/**
+	 * Short tweets with user names, hashtags, the odd link and emoticon.
+	 */
+	TWEETS {
+		private final String[] words = {
+			"just", "got", "my", "new", "phone", "and", "I", "love", "it", "!", "can't", "wait", "for", "the",
+			"weekend", "game", "tonight", "was", "amazing", "so", "tired", "of", "this", "weather", "...", "who",
+			"else", "is", "watching", "?", "best", "day", "ever", "Samsung", "Galaxy", "4", "RT", "thanks", "everyone",
+			"coffee", "first", "Mr.", "Smith", "at", "12:30", "p.m.", "today", "it's", "$5", "off"
+		};
+		private final String[] extras = {
+			"@jenny_b", "@NYTimes", "@someone", "#fun", "#MondayMotivation", "#win", "http://t.co/xY3kQ9",
+			"bit.ly/2kF8aZ", ":)", ";-)", ":D", "<3"
+		};
+
+		@Override
+		String message(Random random) {
+			return sentence(random, words, extras, 6 + random.nextInt(14), 0.2);
+		}
+	},
+
+	/**
+	 * Text messages in lower case with slang, abbreviations and little punctuation.
+	 */
+	SMS {
+		private final String[] words = {
+			"u", "r", "gr8", "b4", "2nite", "lol", "omg", "k", "gotta", "get", "wit", "sum", "1", "n", "ur", "thx",
+			"pls", "cu", "l8r", "idk", "tbh", "brb", "ya", "wanna", "come", "over", "im", "at", "home", "wat", "time",
+			"2day", "luv", "bday", "party", "call", "me", "asap", "nvm", "sooo", "funny", "haha", "ok", "kk", "yes",
+			"no", "then", "I", "WISH", "sigh", "cake", "hair", "nails", "done", "9", "?", "!!"
+		};
+		private final String[] extras = { ":(", ":-)", "xoxo", "555-0199", "ttyl", ";)" };
+
+		@Override
+		String message(Random random) {
+			return sentence(random, words, extras, 3 + random.nextInt(20), 0.1);
+		}
+	},
+
+	/**
+	 * Spam with many URLs, email addresses, file names and prices.
+	 */
+	SPAM {
+		private final String[] words = {
+			"CLICK", "HERE", "now", "to", "claim", "your", "FREE", "prize", "!!!", "Act", "fast", "limited", "offer",
+			"only", "$1,000.00", "$99.99", "cash", "winner", "reply", "STOP", "unsubscribe", "visit", "or", "email",
+			"call", "1-800-555-0100", "today", "Dear", "customer", "account", "verify", "login", "details", "at"
+		};
+		private final String[] extras = {
+			"http://www.gooddeals.com/asdf/asdfh.php", "https://secure-login.example.net/verify?id=8812",
+			"www.parc.com/XLE.html", "henderson453@yahoo.com", "support@bank-example.org", "win.cheap-meds.biz",
+			"ftp://files.example.com/prize.zip", "testpage.htm", "invoice_2013.pdf", "bit.ly/FR33",
+			"noreply@promo.example.co.uk", "192.168.0.1"
+		};
+
+		@Override
+		String message(Random random) {
+			return sentence(random, words, extras, 8 + random.nextInt(20), 0.35);
+		}
+	},
+
+	/**
+	 * Chat lines where almost every other token is an emoticon.
+	 */
+	EMOTICONS {
+		private final String[] words = {
+			"hi", "hey", "lol", "yes", "no", "ok", "haha", "wow", "what", "really", "me", "too", "miss", "u", "good",
+			"night", "see", "you", "soon", "sorry", "love", "this", "!", "?"
+		};
+		private final String[] extras = {
+			":)", ":-)", ":(", ":-(", ";)", ";-)", ":D", ":-D", ":P", ":-p", ":o", ":O", ":/", ":]", ":[", "8)",
+			">:(", ":')", ":'(", "(:", "):", "<3", "</3", "^_^", "o_O", "O_o", "-_-", ">_<", "T_T", ":))"
+		};
+
+		@Override
+		String message(Random random) {
+			return sentence(random, words, extras, 4 + random.nextInt(16), 0.5);
+		}
+	},
+
+	/**
+	 * Messages in Cyrillic, Greek, Arabic, Hebrew, Devanagari, Thai, Chinese, Japanese and Korean, with emoji
+	 * outside the Basic Multilingual Plane.
+	 */
+	NON_LATIN {
+		private final String[] words = {
+			"привет", "как", "дела", "спасибо", "сегодня", "γεια", "σου", "καλημέρα", "ευχαριστώ", "مرحبا", "شكرا",
+			"اليوم", "שלום", "תודה", "नमस्ते", "धन्यवाद", "आज", "สวัสดี", "ขอบคุณ", "你好", "今天", "天气", "很好",
+			"谢谢", "こんにちは", "ありがとう", "今日は", "안녕하세요", "감사합니다", "오늘", "。", "、", "！", "？", "2013"
+		};
+		private final String[] extras = {
+			"😀", "😂", "👍", "❤️", "#спорт",
+			"@田中", ":)", "www.example.cn"
+		};
+
+		@Override
+		String message(Random random) {
+			return sentence(random, words, extras, 4 + random.nextInt(16), 0.15);
+		}
+	};
+
+	/**
+	 * Makes a random message of this corpus.
+	 * @param random the generator to use
+	 * @return the message
+	 */
+	abstract String message(Random random);
+
+	/**
+	 * Makes messages of this corpus.
+	 * @param count the number of messages
+	 * @param seed the seed of the generator, so that the same seed gives the same messages
+	 * @return the messages
+	 */
+	public String[] messages(int count, long seed) {
+		Random random = new Random(seed);
+		String[] messages = new String[count];
+		for (int i = 0; i < count; i++) {
+			messages[i] = message(random);
+		}
+		return messages;
+	}
+
+	/**
+	 * Makes one long message out of messages of all corpora, such as a pasted log or a long email.
+	 * @param length the length of the message in characters
+	 * @param seed the seed of the generator
+	 * @return the message
+	 */
+	public static String longMessage(int length, long seed) {
+		Random random = new Random(seed);
+		Corpus[] corpora = values();
+		StringBuilder text = new StringBuilder(length + 200);
+		while (text.length() < length) {
+			text.append(corpora[random.nextInt(corpora.length)].message(random));
+			text.append(random.nextInt(4) == 0 ? '\n' : ' ');
+		}
+		text.setLength(length);
+		// Do not end the message in the middle of a surrogate pair.
+		if (Character.isHighSurrogate(text.charAt(length - 1))) {
+			text.setCharAt(length - 1, ' ');
+		}
+		return text.toString();
+	}
+
+	/*
+	 * Joins words picked at random, taking one of the extras instead of a word with the given probability.
+	 */
+	private static String sentence(Random random, String[] words, String[] extras, int count, double extraRate) {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			if (i > 0) {
+				text.append(' ');
+			}
+			String[] from = random.nextDouble() < extraRate ? extras : words;
+			text.append(from[random.nextInt(from.length)]);
+		}
+		return text.toString();
+	}
+
+}
@@ -0,0 +1,55 @@
+package com.parc.chat.tokenizer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.parc.chat.tokenizer.EmoticonFST;
+
+/**
+ * Measures EmoticonFST.recognizeEmoticon on every corpus, in messages per second. everyPosition calls it at
+ * each character, so it mostly measures how fast a non-emoticon is turned down; initialChars calls it only at
+ * characters that can start an emoticon, the way the tokenizer does.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmoticonFSTBenchmark {
+
+	@Benchmark
+	public int everyPosition(Messages messages, Volume volume) {
+		String message = messages.next(volume);
+		int end = message.length();
+		int found = 0;
+		for (int i = 0; i < end; i++) {
+			found += EmoticonFST.recognizeEmoticon(message, i, end);
+		}
+		return found;
+	}
+
+	@Benchmark
+	public int initialChars(Messages messages, Volume volume) {
+		String message = messages.next(volume);
+		int end = message.length();
+		int found = 0;
+		for (int i = 0; i < end; i++) {
+			if (EmoticonFST.isInitialEmoticonChar(message.charAt(i))) {
+				int length = EmoticonFST.recognizeEmoticon(message, i, end);
+				if (length > 0) {
+					found++;
+					i += length - 1;
+				}
+			}
+		}
+		return found;
+	}
+
+}
@@ -0,0 +1,79 @@
+package com.parc.chat.tokenizer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.parc.chat.tokenizer.LexicalFSA;
+import com.parc.chat.tokenizer.LexicalFSA.Alphabet;
+
+/**
+ * Measures the state machine of the tokenizer on its own: LexicalFSA.getSymbol on every character of a message,
+ * and LexicalFSA.getNextState on the symbols of a message, which are worked out beforehand. The score is in
+ * messages per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LexicalFSABenchmark {
+
+	private Alphabet[][] symbols;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp(Messages messages) {
+		Volume volume = new Volume();
+		symbols = new Alphabet[1024][];
+		for (int i = 0; i < symbols.length; i++) {
+			String message = messages.next(volume);
+			symbols[i] = new Alphabet[message.length()];
+			for (int j = 0; j < message.length(); j++) {
+				symbols[i][j] = symbol(message, j);
+			}
+		}
+	}
+
+	@Benchmark
+	public int getSymbol(Messages messages, Volume volume) {
+		String message = messages.next(volume);
+		int hash = 0;
+		for (int i = 0; i < message.length(); i++) {
+			hash = 31 * hash + symbol(message, i).ordinal();
+		}
+		return hash;
+	}
+
+	@Benchmark
+	public LexicalFSA.State getNextState(Messages messages, Volume volume) {
+		// Keeps the messages and their sizes in step with the symbols.
+		messages.next(volume);
+		LexicalFSA.State state = LexicalFSA.State.START;
+		for (Alphabet symbol : symbols[next++ & (symbols.length - 1)]) {
+			state = LexicalFSA.getNextState(state, symbol);
+		}
+		return state;
+	}
+
+	/*
+	 * Gets the symbol of a character the way the tokenizer does, with a space before the start and after the end.
+	 */
+	private static Alphabet symbol(String message, int i) {
+		char lastchar = i > 0 ? message.charAt(i - 1) : ' ';
+		char lookahead = i + 1 < message.length() ? message.charAt(i + 1) : ' ';
+		return LexicalFSA.getSymbol(message.charAt(i), lastchar, lookahead);
+	}
+
+}
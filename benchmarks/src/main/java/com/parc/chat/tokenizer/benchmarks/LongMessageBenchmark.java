@@ -0,0 +1,55 @@
+package com.parc.chat.tokenizer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.parc.chat.tokenizer.MicroTextTokenizer;
+import com.parc.chat.tokenizer.TokenBuffer;
+
+/**
+ * Measures MicroTextTokenizer.tokenize on single messages of 10 KB to 1 MB, made of messages of all corpora.
+ * The score is in messages per second and the "megabytes" counter in MB per second, so sizes can be compared.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LongMessageBenchmark {
+
+	@Param({"10240", "102400", "1048576"})
+	public int messageLength;
+
+	private String message;
+	private double megabytes;
+	private MicroTextTokenizer tokenizer;
+	private TokenBuffer tokens;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		message = Corpus.longMessage(messageLength, 42);
+		megabytes = Volume.megabytes(message);
+		tokenizer = new MicroTextTokenizer();
+		tokens = new TokenBuffer();
+	}
+
+	@Benchmark
+	public int tokenize(Volume volume) {
+		volume.megabytes += megabytes;
+		return tokenizer.tokenize(message, tokens).size();
+	}
+
+}
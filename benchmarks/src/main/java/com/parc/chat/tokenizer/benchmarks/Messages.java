@@ -0,0 +1,46 @@
+package com.parc.chat.tokenizer.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The messages of one corpus, handed out one at a time. Benchmarks that take this state run once for every
+ * corpus, and each of their operations works on one message, so the score is in messages per second.
+ */
+@State(Scope.Thread)
+public class Messages {
+
+	// A power of two, so the next message is found with a mask.
+	private static final int COUNT = 1024;
+
+	@Param
+	public Corpus corpus;
+
+	private String[] messages;
+	private double[] megabytes;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		messages = corpus.messages(COUNT, 42);
+		megabytes = new double[COUNT];
+		for (int i = 0; i < COUNT; i++) {
+			megabytes[i] = Volume.megabytes(messages[i]);
+		}
+	}
+
+	/**
+	 * Gets the next message and adds its size to the volume.
+	 * @param volume the counters of the running benchmark
+	 * @return the message
+	 */
+	public String next(Volume volume) {
+		int i = next++ & (COUNT - 1);
+		volume.megabytes += megabytes[i];
+		return messages[i];
+	}
+
+}
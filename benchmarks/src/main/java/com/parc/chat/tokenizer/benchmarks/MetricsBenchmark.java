@@ -0,0 +1,58 @@
+package com.parc.chat.tokenizer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.parc.chat.tokenizer.MicroTextTokenizer;
+import com.parc.chat.tokenizer.TokenBuffer;
+import com.parc.chat.tokenizer.TokenizerMetrics;
+
+/**
+ * Measures what metrics cost. disabled is a tokenizer without metrics and should score the same as
+ * TokenizerBenchmark.tokenize, here and in releases before metrics were added; enabled counts into one
+ * TokenizerMetrics shared by all threads, so run it with "-t" above 1 to see whether the counters contend.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsBenchmark {
+
+	private static final TokenizerMetrics METRICS = new TokenizerMetrics();
+
+	private MicroTextTokenizer plain;
+	private MicroTextTokenizer counted;
+	private TokenBuffer tokens;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		plain = new MicroTextTokenizer();
+		counted = new MicroTextTokenizer();
+		counted.setMetrics(METRICS);
+		tokens = new TokenBuffer();
+	}
+
+	@Benchmark
+	public int disabled(Messages messages, Volume volume) {
+		return plain.tokenize(messages.next(volume), tokens).size();
+	}
+
+	@Benchmark
+	public int enabled(Messages messages, Volume volume) {
+		return counted.tokenize(messages.next(volume), tokens).size();
+	}
+
+}
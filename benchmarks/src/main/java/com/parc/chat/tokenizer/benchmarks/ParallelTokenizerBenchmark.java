@@ -0,0 +1,105 @@
+package com.parc.chat.tokenizer.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.parc.chat.tokenizer.LabeledToken;
+import com.parc.chat.tokenizer.MicroTextTokenizer;
+import com.parc.chat.tokenizer.ParallelTokenizer;
+
+/**
+ * Measures how batch tokenization scales with the number of workers. Each operation tokenizes the whole batch,
+ * so the score divided by the batch size is the time per message. The sequential benchmark is the baseline:
+ * one new MicroTextTokenizer per message, as callers used to do. It does not take the workers, so it runs once
+ * rather than for every parallelism.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelTokenizerBenchmark {
+
+	private static final String[] SAMPLES = {
+		"Cake?@Username K gotta get the hair,eyebrows n nails done today b4 9 then I WISH I had sum one I could go CAKE wit :( sigh",
+		"I just got my Samsung Galaxy 4 and I love it! :-)",
+		"Prof. D.H. Jones, Mr. x and Dr smith met at 12:30 p.m. today.",
+		"reach henderson453@yahoo.com or http://www.gooddeals.com/asdf/asdfh.php. Act now!",
+		"@someone #hashtag it's $1,000.00 for testpage.htm ... www.parc.com/XLE.html",
+		"lol that was sooo funny!!! see u 2nite ;) #fun",
+	};
+
+	/**
+	 * The messages tokenized by every operation.
+	 */
+	@State(Scope.Benchmark)
+	public static class Batch {
+
+		@Param({"10000"})
+		public int batchSize;
+
+		private List<String> messages;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			Random random = new Random(42);
+			messages = new ArrayList<String>(batchSize);
+			for (int i = 0; i < batchSize; i++) {
+				messages.add(SAMPLES[random.nextInt(SAMPLES.length)]);
+			}
+		}
+	}
+
+	/**
+	 * The parallel tokenizer with the number of workers being measured.
+	 */
+	@State(Scope.Benchmark)
+	public static class Workers {
+
+		@Param({"1", "2", "4", "8", "16", "32"})
+		public int parallelism;
+
+		private ParallelTokenizer tokenizer;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			tokenizer = new ParallelTokenizer(parallelism);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			tokenizer.close();
+		}
+	}
+
+	@Benchmark
+	public List<List<LabeledToken>> tokenizeAll(Batch batch, Workers workers) {
+		return workers.tokenizer.tokenizeAll(batch.messages);
+	}
+
+	@Benchmark
+	public int sequential(Batch batch) {
+		int count = 0;
+		for (String message : batch.messages) {
+			count += new MicroTextTokenizer(message).tokenize().size();
+		}
+		return count;
+	}
+
+}
@@ -0,0 +1,83 @@
+package com.parc.chat.tokenizer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.parc.chat.tokenizer.MicroTextTokenizer;
+import com.parc.chat.tokenizer.TokenBuffer;
+
+/**
+ * Measures the pre-scan on long messages. The vector benchmarks run with the jdk.incubator.vector module, and
+ * the scalar ones with the Vector API turned off, so each message size shows the tokenizer without a pre-scan,
+ * with the scalar pre-scan and with the vectorized one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+public class PreScanBenchmark {
+
+	private static final String[] SENTENCES = {
+		"lol that was sooo funny!!! see u 2nite ;) #fun ",
+		"I just got my Samsung Galaxy 4 and I love it! :-) ",
+		"reach henderson453@yahoo.com or www.gooddeals.com now ",
+		"Prof. Jones, Mr. x and Dr smith met at 12:30 today. ",
+		"@someone it's $1,000.00 for testpage.htm ... ",
+	};
+
+	@Param({"1000", "10000", "100000"})
+	public int messageLength;
+
+	private String message;
+	private MicroTextTokenizer plain;
+	private MicroTextTokenizer scanned;
+	private TokenBuffer tokens;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; text.length() < messageLength; i++) {
+			text.append(SENTENCES[i % SENTENCES.length]);
+		}
+		message = text.substring(0, messageLength);
+		plain = new MicroTextTokenizer();
+		scanned = new MicroTextTokenizer();
+		scanned.setPreScan(true);
+		tokens = new TokenBuffer();
+	}
+
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = "-Dcom.parc.chat.tokenizer.vector=false")
+	public int noPreScan() {
+		return plain.tokenize(message, tokens).size();
+	}
+
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = "-Dcom.parc.chat.tokenizer.vector=false")
+	public int scalarPreScan() {
+		return scanned.tokenize(message, tokens).size();
+	}
+
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+	public int vectorPreScan() {
+		if (!MicroTextTokenizer.isVectorPreScanAvailable()) {
+			throw new IllegalStateException("The library was not built with the jdk17 profile");
+		}
+		return scanned.tokenize(message, tokens).size();
+	}
+
+}
@@ -0,0 +1,53 @@
+package com.parc.chat.tokenizer.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.parc.chat.tokenizer.MicroTextTokenizer;
+import com.parc.chat.tokenizer.TokenBuffer;
+
+/**
+ * Measures MicroTextTokenizer.tokenize on every corpus, in messages and MB per second. tokenize fills a reused
+ * TokenBuffer, the way a server would run it; tokenizeStack makes a new tokenizer and a Stack of LabeledTokens
+ * per message, the way callers of older releases do. Run with "-prof gc" to see how much each allocates per
+ * message.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenizerBenchmark {
+
+	private MicroTextTokenizer tokenizer;
+	private TokenBuffer tokens;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		tokenizer = new MicroTextTokenizer();
+		tokens = new TokenBuffer();
+	}
+
+	@Benchmark
+	public int tokenize(Messages messages, Volume volume) {
+		return tokenizer.tokenize(messages.next(volume), tokens).size();
+	}
+
+	@Benchmark
+	public int tokenizeStack(Messages messages, Volume volume) {
+		return new MicroTextTokenizer(messages.next(volume)).tokenize().size();
+	}
+
+}
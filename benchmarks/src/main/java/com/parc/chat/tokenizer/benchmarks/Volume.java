@@ -0,0 +1,35 @@
+package com.parc.chat.tokenizer.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Counts the text a benchmark has read. JMH reports the counter next to the score as a rate, so in throughput
+ * mode the "megabytes" line is the throughput in MB (10^6 bytes of UTF-8) per second.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Volume {
+
+	public double megabytes;
+
+	@Setup(Level.Iteration)
+	public void clear() {
+		megabytes = 0;
+	}
+
+	/**
+	 * Gets the size of a text in UTF-8.
+	 * @param text the text
+	 * @return the size in MB
+	 */
+	static double megabytes(String text) {
+		return text.getBytes(StandardCharsets.UTF_8).length / 1e6;
+	}
+
+}
@@ -0,0 +1,16 @@
+package com.parc.chat.tokenizer;
+
+/*
+ * Marks where the characters the link recognizer depends on occur in a text. PreScan uses the vectorized
+ * implementation when it can be loaded and ScalarCharScanner otherwise; both must mark exactly the same bits.
+ */
+interface CharScanner {
+
+	/*
+	 * Sets bit i of spaceBits for every chars[i] that ends a link, which is ASCII whitespace as '\s' matches it,
+	 * and bit i of triggerBits for every '@', ':' and '.', for i from 0 to length - 1. Bit i is bit (i & 63) of
+	 * word i >>> 6. The words are cleared first. Returns true if every character is ASCII.
+	 */
+	boolean scan(char[] chars, int length, long[] spaceBits, long[] triggerBits);
+
+}
@@ -0,0 +1,23 @@
+package com.parc.chat.tokenizer;
+
+/**
+ * Receives the messages of a corpus from {@link CorpusTokenizer#tokenize(java.nio.file.Path, CorpusHandler)}
+ * together with their tokens.
+ *
+ * The handler is called from the worker threads of the CorpusTokenizer, so it must be thread-safe. The messages
+ * of one segment of the file arrive in order, but segments are handled at the same time and in no particular
+ * order; the byte offset tells where each message is in the file. The text and the token buffer belong to the
+ * worker and are overwritten after the call returns, so a handler that keeps them must copy them.
+ */
+public interface CorpusHandler {
+
+	/**
+	 * Called for each line of the corpus.
+	 * @param byteOffset the offset of the first byte of the message in the file
+	 * @param byteLength the number of bytes in the message, without the line terminator
+	 * @param text the decoded message
+	 * @param tokens the tokens of the message, with character offsets counted from the start of the message
+	 */
+	void message(long byteOffset, int byteLength, CharSequence text, TokenBuffer tokens);
+
+}
@@ -0,0 +1,213 @@
+package com.parc.chat.tokenizer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Tokenizes a UTF-8 corpus file with one message per line, such as a dump of tens of GB of chat messages kept
+ * for reprocessing. The file is split into segments that end at line boundaries, and the segments are
+ * tokenized in parallel on a fork-join pool. Each segment is memory-mapped while it is worked on, and each
+ * line is decoded straight into a char buffer the worker reuses, so no String is created for the messages.
+ * The messages and their tokens are passed to a {@link CorpusHandler} with the byte offset of the message in
+ * the file.
+ *
+ * Lines end with "\n", and a "\r" before it is dropped. Malformed UTF-8 is replaced with U+FFFD. A
+ * CorpusTokenizer owns its pool and should be closed when it is no longer needed.
+ */
+public class CorpusTokenizer implements AutoCloseable {
+
+	/** The number of bytes in a segment when none is given. */
+	public static final int DEFAULT_SEGMENT_SIZE = 32 * 1024 * 1024;
+
+	private final ForkJoinPool pool;
+	private final int segmentSize;
+	private final ThreadLocal<Worker> workers = new ThreadLocal<Worker>() {
+		@Override
+		protected Worker initialValue() {
+			return new Worker();
+		}
+	};
+
+	/**
+	 * Creates a corpus tokenizer with one worker per available processor.
+	 */
+	public CorpusTokenizer() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a corpus tokenizer with the given number of workers.
+	 * @param parallelism the number of worker threads
+	 * @throws IllegalArgumentException if parallelism is less than 1
+	 */
+	public CorpusTokenizer(int parallelism) {
+		this(parallelism, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Creates a corpus tokenizer with the given number of workers and segment size. A segment is extended to
+	 * the end of the line it would otherwise cut.
+	 * @param parallelism the number of worker threads
+	 * @param segmentSize the number of bytes in a segment
+	 * @throws IllegalArgumentException if parallelism or segmentSize is less than 1
+	 */
+	public CorpusTokenizer(int parallelism, int segmentSize) {
+		if (segmentSize < 1) {
+			throw new IllegalArgumentException("Segment size must be at least 1: " + segmentSize);
+		}
+		this.pool = new ForkJoinPool(parallelism);
+		this.segmentSize = segmentSize;
+	}
+
+	/**
+	 * Tokenizes every line of a file and passes it to the handler. Returns when the whole file has been handled.
+	 * @param file the corpus
+	 * @param handler the handler for the messages, called from the worker threads
+	 * @throws IOException if the file cannot be read or has a line longer than 2 GB
+	 */
+	public void tokenize(Path file, final CorpusHandler handler) throws IOException {
+		final FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+			long size = channel.size();
+			long start = 0;
+			while (start < size) {
+				final long segmentStart = start;
+				final long segmentEnd = lineEnd(channel, Math.min(start + segmentSize, size), size);
+				if (segmentEnd - segmentStart > Integer.MAX_VALUE) {
+					throw new IOException("Line at offset " + segmentStart + " is too long to be mapped");
+				}
+				tasks.add(new Callable<Void>() {
+					@Override
+					public Void call() throws IOException {
+						MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, segmentStart, segmentEnd - segmentStart);
+						workers.get().tokenizeSegment(bytes, segmentStart, handler);
+						return null;
+					}
+				});
+				start = segmentEnd;
+			}
+			waitFor(pool.invokeAll(tasks));
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Stops the worker threads.
+	 */
+	@Override
+	public void close() {
+		pool.shutdown();
+	}
+
+	/*
+	 * Returns the offset just past the first '\n' at or after pos - 1, or size if there is none.
+	 */
+	private static long lineEnd(FileChannel channel, long pos, long size) throws IOException {
+		if (pos >= size) {
+			return size;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(8192);
+		long offset = pos - 1;
+		while (offset < size) {
+			buffer.clear();
+			int count = channel.read(buffer, offset);
+			if (count <= 0) {
+				break;
+			}
+			for (int i = 0; i < count; i++) {
+				if (buffer.get(i) == '\n') {
+					return offset + i + 1;
+				}
+			}
+			offset += count;
+		}
+		return size;
+	}
+
+	private static void waitFor(List<Future<Void>> results) throws IOException {
+		for (Future<Void> result : results) {
+			try {
+				result.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while tokenizing the corpus", e);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof IOException) {
+					throw (IOException) cause;
+				} else if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				} else if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new IOException(cause);
+			}
+		}
+	}
+
+	/*
+	 * The tokenizer, decoder and buffers of one worker thread.
+	 */
+	private static class Worker {
+		private final MicroTextTokenizer tokenizer = new MicroTextTokenizer();
+		private final TokenBuffer tokens = new TokenBuffer();
+		private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		private CharBuffer chars = CharBuffer.allocate(1024);
+
+		void tokenizeSegment(ByteBuffer bytes, long segmentOffset, CorpusHandler handler) {
+			int end = bytes.limit();
+			int lineStart = 0;
+			while (lineStart < end) {
+				int lineEnd = lineStart;
+				while (lineEnd < end && bytes.get(lineEnd) != '\n') {
+					lineEnd++;
+				}
+				int next = lineEnd + 1;
+				if (lineEnd > lineStart && bytes.get(lineEnd - 1) == '\r') {
+					lineEnd--;
+				}
+				decode(bytes, lineStart, lineEnd);
+				tokenizer.tokenize(chars, 0, chars.length(), tokens);
+				handler.message(segmentOffset + lineStart, lineEnd - lineStart, chars, tokens);
+				lineStart = next;
+			}
+		}
+
+		/*
+		 * Decodes bytes[start] to bytes[end - 1] into chars, which is left ready to be read.
+		 */
+		private void decode(ByteBuffer bytes, int start, int end) {
+			// UTF-8 never has more chars than bytes.
+			if (chars.capacity() < end - start) {
+				chars = CharBuffer.allocate(Math.max(end - start, 2 * chars.capacity()));
+			}
+			bytes.limit(end);
+			bytes.position(start);
+			chars.clear();
+			decoder.reset();
+			decoder.decode(bytes, chars, true);
+			decoder.flush(chars);
+			chars.flip();
+			bytes.limit(bytes.capacity());
+		}
+	}
+
+}
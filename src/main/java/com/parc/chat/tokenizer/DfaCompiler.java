@@ -0,0 +1,717 @@
+package com.parc.chat.tokenizer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.PatternSyntaxException;
+
+/*
+ * Compiles a list of regular expressions into one minimized DFA for PatternRecognizer. The expressions are
+ * parsed into syntax trees, turned into a single NFA whose accepting states tell which expression they belong
+ * to, and the NFA is turned into a DFA by the subset construction. States from which no accepting state can be
+ * reached are dropped, so that a match stops as soon as it cannot succeed, and the rest are minimized by
+ * refining the partition of states by their accepted expression until it is stable.
+ *
+ * The DFA reads classes of characters rather than characters: the char values are cut into intervals at every
+ * bound of a range used in an expression, and all characters of an interval behave alike.
+ *
+ * The dialect: literal characters; '.' for any character but a line terminator; the escapes \d \D \w \W \s \S
+ * as in java.util.regex, \t \n \r \f, and a backslash before any other character that is not a letter or a
+ * digit; classes such as [a-z_] and [^0-9]; groups (...) and (?:...); alternation; the quantifiers * + ? {n}
+ * {n,} and {n,m}. Backreferences, anchors, lookaround and flags are not supported.
+ */
+final class DfaCompiler {
+
+	// Limits that keep a careless expression from taking all the memory and time at startup. The size of the
+	// NFA is known from the syntax trees, so an expression that is too large fails before any state is built.
+	static final int MAX_REPEAT = 1000;
+	static final int MAX_NFA_STATES = 20000;
+	static final int MAX_STATES = 10000;
+
+	private static final int[] DIGIT = { '0', '9' };
+	private static final int[] WORD = { '0', '9', 'A', 'Z', '_', '_', 'a', 'z' };
+	private static final int[] SPACE = { '\t', '\r', ' ', ' ' };
+	private static final int[] LINE_TERMINATOR = { '\n', '\n', '\r', '\r', '\u0085', '\u0085', '\u2028', '\u2029' };
+
+	// The result: the first character of each class, the transitions by state and class (-1 where there is
+	// none), and the expression each state accepts (-1 for none). State 0 is the start state.
+	int[] classStarts;
+	int[] transitions;
+	int[] accepts;
+
+	private final List<NfaState> nfa = new ArrayList<NfaState>();
+	// The expressions, joined for the messages of limits that only all of them together exceed.
+	private final String allExpressions;
+
+	/*
+	 * Compiles the expressions. An input the expressions with lower indexes match is accepted for them. Throws
+	 * PatternSyntaxException if an expression is not valid or the expressions exceed one of the limits.
+	 */
+	DfaCompiler(List<String> expressions) {
+		allExpressions = String.join("|", expressions);
+		NfaState start = newState();
+		List<Node> trees = new ArrayList<Node>();
+		for (String expression : expressions) {
+			trees.add(parse(expression));
+		}
+		for (int p = 0; p < trees.size(); p++) {
+			int[] fragment = trees.get(p).build(this);
+			start.epsilon(fragment[0]);
+			nfa.get(fragment[1]).accept = p;
+		}
+		classStarts = classStarts();
+		buildDfa();
+		pruneDeadStates();
+		minimize();
+	}
+
+	/*
+	 * Parses an expression and checks that its NFA is not too large, without building anything. Throws
+	 * PatternSyntaxException if it is not valid or too large.
+	 */
+	static Node parse(String expression) {
+		Node tree = new Parser(expression).parse();
+		if (tree.size() > MAX_NFA_STATES) {
+			throw new PatternSyntaxException("The expression needs more than " + MAX_NFA_STATES + " NFA states",
+					expression, -1);
+		}
+		return tree;
+	}
+
+	int getClassCount() {
+		return classStarts.length;
+	}
+
+	int getStateCount() {
+		return accepts.length;
+	}
+
+/*-------------------- Syntax trees --------------------*/
+
+	abstract static class Node {
+		/*
+		 * Gets the number of NFA states build() adds, or MAX_NFA_STATES + 1 if it is more than that.
+		 */
+		abstract long size();
+
+		/*
+		 * Adds the NFA states for the node and returns the start and end state of the fragment. Every call adds
+		 * new states, so a node can be built more than once for a repetition.
+		 */
+		abstract int[] build(DfaCompiler compiler);
+	}
+
+	private static final class CharSet extends Node {
+		final int[] ranges;
+
+		CharSet(int[] ranges) {
+			this.ranges = ranges;
+		}
+
+		long size() {
+			return 2;
+		}
+
+		int[] build(DfaCompiler compiler) {
+			NfaState start = compiler.newState();
+			NfaState end = compiler.newState();
+			start.ranges = ranges;
+			start.next = end.id;
+			return new int[] { start.id, end.id };
+		}
+	}
+
+	private static final class Sequence extends Node {
+		final List<Node> parts = new ArrayList<Node>();
+
+		long size() {
+			long size = 1;
+			for (Node part : parts) {
+				size += part.size();
+			}
+			return cap(size);
+		}
+
+		int[] build(DfaCompiler compiler) {
+			NfaState start = compiler.newState();
+			int end = start.id;
+			for (Node part : parts) {
+				int[] fragment = part.build(compiler);
+				compiler.nfa.get(end).epsilon(fragment[0]);
+				end = fragment[1];
+			}
+			return new int[] { start.id, end };
+		}
+	}
+
+	private static final class Alternation extends Node {
+		final List<Node> choices = new ArrayList<Node>();
+
+		long size() {
+			long size = 2;
+			for (Node choice : choices) {
+				size += choice.size();
+			}
+			return cap(size);
+		}
+
+		int[] build(DfaCompiler compiler) {
+			NfaState start = compiler.newState();
+			NfaState end = compiler.newState();
+			for (Node choice : choices) {
+				int[] fragment = choice.build(compiler);
+				start.epsilon(fragment[0]);
+				compiler.nfa.get(fragment[1]).epsilon(end.id);
+			}
+			return new int[] { start.id, end.id };
+		}
+	}
+
+	private static final class Repeat extends Node {
+		final Node node;
+		final int min;
+		final int max;  // -1 for no limit
+
+		Repeat(Node node, int min, int max) {
+			this.node = node;
+			this.min = min;
+			this.max = max;
+		}
+
+		long size() {
+			return cap(2 + (max < 0 ? min + 1 : max) * node.size());
+		}
+
+		int[] build(DfaCompiler compiler) {
+			NfaState start = compiler.newState();
+			int end = start.id;
+			for (int i = 0; i < min; i++) {
+				int[] fragment = node.build(compiler);
+				compiler.nfa.get(end).epsilon(fragment[0]);
+				end = fragment[1];
+			}
+			NfaState last = compiler.newState();
+			if (max < 0) {
+				int[] fragment = node.build(compiler);
+				compiler.nfa.get(end).epsilon(fragment[0]);
+				compiler.nfa.get(end).epsilon(last.id);
+				compiler.nfa.get(fragment[1]).epsilon(fragment[0]);
+				compiler.nfa.get(fragment[1]).epsilon(last.id);
+			} else {
+				for (int i = min; i < max; i++) {
+					int[] fragment = node.build(compiler);
+					compiler.nfa.get(end).epsilon(fragment[0]);
+					compiler.nfa.get(end).epsilon(last.id);
+					end = fragment[1];
+				}
+				compiler.nfa.get(end).epsilon(last.id);
+			}
+			return new int[] { start.id, last.id };
+		}
+	}
+
+	private static long cap(long size) {
+		return Math.min(size, MAX_NFA_STATES + 1L);
+	}
+
+/*-------------------- Parser --------------------*/
+
+	private static final class Parser {
+		private final String expression;
+		private int pos;
+
+		Parser(String expression) {
+			this.expression = expression;
+		}
+
+		Node parse() {
+			Node node = alternation();
+			if (pos < expression.length()) {
+				throw error("Unmatched closing ')'");
+			}
+			return node;
+		}
+
+		private Node alternation() {
+			Node first = sequence();
+			if (!peek('|')) {
+				return first;
+			}
+			Alternation alternation = new Alternation();
+			alternation.choices.add(first);
+			while (accept('|')) {
+				alternation.choices.add(sequence());
+			}
+			return alternation;
+		}
+
+		private Node sequence() {
+			Sequence sequence = new Sequence();
+			while (pos < expression.length() && !peek('|') && !peek(')')) {
+				sequence.parts.add(repeat());
+			}
+			return sequence.parts.size() == 1 ? sequence.parts.get(0) : sequence;
+		}
+
+		private Node repeat() {
+			Node node = atom();
+			while (pos < expression.length()) {
+				if (accept('*')) {
+					node = new Repeat(node, 0, -1);
+				} else if (accept('+')) {
+					node = new Repeat(node, 1, -1);
+				} else if (accept('?')) {
+					node = new Repeat(node, 0, 1);
+				} else if (accept('{')) {
+					int min = number();
+					int max = min;
+					if (accept(',')) {
+						max = peek('}') ? -1 : number();
+					}
+					if (!accept('}')) {
+						throw error("Unclosed counted repetition");
+					}
+					if (max >= 0 && max < min) {
+						throw error("Illegal repetition range");
+					}
+					node = new Repeat(node, min, max);
+				} else {
+					break;
+				}
+			}
+			return node;
+		}
+
+		private Node atom() {
+			char c = expression.charAt(pos++);
+			switch (c) {
+			case '(':
+				if (accept('?') && !accept(':')) {
+					throw error("Only non-capturing groups (?:...) are supported");
+				}
+				Node node = alternation();
+				if (!accept(')')) {
+					throw error("Unclosed group");
+				}
+				return node;
+			case '[':
+				return new CharSet(charClass());
+			case '.':
+				return new CharSet(complement(LINE_TERMINATOR));
+			case '\\':
+				return new CharSet(escape());
+			case '*': case '+': case '?': case '{':
+				throw error("Dangling meta character '" + c + "'");
+			case '^': case '$':
+				throw error("Anchors are not supported; matches always start at the token");
+			default:
+				return new CharSet(new int[] { c, c });
+			}
+		}
+
+		private int[] charClass() {
+			boolean negated = accept('^');
+			List<int[]> parts = new ArrayList<int[]>();
+			while (!accept(']')) {
+				if (pos >= expression.length()) {
+					throw error("Unclosed character class");
+				}
+				char c = expression.charAt(pos++);
+				int[] ranges;
+				if (c == '[') {
+					throw error("Nested character classes are not supported");
+				} else if (c == '\\') {
+					ranges = escape();
+				} else {
+					ranges = new int[] { c, c };
+				}
+				if (ranges.length == 2 && ranges[0] == ranges[1] && peek('-') && pos + 1 < expression.length()
+						&& expression.charAt(pos + 1) != ']') {
+					pos++;
+					char high = expression.charAt(pos++);
+					int[] end = high == '\\' ? escape() : new int[] { high, high };
+					if (end.length != 2 || end[0] != end[1] || end[0] < ranges[0]) {
+						throw error("Illegal character range");
+					}
+					ranges = new int[] { ranges[0], end[0] };
+				}
+				parts.add(ranges);
+			}
+			if (parts.isEmpty()) {
+				throw error("Empty character class");
+			}
+			int[] ranges = union(parts);
+			return negated ? complement(ranges) : ranges;
+		}
+
+		private int[] escape() {
+			if (pos >= expression.length()) {
+				throw error("Unexpected end of expression after '\\'");
+			}
+			char c = expression.charAt(pos++);
+			switch (c) {
+			case 'd': return DIGIT;
+			case 'D': return complement(DIGIT);
+			case 'w': return WORD;
+			case 'W': return complement(WORD);
+			case 's': return SPACE;
+			case 'S': return complement(SPACE);
+			case 't': return new int[] { '\t', '\t' };
+			case 'n': return new int[] { '\n', '\n' };
+			case 'r': return new int[] { '\r', '\r' };
+			case 'f': return new int[] { '\f', '\f' };
+			default:
+				if (c < 128 && Character.isLetterOrDigit(c)) {
+					throw error("Unsupported escape '\\" + c + "'");
+				}
+				return new int[] { c, c };
+			}
+		}
+
+		private int number() {
+			int start = pos;
+			while (pos < expression.length() && expression.charAt(pos) >= '0' && expression.charAt(pos) <= '9') {
+				pos++;
+			}
+			if (pos == start || pos - start > 4) {
+				throw error("Illegal repetition count");
+			}
+			int n = Integer.parseInt(expression.substring(start, pos));
+			if (n > MAX_REPEAT) {
+				throw error("Repetition count over " + MAX_REPEAT);
+			}
+			return n;
+		}
+
+		private boolean peek(char c) {
+			return pos < expression.length() && expression.charAt(pos) == c;
+		}
+
+		private boolean accept(char c) {
+			if (peek(c)) {
+				pos++;
+				return true;
+			}
+			return false;
+		}
+
+		private PatternSyntaxException error(String description) {
+			return new PatternSyntaxException(description, expression, pos - 1);
+		}
+	}
+
+/*-------------------- Character ranges --------------------*/
+
+	/*
+	 * Ranges are arrays of inclusive bounds, low and high for each range, sorted and not overlapping.
+	 */
+	static int[] union(List<int[]> parts) {
+		List<int[]> ranges = new ArrayList<int[]>();
+		for (int[] part : parts) {
+			for (int i = 0; i < part.length; i += 2) {
+				ranges.add(new int[] { part[i], part[i + 1] });
+			}
+		}
+		ranges.sort((a, b) -> a[0] - b[0]);
+		int[] result = new int[2 * ranges.size()];
+		int n = 0;
+		for (int[] range : ranges) {
+			if (n > 0 && range[0] <= result[n - 1] + 1) {
+				result[n - 1] = Math.max(result[n - 1], range[1]);
+			} else {
+				result[n++] = range[0];
+				result[n++] = range[1];
+			}
+		}
+		return Arrays.copyOf(result, n);
+	}
+
+	static int[] complement(int[] ranges) {
+		int[] result = new int[ranges.length + 2];
+		int n = 0;
+		int next = 0;
+		for (int i = 0; i < ranges.length; i += 2) {
+			if (ranges[i] > next) {
+				result[n++] = next;
+				result[n++] = ranges[i] - 1;
+			}
+			next = ranges[i + 1] + 1;
+		}
+		if (next <= Character.MAX_VALUE) {
+			result[n++] = next;
+			result[n++] = Character.MAX_VALUE;
+		}
+		return Arrays.copyOf(result, n);
+	}
+
+	/*
+	 * Returns the first character of each class: 0 and every character just past the end or at the start of a
+	 * range of the NFA.
+	 */
+	private int[] classStarts() {
+		TreeSet<Integer> starts = new TreeSet<Integer>();
+		starts.add(0);
+		for (NfaState state : nfa) {
+			if (state.ranges != null) {
+				for (int i = 0; i < state.ranges.length; i += 2) {
+					starts.add(state.ranges[i]);
+					if (state.ranges[i + 1] < Character.MAX_VALUE) {
+						starts.add(state.ranges[i + 1] + 1);
+					}
+				}
+			}
+		}
+		int[] result = new int[starts.size()];
+		int n = 0;
+		for (int start : starts) {
+			result[n++] = start;
+		}
+		return result;
+	}
+
+	private int classOf(int c) {
+		int i = Arrays.binarySearch(classStarts, c);
+		return i >= 0 ? i : -i - 2;
+	}
+
+/*-------------------- NFA and DFA --------------------*/
+
+	private static final class NfaState {
+		final int id;
+		int[] ranges;  // The characters that lead to next, or null.
+		int next = -1;
+		int[] epsilon = new int[0];
+		int accept = -1;
+
+		NfaState(int id) {
+			this.id = id;
+		}
+
+		void epsilon(int target) {
+			epsilon = Arrays.copyOf(epsilon, epsilon.length + 1);
+			epsilon[epsilon.length - 1] = target;
+		}
+	}
+
+	private NfaState newState() {
+		if (nfa.size() == MAX_NFA_STATES) {
+			throw new PatternSyntaxException("The expressions need more than " + MAX_NFA_STATES + " NFA states",
+					allExpressions, -1);
+		}
+		NfaState state = new NfaState(nfa.size());
+		nfa.add(state);
+		return state;
+	}
+
+	private void closure(BitSet states) {
+		Deque<Integer> stack = new ArrayDeque<Integer>();
+		for (int s = states.nextSetBit(0); s >= 0; s = states.nextSetBit(s + 1)) {
+			stack.push(s);
+		}
+		while (!stack.isEmpty()) {
+			for (int target : nfa.get(stack.pop()).epsilon) {
+				if (!states.get(target)) {
+					states.set(target);
+					stack.push(target);
+				}
+			}
+		}
+	}
+
+	private void buildDfa() {
+		int classes = classStarts.length;
+		// The classes each NFA state with ranges reads.
+		int[][] stateClasses = new int[nfa.size()][];
+		for (NfaState state : nfa) {
+			if (state.ranges != null) {
+				List<Integer> list = new ArrayList<Integer>();
+				for (int i = 0; i < state.ranges.length; i += 2) {
+					for (int k = classOf(state.ranges[i]); k <= classOf(state.ranges[i + 1]); k++) {
+						list.add(k);
+					}
+				}
+				stateClasses[state.id] = list.stream().mapToInt(Integer::intValue).toArray();
+			}
+		}
+
+		List<BitSet> subsets = new ArrayList<BitSet>();
+		Map<BitSet, Integer> ids = new HashMap<BitSet, Integer>();
+		List<int[]> rows = new ArrayList<int[]>();
+		BitSet start = new BitSet();
+		start.set(0);
+		closure(start);
+		subsets.add(start);
+		ids.put(start, 0);
+		for (int d = 0; d < subsets.size(); d++) {
+			BitSet subset = subsets.get(d);
+			BitSet[] targets = new BitSet[classes];
+			for (int s = subset.nextSetBit(0); s >= 0; s = subset.nextSetBit(s + 1)) {
+				if (stateClasses[s] != null) {
+					for (int k : stateClasses[s]) {
+						if (targets[k] == null) {
+							targets[k] = new BitSet();
+						}
+						targets[k].set(nfa.get(s).next);
+					}
+				}
+			}
+			int[] row = new int[classes];
+			for (int k = 0; k < classes; k++) {
+				if (targets[k] == null) {
+					row[k] = -1;
+					continue;
+				}
+				closure(targets[k]);
+				Integer id = ids.get(targets[k]);
+				if (id == null) {
+					if (subsets.size() == MAX_STATES) {
+						throw new PatternSyntaxException("The expressions need more than " + MAX_STATES + " DFA states",
+								allExpressions, -1);
+					}
+					id = subsets.size();
+					subsets.add(targets[k]);
+					ids.put(targets[k], id);
+				}
+				row[k] = id;
+			}
+			rows.add(row);
+		}
+
+		transitions = new int[rows.size() * classes];
+		accepts = new int[rows.size()];
+		for (int d = 0; d < rows.size(); d++) {
+			System.arraycopy(rows.get(d), 0, transitions, d * classes, classes);
+			accepts[d] = -1;
+			BitSet subset = subsets.get(d);
+			for (int s = subset.nextSetBit(0); s >= 0; s = subset.nextSetBit(s + 1)) {
+				int accept = nfa.get(s).accept;
+				if (accept >= 0 && (accepts[d] < 0 || accept < accepts[d])) {
+					accepts[d] = accept;
+				}
+			}
+		}
+	}
+
+	/*
+	 * Removes the transitions into states from which no accepting state can be reached. The start state is
+	 * kept even if nothing can be matched.
+	 */
+	private void pruneDeadStates() {
+		int classes = classStarts.length;
+		int states = accepts.length;
+		boolean[] live = new boolean[states];
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int d = 0; d < states; d++) {
+				if (live[d]) {
+					continue;
+				}
+				boolean reaches = accepts[d] >= 0;
+				for (int k = 0; k < classes && !reaches; k++) {
+					int target = transitions[d * classes + k];
+					reaches = target >= 0 && live[target];
+				}
+				if (reaches) {
+					live[d] = changed = true;
+				}
+			}
+		}
+		for (int i = 0; i < transitions.length; i++) {
+			if (transitions[i] >= 0 && !live[transitions[i]]) {
+				transitions[i] = -1;
+			}
+		}
+	}
+
+	/*
+	 * Merges equivalent states. States start out in blocks by the expression they accept and are split by the
+	 * blocks their transitions lead to until no block splits any more. Blocks are numbered in the order of
+	 * their first state, so the start state stays 0. States that cannot be reached any more are dropped.
+	 */
+	private void minimize() {
+		int classes = classStarts.length;
+		int states = accepts.length;
+		int[] block = new int[states];
+		int blockCount = renumber(block, accepts);
+		while (true) {
+			int[] signatureIds = new int[states];
+			Map<List<Integer>, Integer> signatures = new HashMap<List<Integer>, Integer>();
+			for (int d = 0; d < states; d++) {
+				List<Integer> signature = new ArrayList<Integer>(classes + 1);
+				signature.add(block[d]);
+				for (int k = 0; k < classes; k++) {
+					int target = transitions[d * classes + k];
+					signature.add(target < 0 ? -1 : block[target]);
+				}
+				Integer id = signatures.get(signature);
+				if (id == null) {
+					id = signatures.size();
+					signatures.put(signature, id);
+				}
+				signatureIds[d] = id;
+			}
+			int count = renumber(block, signatureIds);
+			if (count == blockCount) {
+				break;
+			}
+			blockCount = count;
+		}
+
+		// Keep the blocks reachable from the start state, numbered in the order they are found.
+		int[] newId = new int[blockCount];
+		Arrays.fill(newId, -1);
+		int[] representative = new int[blockCount];
+		for (int d = states - 1; d >= 0; d--) {
+			representative[block[d]] = d;
+		}
+		List<Integer> order = new ArrayList<Integer>();
+		newId[block[0]] = 0;
+		order.add(block[0]);
+		for (int i = 0; i < order.size(); i++) {
+			int d = representative[order.get(i)];
+			for (int k = 0; k < classes; k++) {
+				int target = transitions[d * classes + k];
+				if (target >= 0 && newId[block[target]] < 0) {
+					newId[block[target]] = order.size();
+					order.add(block[target]);
+				}
+			}
+		}
+		int[] minimalTransitions = new int[order.size() * classes];
+		int[] minimalAccepts = new int[order.size()];
+		for (int i = 0; i < order.size(); i++) {
+			int d = representative[order.get(i)];
+			minimalAccepts[i] = accepts[d];
+			for (int k = 0; k < classes; k++) {
+				int target = transitions[d * classes + k];
+				minimalTransitions[i * classes + k] = target < 0 ? -1 : newId[block[target]];
+			}
+		}
+		transitions = minimalTransitions;
+		accepts = minimalAccepts;
+	}
+
+	/*
+	 * Numbers the distinct keys in the order of the first state that has them, and returns how many there are.
+	 */
+	private static int renumber(int[] block, int[] keys) {
+		Map<Integer, Integer> numbers = new HashMap<Integer, Integer>();
+		for (int d = 0; d < keys.length; d++) {
+			Integer number = numbers.get(keys[d]);
+			if (number == null) {
+				number = numbers.size();
+				numbers.put(keys[d], number);
+			}
+			block[d] = number;
+		}
+		return numbers.size();
+	}
+
+}
@@ -0,0 +1,54 @@
+package com.parc.chat.tokenizer;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Maps every character to the recognizers that can start with it, as a bit mask of their positions in a
+ * tokenizer's list of recognizers. There is one array of 256 masks for each block of 256 characters, and blocks
+ * in which all characters have the same mask share one array, so the table stays small for the usual
+ * recognizers. A table never changes and may be shared by any number of tokenizers.
+ */
+final class DispatchTable {
+
+	static final int MAX_RECOGNIZERS = 64;
+
+	private final long[][] blocks = new long[256][];
+
+	DispatchTable(List<? extends Recognizer> recognizers) {
+		if (recognizers.size() > MAX_RECOGNIZERS) {
+			throw new IllegalArgumentException("A tokenizer takes at most " + MAX_RECOGNIZERS + " recognizers");
+		}
+		Map<Long, long[]> uniformBlocks = new HashMap<Long, long[]>();
+		long[] block = new long[256];
+		for (int b = 0; b < blocks.length; b++) {
+			boolean uniform = true;
+			for (int i = 0; i < 256; i++) {
+				char c = (char) (b << 8 | i);
+				long mask = 0;
+				for (int r = 0; r < recognizers.size(); r++) {
+					if (recognizers.get(r).canStartWith(c)) {
+						mask |= 1L << r;
+					}
+				}
+				block[i] = mask;
+				uniform &= mask == block[0];
+			}
+			if (!uniform) {
+				blocks[b] = block.clone();
+			} else if ((blocks[b] = uniformBlocks.get(block[0])) == null) {
+				blocks[b] = block.clone();
+				uniformBlocks.put(block[0], blocks[b]);
+			}
+		}
+	}
+
+	/*
+	 * Returns the positions of the recognizers that can start with the character as a bit mask.
+	 */
+	long get(char c) {
+		return blocks[c >>> 8][c & 0xFF];
+	}
+
+}
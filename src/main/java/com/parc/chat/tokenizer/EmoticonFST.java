@@ -1,245 +1,195 @@
 package com.parc.chat.tokenizer;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Finite-state transducer that recognizers emoticons.
  *
+ * The transducer is a table of transitions by state and character class, built once from the list of emoticon
+ * forms below: eyes, an optional tear and nose, and a mouth, as in ":-)" or ":'(", with an optional brow as in
+ * ">:(", and the reversed "(:", hearts such as "<3" and faces such as "o_O" and "^_^". Matching reads the text in
+ * place, stops as soon as there is no transition and returns the longest prefix that is an emoticon. The forms
+ * that could also be ordinary text, like "(:", ":D" or "o_o", must not be followed by a letter or a digit, and
+ * those that start with a letter must not follow one. Nothing is allocated.
+ *
  * @author Kyle Dent
  *
  */
 public class EmoticonFST {
 
-	/**
-	 * Determines if the next token in the supplied string is an emoticon. The function tries to match any of many
-	 * types of emoticons up until it encounters the first space in the string. If an emoticon is found, it returns
-	 * the length of the emoticon and otherwise returns 0.
-	 * @param str - the string to be checked for an emoticon
-	 * @return an integer representing the length of the emoticon from the beginning of the string or 0 if an emoticon cannot be matched
-	 */
-	public static int recognizeEmoticon(String str) {
-		int emoticonLength = 0;
-
-		int i;
-		Alphabet currentSymbol = null;
-		State currentState = State.START;
-		for (i = 0; i < str.length(); i++) {
-			if (Character.isWhitespace(str.charAt(i))) {
-				break;
-			}
-			currentSymbol = getSymbol(str.charAt(i));
-			if (currentSymbol == null) {
-				break;
-			}
-			currentState = getState(currentState, currentSymbol);
+	// The emoticon recognizer in a tokenizer's list of recognizers. It keeps no state, so all tokenizers share it.
+	static final Recognizer RECOGNIZER = new Recognizer() {
+		@Override
+		public boolean canStartWith(char c) {
+			return isInitialEmoticonChar(c);
 		}
 
-		// Check for a final state.
-		if (currentState == State.ON_EYES || currentState == State.ON_MOUTH) {
-			emoticonLength = i;
-		} else {
-			emoticonLength = 0;
+		@Override
+		public int recognize(CharSequence text, int pos, int end) {
+			return recognizeEmoticon(text, pos, end);
 		}
-		return emoticonLength;
-	}
 
-	public static boolean isInitialEmoticonChar(char c) {
-		boolean isInitialChar = false;
-		if (isEyes(getSymbol(c))) {
-			isInitialChar = true;
-		} else if (c == ')' || c == '(') {
-			isInitialChar = true;
-		} else {
-			isInitialChar = false;
+		@Override
+		public TokenType getTokenType() {
+			return TokenType.EMOTICON;
 		}
-		return isInitialChar;
-	}
 
-	private static enum Alphabet {
-		COLON,
-		HYPHEN,
-		OPEN_PAREN,
-		CLOSE_PAREN,
-		OPEN_BRACKET,
-		CLOSE_BRACKET,
-		PIPE,
-		UNDERSCORE,
-		THREE,
-		EIGHT,
-		ZERO,
-		CAPITAL_B,
-		CAPITAL_D,
-		CAPITAL_O,
-		CAPITAL_P,
-		LOWER_O,
-		LOWER_P,
-		APOSTROPHE,
-		BACKSLASH,
-		FORWARDSLASH,
-		LESS_THAN,
-		GREATER_THAN,
-		SEMI_COLON,
-		ASTERISK
-	};
-
-	private static enum State {
-		START,
-		ON_EYES,
-		ON_NOSE,
-		ON_MOUTH,
-		ON_BROW,
-		ON_TEAR,
-		FAIL
+		@Override
+		public String getLabel() {
+			return null;
+		}
 	};
 
-	private static State getState(State currentState, Alphabet currentSymbol) {
-		State newState = State.FAIL;
-
-		switch(currentState) {
-		case START:
-			switch(currentSymbol) {
-			case COLON:
-			case SEMI_COLON:
-				newState = State.ON_EYES;
-				break;
-			default:
-				newState = State.FAIL;
+	// Kinds of states: not accepting, accepting, and accepting if no letter or digit follows.
+	private static final byte REJECT = 0;
+	private static final byte ACCEPT = 1;
+	private static final byte ACCEPT_AT_BOUNDARY = 2;
+
+	private static final String EYES = ":;";
+	private static final String[] NOSES = { "", "-" };
+	private static final String MOUTHS = ")(][DOoPp";
+	private static final String[] FACES = { "o_O", "O_o", "o_o", "O_O", "^_^", "-_-", ">_<", "T_T" };
+
+	// The class of each ASCII character, 0 for characters that are in no emoticon. Class 0 has no transitions.
+	private static final byte[] CLASSES = new byte[128];
+	private static final int CLASS_COUNT;
+
+	// The next state by state and class, 0 where there is no transition; state 0 is the start state, which is
+	// never entered again. ACCEPTS holds the kind of each state.
+	private static final short[] TRANSITIONS;
+	private static final byte[] ACCEPTS;
+
+	static {
+		List<String> forms = new ArrayList<String>();
+		List<Byte> kinds = new ArrayList<Byte>();
+		for (char eyes : EYES.toCharArray()) {
+			for (String nose : NOSES) {
+				for (char mouth : MOUTHS.toCharArray()) {
+					// A mouth that is a letter could be the start of a word after a colon, as in "Note:Do".
+					byte kind = Character.isLetter(mouth) ? ACCEPT_AT_BOUNDARY : ACCEPT;
+					add(forms, kinds, "" + eyes + nose + mouth, kind);
+					add(forms, kinds, ">" + eyes + nose + mouth, kind);
+					if (mouth == '(' || mouth == ')') {
+						add(forms, kinds, eyes + "'" + nose + mouth, ACCEPT);
+					}
+				}
+				add(forms, kinds, "(" + nose + eyes, ACCEPT_AT_BOUNDARY);
 			}
-			break;
-		case ON_EYES:
-			if (currentSymbol == Alphabet.HYPHEN) {
-				newState = State.ON_NOSE;
-			} else if (isMouth(currentSymbol)) {
-				newState = State.ON_MOUTH;
-			} else {
-				newState = State.FAIL;
+		}
+		add(forms, kinds, "<3", ACCEPT_AT_BOUNDARY);
+		add(forms, kinds, "</3", ACCEPT_AT_BOUNDARY);
+		for (String face : FACES) {
+			add(forms, kinds, face, ACCEPT_AT_BOUNDARY);
+		}
+
+		int classCount = 1;
+		for (String form : forms) {
+			for (char c : form.toCharArray()) {
+				if (CLASSES[c] == 0) {
+					CLASSES[c] = (byte) classCount++;
+				}
 			}
-			break;
-		case ON_NOSE:
-			if (currentSymbol == Alphabet.COLON) {
-				newState = State.ON_EYES;
-			} else if (isMouth(currentSymbol)) {
-				newState = State.ON_MOUTH;
-			} else {
-				newState = State.FAIL;
+		}
+		CLASS_COUNT = classCount;
+
+		// Build the table as a trie of the forms.
+		List<short[]> rows = new ArrayList<short[]>();
+		List<Byte> accepts = new ArrayList<Byte>();
+		rows.add(new short[CLASS_COUNT]);
+		accepts.add(REJECT);
+		for (int f = 0; f < forms.size(); f++) {
+			int state = 0;
+			for (char c : forms.get(f).toCharArray()) {
+				short[] row = rows.get(state);
+				if (row[CLASSES[c]] == 0) {
+					row[CLASSES[c]] = (short) rows.size();
+					rows.add(new short[CLASS_COUNT]);
+					accepts.add(REJECT);
+				}
+				state = row[CLASSES[c]];
 			}
-			break;
-		default:
-			newState = State.FAIL;
+			accepts.set(state, kinds.get(f));
 		}
+		TRANSITIONS = new short[rows.size() * CLASS_COUNT];
+		ACCEPTS = new byte[rows.size()];
+		for (int state = 0; state < rows.size(); state++) {
+			System.arraycopy(rows.get(state), 0, TRANSITIONS, state * CLASS_COUNT, CLASS_COUNT);
+			ACCEPTS[state] = accepts.get(state);
+		}
+	}
 
-		return newState;
+	private static void add(List<String> forms, List<Byte> kinds, String form, byte kind) {
+		forms.add(form);
+		kinds.add(kind);
 	}
 
-	private static Alphabet getSymbol(char c) {
-		Alphabet symbol = null;
-
-		switch(c) {
-		case ':':
-			symbol = Alphabet.COLON;
-			break;
-		case '-':
-			symbol = Alphabet.HYPHEN;
-			break;
-		case '(':
-			symbol = Alphabet.OPEN_PAREN;
-			break;
-		case ')':
-			symbol = Alphabet.CLOSE_PAREN;
-			break;
-		case '[':
-			symbol = Alphabet.OPEN_BRACKET;
-			break;
-		case ']':
-			symbol = Alphabet.CLOSE_BRACKET;
-			break;
-		case '|':
-			symbol = Alphabet.PIPE;
-			break;
-		case '_':
-			symbol = Alphabet.UNDERSCORE;
-			break;
-		case '3':
-			symbol = Alphabet.THREE;
-			break;
-		case '8':
-			symbol = Alphabet.EIGHT;
-			break;
-		case '0':
-			symbol = Alphabet.ZERO;
-			break;
-		case 'B':
-			symbol = Alphabet.CAPITAL_B;
-			break;
-		case 'D':
-			symbol = Alphabet.CAPITAL_D;
-			break;
-		case 'O':
-			symbol = Alphabet.CAPITAL_O;
-			break;
-		case 'P':
-			symbol = Alphabet.CAPITAL_P;
-			break;
-		case 'o':
-			symbol = Alphabet.LOWER_O;
-			break;
-		case 'p':
-			symbol = Alphabet.LOWER_P;
-			break;
-		case '\'':
-			symbol = Alphabet.APOSTROPHE;
-			break;
-		case '\\':
-			symbol = Alphabet.BACKSLASH;
-			break;
-		case '/':
-			symbol = Alphabet.FORWARDSLASH;
-			break;
-		case '<':
-			symbol = Alphabet.LESS_THAN;
-			break;
-		case '>':
-			symbol = Alphabet.GREATER_THAN;
-			break;
-		case ';':
-			symbol = Alphabet.SEMI_COLON;
-			break;
-		case '*':
-			symbol = Alphabet.ASTERISK;
-			break;
-		default:
-			symbol = null;
-		}
+	/**
+	 * Determines if the next token in the supplied string is an emoticon. If an emoticon is found, it returns
+	 * the length of the longest emoticon at the beginning of the string and otherwise returns 0.
+	 * @param str - the string to be checked for an emoticon
+	 * @return an integer representing the length of the emoticon from the beginning of the string or 0 if an emoticon cannot be matched
+	 */
+	public static int recognizeEmoticon(String str) {
+		return recognizeEmoticon(str, 0);
+	}
 
-		return symbol;
+	/**
+	 * Determines if the token starting at the given position of the text is an emoticon. This works like
+	 * {@link #recognizeEmoticon(String)} without copying the rest of the text.
+	 * @param text - the text to be checked for an emoticon
+	 * @param start - the position in the text where the emoticon has to start
+	 * @return an integer representing the length of the emoticon from the start position or 0 if an emoticon cannot be matched
+	 */
+	public static int recognizeEmoticon(CharSequence text, int start) {
+		return recognizeEmoticon(text, start, text.length());
 	}
 
-	private static boolean isEyes(Alphabet symbol) {
-		if (symbol == Alphabet.CAPITAL_B
-		|| symbol == Alphabet.COLON
-		|| symbol == Alphabet.EIGHT
-		|| symbol == Alphabet.SEMI_COLON)
-		{
-			return true;
-		} else {
-			return false;
-		}
+	/**
+	 * Determines if the token starting at the given position of the text is an emoticon, reading no further
+	 * than the given end position. The characters before the start position are not looked at.
+	 * @param text - the text to be checked for an emoticon
+	 * @param start - the position in the text where the emoticon has to start
+	 * @param end - the position just past the last character that may be part of the emoticon
+	 * @return an integer representing the length of the emoticon from the start position or 0 if an emoticon cannot be matched
+	 */
+	public static int recognizeEmoticon(CharSequence text, int start, int end) {
+		return recognizeEmoticon(text, start, start, end);
 	}
 
-	private static boolean isMouth(Alphabet symbol) {
-		if (symbol == Alphabet.OPEN_BRACKET
-		|| symbol == Alphabet.CLOSE_BRACKET
-		|| symbol == Alphabet.OPEN_PAREN
-		|| symbol == Alphabet.CLOSE_PAREN
-		|| symbol == Alphabet.CAPITAL_D
-		|| symbol == Alphabet.CAPITAL_O
-		|| symbol == Alphabet.LOWER_O
-		|| symbol == Alphabet.CAPITAL_P
-		|| symbol == Alphabet.LOWER_P)
-		{
-			return true;
-		} else {
-			return false;
+	/*
+	 * Determines if the token starting at the given position is an emoticon, looking back no further than from
+	 * to tell whether it follows a letter or a digit.
+	 */
+	static int recognizeEmoticon(CharSequence text, int from, int start, int end) {
+		if (start >= end) {
+			return 0;
+		}
+		char first = text.charAt(start);
+		if (start > from && isLetterOrDigit(first) && isLetterOrDigit(text.charAt(start - 1))) {
+			return 0;
+		}
+		int length = 0;
+		int state = 0;
+		for (int i = start; i < end; i++) {
+			char c = text.charAt(i);
+			if (c >= 128 || (state = TRANSITIONS[state * CLASS_COUNT + CLASSES[c]]) == 0) {
+				break;
+			}
+			byte accept = ACCEPTS[state];
+			if (accept == ACCEPT || accept == ACCEPT_AT_BOUNDARY && (i + 1 == end || !isLetterOrDigit(text.charAt(i + 1)))) {
+				length = i + 1 - start;
+			}
 		}
+		return length;
+	}
+
+	public static boolean isInitialEmoticonChar(char c) {
+		return c < 128 && TRANSITIONS[CLASSES[c]] != 0;
+	}
 
+	private static boolean isLetterOrDigit(char c) {
+		return Character.isLetterOrDigit(c);
 	}
 
 }
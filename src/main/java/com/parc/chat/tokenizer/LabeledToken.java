@@ -22,6 +22,7 @@ public class LabeledToken implements Serializable {
 	private String originalWord;
 	private String stem;
 	private TokenType tokenType;
+	private String label;
 	private int index = -1;
 	private int charPos = -1;
 
@@ -90,6 +91,22 @@ public class LabeledToken implements Serializable {
         this.tokenType = tokenType;
     }
 
+	/**
+	 * Gets the label of a CUSTOM token, which names the {@link Recognizer} that found it.
+	 * @return the label, or null for tokens of the other types
+	 */
+	public String getLabel() {
+		return label;
+	}
+
+	/**
+	 * Sets the label of a CUSTOM token.
+	 * @param label the label of the token
+	 */
+	public void setLabel(String label) {
+		this.label = label;
+	}
+
     /**
      * Get the index of this token into its sentence.
      * @return the index of this token in its sentence
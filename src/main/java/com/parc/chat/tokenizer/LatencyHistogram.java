@@ -0,0 +1,243 @@
+package com.parc.chat.tokenizer;
+
+/**
+ * A snapshot of the times a tokenizer took for the texts of one length range, taken with
+ * {@link TokenizerMetrics#getLatencyHistogram(TokenizerMetrics.LengthRange)}. Times are counted in log-linear
+ * buckets: every power of two of nanoseconds is split into 8 buckets of equal width, so a bucket is at most
+ * 12.5% wider than the times it holds, from a nanosecond up to about 18 minutes. Longer times are counted in the
+ * last bucket.
+ *
+ * Percentiles and the maximum are given as the upper bound of the bucket they fall in, so they are never lower
+ * than the time that was measured.
+ */
+public final class LatencyHistogram {
+
+	// Times below 2^LINEAR_BITS nanoseconds have a bucket each; above, every power of two has SUB_BUCKETS.
+	private static final int LINEAR_BITS = 4;
+	private static final int SUB_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int MAX_EXPONENT = 40;
+
+	/** The number of buckets. */
+	static final int BUCKET_COUNT = (1 << LINEAR_BITS) + (MAX_EXPONENT - LINEAR_BITS + 1) * SUB_BUCKETS;
+
+	private final TokenizerMetrics.LengthRange lengthRange;
+	private final long[] counts;
+	private final long count;
+
+	LatencyHistogram(TokenizerMetrics.LengthRange lengthRange, long[] counts) {
+		this.lengthRange = lengthRange;
+		this.counts = counts;
+		long count = 0;
+		for (long c : counts) {
+			count += c;
+		}
+		this.count = count;
+	}
+
+	/**
+	 * Gets the bucket a time is counted in.
+	 * @param nanos the time in nanoseconds
+	 * @return the index of the bucket
+	 */
+	static int bucketOf(long nanos) {
+		if (nanos < 1 << LINEAR_BITS) {
+			return nanos < 0 ? 0 : (int) nanos;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		if (exponent > MAX_EXPONENT) {
+			return BUCKET_COUNT - 1;
+		}
+		int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (1 << LINEAR_BITS) + (exponent - LINEAR_BITS) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * Gets the shortest time counted in a bucket.
+	 * @param bucket the index of the bucket
+	 * @return the time in nanoseconds
+	 */
+	static long lowerBound(int bucket) {
+		if (bucket < 1 << LINEAR_BITS) {
+			return bucket;
+		}
+		int exponent = (bucket - (1 << LINEAR_BITS)) / SUB_BUCKETS + LINEAR_BITS;
+		int sub = (bucket - (1 << LINEAR_BITS)) % SUB_BUCKETS;
+		return (long) (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+	}
+
+	/**
+	 * Gets the longest time counted in a bucket. The last bucket has no bound, and its lower bound is returned.
+	 * @param bucket the index of the bucket
+	 * @return the time in nanoseconds
+	 */
+	static long upperBound(int bucket) {
+		return bucket == BUCKET_COUNT - 1 ? lowerBound(bucket) : lowerBound(bucket + 1) - 1;
+	}
+
+	/**
+	 * Gets the range of text lengths the times are for.
+	 * @return the length range
+	 */
+	public TokenizerMetrics.LengthRange getLengthRange() {
+		return lengthRange;
+	}
+
+	/**
+	 * Gets the number of times counted.
+	 * @return the number of texts
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Gets the time that the given percentage of the texts took at most.
+	 * @param percentile the percentage, from 0 to 100
+	 * @return the time in nanoseconds, or 0 if no time was counted
+	 * @throws IllegalArgumentException if the percentage is not between 0 and 100
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (!(percentile >= 0 && percentile <= 100)) {
+			throw new IllegalArgumentException("Not a percentage: " + percentile);
+		}
+		if (count == 0) {
+			return 0;
+		}
+		// The tolerance keeps rounding errors, as in 99.9 / 100 * 1000, from moving the rank up by one.
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count - 1e-9));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return upperBound(i);
+			}
+		}
+		return getMax();
+	}
+
+	/**
+	 * Gets the median time.
+	 * @return the time in nanoseconds
+	 */
+	public long getMedian() {
+		return getValueAtPercentile(50);
+	}
+
+	/**
+	 * Gets the time 90% of the texts took at most.
+	 * @return the time in nanoseconds
+	 */
+	public long getP90() {
+		return getValueAtPercentile(90);
+	}
+
+	/**
+	 * Gets the time 99% of the texts took at most.
+	 * @return the time in nanoseconds
+	 */
+	public long getP99() {
+		return getValueAtPercentile(99);
+	}
+
+	/**
+	 * Gets the time 99.9% of the texts took at most.
+	 * @return the time in nanoseconds
+	 */
+	public long getP999() {
+		return getValueAtPercentile(99.9);
+	}
+
+	/**
+	 * Gets the longest time.
+	 * @return the time in nanoseconds, or 0 if no time was counted
+	 */
+	public long getMax() {
+		for (int i = counts.length - 1; i >= 0; i--) {
+			if (counts[i] != 0) {
+				return upperBound(i);
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Gets the mean time, taking the middle of each bucket for the times in it.
+	 * @return the time in nanoseconds, or 0 if no time was counted
+	 */
+	public double getMean() {
+		if (count == 0) {
+			return 0;
+		}
+		double sum = 0;
+		for (int i = 0; i < counts.length; i++) {
+			if (counts[i] != 0) {
+				sum += counts[i] * ((lowerBound(i) + upperBound(i)) / 2.0);
+			}
+		}
+		return sum / count;
+	}
+
+	/**
+	 * Gets the shortest time of every bucket that holds any times, in increasing order.
+	 * @return the lower bounds in nanoseconds, matching {@link #getBucketCounts()}
+	 */
+	public long[] getBucketLowerBounds() {
+		long[] bounds = new long[usedBuckets()];
+		for (int i = 0, j = 0; i < counts.length; i++) {
+			if (counts[i] != 0) {
+				bounds[j++] = lowerBound(i);
+			}
+		}
+		return bounds;
+	}
+
+	/**
+	 * Gets the number of times in every bucket that holds any.
+	 * @return the counts, matching {@link #getBucketLowerBounds()}
+	 */
+	public long[] getBucketCounts() {
+		long[] used = new long[usedBuckets()];
+		for (int i = 0, j = 0; i < counts.length; i++) {
+			if (counts[i] != 0) {
+				used[j++] = counts[i];
+			}
+		}
+		return used;
+	}
+
+	/**
+	 * Adds the times of another histogram of the same length range to these, for example from the metrics of
+	 * another tokenizer pool.
+	 * @param other the other histogram
+	 * @return a new histogram with the times of both
+	 * @throws IllegalArgumentException if the histograms are for different length ranges
+	 */
+	public LatencyHistogram merge(LatencyHistogram other) {
+		if (other.lengthRange != lengthRange) {
+			throw new IllegalArgumentException("Cannot merge " + other.lengthRange + " into " + lengthRange);
+		}
+		long[] sum = counts.clone();
+		for (int i = 0; i < sum.length; i++) {
+			sum[i] += other.counts[i];
+		}
+		return new LatencyHistogram(lengthRange, sum);
+	}
+
+	@Override
+	public String toString() {
+		return lengthRange + ": count=" + count + ", median=" + getMedian() + ", p90=" + getP90() + ", p99=" + getP99()
+				+ ", p999=" + getP999() + ", max=" + getMax();
+	}
+
+	private int usedBuckets() {
+		int used = 0;
+		for (long c : counts) {
+			if (c != 0) {
+				used++;
+			}
+		}
+		return used;
+	}
+
+}
@@ -1,5 +1,7 @@
 package com.parc.chat.tokenizer;
 
+import java.util.Arrays;
+
 public class LexicalFSA {
 
     public enum State {
@@ -44,430 +46,574 @@ public class LexicalFSA {
         UNKNOWN
     };
 
-    private static State[][] stateTable = {
-    	// START
-        {State.IN_WORD, 				// ALPHA
-    	 State.ON_DIGIT, 				// DIGIT
-    	 State.ON_EPOINT_OR_QMARK, 		// QMARK
-         State.ON_EPOINT_OR_QMARK, 		// EPOINT
-    	 State.ON_DOT, 					// DECIMAL
-    	 State.ON_DOT, 			// PERIOD
-    	 State.ON_PUNCT, 		// COLON
-    	 State.ON_PUNCT, 		// SEMI-COLON
-         State.ON_AMPERSAND,			// AMPERSAND
-    	 State.ON_PUNCT,			// PUNCT 
-    	 State.ON_AT,					// AT_SIGN
-    	 State.ON_HASH,					// HASH
-         State.ON_PUNCT,		// OPEN_PAREN
-         State.ON_PUNCT,		// CLOSE_PAREN
-    	 State.ON_PUNCT,		// OPEN_ANGLE
-    	 State.ON_PUNCT,		// CLOSE_ANGLE
-    	 State.BETWEEN_TOKENS,			// SPACE
-         State.ON_HYPHEN,       // HYPHEN
-    	 State.ON_UNKNOWN},					// UNKNOWN
-    	// ON_HASH
-    	{State.IN_HASH_TAG,				// ALPHA
-    	 State.IN_HASH_TAG,				// DIGIT
-    	 State.ON_EPOINT_OR_QMARK,		// QMARK
-    	 State.ON_EPOINT_OR_QMARK,		// EPOINT
-    	 State.ON_DIGIT,					// DECIMAL
-    	 State.ON_PUNCT, 			// PERIOD
-    	 State.ON_PUNCT,			// COLON
-    	 State.ON_PUNCT,			// SEMI-COLON
-    	 State.ON_AMPERSAND,			// AMPERSAND
-    	 State.ON_PUNCT,			// PUNCT 
-    	 State.ON_AT,					// AT_SIGN
-    	 State.ON_HASH,					// HASH
-    	 State.ON_PUNCT, 			// OPEN_PAREN
-    	 State.ON_PUNCT,		// CLOSE_PAREN
-    	 State.ON_PUNCT,		// OPEN_ANGLE
-    	 State.ON_PUNCT,		// CLOSE_ANGLE
-    	 State.BETWEEN_TOKENS,			// SPACE
-         State.ON_HYPHEN,       // HYPHEN
-    	 State.ON_UNKNOWN,					// UNKNOWN
-     	},
-     	// ON_AT
-     	{State.IN_AT_NAME,				// ALPHA
-       	 State.IN_AT_NAME,				// DIGIT
-    	 State.ON_EPOINT_OR_QMARK,		// QMARK
-    	 State.ON_EPOINT_OR_QMARK,		// EPOINT
-    	 State.ON_DIGIT,					// DECIMAL
-    	 State.ON_PUNCT, 			// PERIOD
-    	 State.ON_PUNCT,					// COLON
-    	 State.ON_PUNCT,					// SEMI-COLON
-    	 State.ON_AMPERSAND,			// AMPERSAND
-    	 State.ON_PUNCT,			// PUNCT 
-    	 State.ON_AT,					// AT_SIGN
-    	 State.ON_HASH,					// HASH
-    	 State.ON_PUNCT, 			// OPEN_PAREN
-    	 State.ON_PUNCT, 				// CLOSE_PAREN
-    	 State.ON_PUNCT, 				// OPEN_ANGLE
-    	 State.ON_PUNCT,				// CLOSE_ANGLE
-    	 State.BETWEEN_TOKENS,			// SPACE
-         State.ON_HYPHEN,       // HYPHEN
-    	 State.ON_UNKNOWN,					// UNKNOWN
-     	},
-    	// ON_AMPERSAND
-    	{State.IN_WORD,				// ALPHA
-    	 State.ON_DIGIT,				// DIGIT
-    	 State.ON_EPOINT_OR_QMARK,		// QMARK
-    	 State.ON_EPOINT_OR_QMARK,		// EPOINT
-    	 State.ON_DIGIT,					// DECIMAL
-    	 State.ON_PUNCT, 			// PERIOD
-    	 State.ON_PUNCT,					// COLON
-    	 State.ON_PUNCT,					// SEMI-COLON
-    	 State.ON_AMPERSAND,			// AMPERSAND
-    	 State.ON_PUNCT,			// PUNCT 
-    	 State.ON_AT,					// AT_SIGN
-    	 State.ON_HASH,					// HASH
-    	 State.ON_PUNCT, 				// OPEN_PAREN
-    	 State.ON_PUNCT, 				// CLOSE_PAREN
-    	 State.ON_PUNCT, 				// OPEN_ANGLE
-    	 State.ON_PUNCT,				// CLOSE_ANGLE
-    	 State.BETWEEN_TOKENS,			// SPACE
-         State.ON_HYPHEN,       // HYPHEN
-    	 State.ON_UNKNOWN,					// UNKNOWN
-     	},
-    	// ON_DOT
-    	{State.IN_WORD,				// ALPHA
-    	 State.ON_DIGIT,				// DIGIT
-    	 State.ON_EPOINT_OR_QMARK,		// QMARK
-    	 State.ON_EPOINT_OR_QMARK,		// EPOINT
-    	 State.ON_ELLIPSIS,					// DECIMAL
-    	 State.ON_ELLIPSIS, 			// PERIOD
-    	 State.ON_PUNCT,					// COLON
-    	 State.ON_PUNCT,					// SEMI-COLON
-    	 State.ON_AMPERSAND,			// AMPERSAND
-    	 State.ON_PUNCT,			// PUNCT 
-    	 State.ON_AT,					// AT_SIGN
-    	 State.ON_HASH,					// HASH
-    	 State.ON_PUNCT, 				// OPEN_PAREN
-    	 State.ON_PUNCT, 				// CLOSE_PAREN
-    	 State.ON_PUNCT, 				// OPEN_ANGLE
-    	 State.ON_PUNCT,				// CLOSE_ANGLE
-    	 State.BETWEEN_TOKENS,			// SPACE
-         State.ON_HYPHEN,       // HYPHEN
-    	 State.ON_UNKNOWN,					// UNKNOWN
-     	},
-    	// ON_PUNCT
-    	{State.IN_WORD, 				// ALPHA
-    	 State.ON_DIGIT, 				// DIGIT
-    	 State.ON_EPOINT_OR_QMARK, 		// QMARK
-    	 State.ON_EPOINT_OR_QMARK, 		// EPOINT
-    	 State.ON_DIGIT, 					// DECIMAL
-    	 State.ON_PUNCT, 			// PERIOD
-    	 State.ON_PUNCT, 		// COLON
-    	 State.ON_PUNCT, 		// SEMI-COLON
-    	 State.ON_AMPERSAND,			// AMPERSAND
-    	 State.ON_PUNCT,			// PUNCT 
-    	 State.ON_AT,					// AT_SIGN
-    	 State.ON_HASH,					// HASH
-    	 State.ON_PUNCT,		// OPEN_PAREN
-    	 State.ON_PUNCT,		// CLOSE_PAREN
-    	 State.ON_PUNCT,		// OPEN_ANGLE
-    	 State.ON_PUNCT,		// CLOSE_ANGLE
-    	 State.ON_PUNCT,			// SPACE
-         State.ON_HYPHEN,       // HYPHEN
-    	 State.ON_UNKNOWN},					// UNKNOWN
-        // ON_HYPHEN
-        {State.IN_WORD,                 // ALPHA
-         State.ON_DIGIT,                // DIGIT
-         State.ON_EPOINT_OR_QMARK,      // QMARK
-         State.ON_EPOINT_OR_QMARK,      // EPOINT
-         State.ON_DIGIT,                    // DECIMAL
-         State.ON_PUNCT,            // PERIOD
-         State.ON_PUNCT,        // COLON
-         State.ON_PUNCT,        // SEMI-COLON
-         State.ON_AMPERSAND,            // AMPERSAND
-         State.ON_PUNCT,            // PUNCT
-         State.ON_AT,                   // AT_SIGN
-         State.ON_HASH,                 // HASH
-         State.ON_PUNCT,        // OPEN_PAREN
-         State.ON_PUNCT,        // CLOSE_PAREN
-         State.ON_PUNCT,        // OPEN_ANGLE
-         State.ON_PUNCT,        // CLOSE_ANGLE
-         State.ON_PUNCT,            // SPACE
-         State.ON_HYPHEN,       // HYPHEN
-         State.ON_UNKNOWN},                 // UNKNOWN
-    	// IN_WORD
-     	{State.IN_WORD,				// ALPHA
-       	 State.IN_WORD,				// DIGIT
-       	 State.ON_EPOINT_OR_QMARK,		// QMARK
-       	 State.ON_EPOINT_OR_QMARK,		// EPOINT
-       	 State.ON_DIGIT,					// DECIMAL
-       	 State.ON_DOT, 			// PERIOD
-       	 State.ON_PUNCT,			// COLON
-       	 State.ON_PUNCT,			// SEMI-COLON
-    	 State.IN_WORD,				// AMPERSAND
-    	 State.ON_PUNCT,			// PUNCT 
-       	 State.ON_AT,					// AT_SIGN
-       	 State.ON_HASH,					// HASH
-       	 State.ON_PUNCT, 		// OPEN_PAREN
-       	 State.ON_PUNCT, 		// CLOSE_PAREN
-       	 State.ON_PUNCT, 		// OPEN_ANGLE
-       	 State.ON_PUNCT,		// CLOSE_ANGLE
-       	 State.BETWEEN_TOKENS,			// SPACE
-         State.ON_HYPHEN,       // HYPHEN
-       	 State.ON_UNKNOWN,					// UNKNOWN
-        },    
-     	// IN_AT_NAME
-     	{State.IN_AT_NAME,				// ALPHA
-       	 State.IN_AT_NAME,				// DIGIT
-    	 State.ON_EPOINT_OR_QMARK,		// QMARK
-    	 State.ON_EPOINT_OR_QMARK,		// EPOINT
-    	 State.ON_DIGIT,					// DECIMAL
-    	 State.ON_DOT, 			// PERIOD
-    	 State.ON_PUNCT,					// COLON
-    	 State.ON_PUNCT,					// SEMI-COLON
-    	 State.ON_AMPERSAND,			// AMPERSAND
-    	 State.ON_PUNCT,			// PUNCT 
-    	 State.ON_AT,					// AT_SIGN
-    	 State.ON_HASH,					// HASH
-    	 State.ON_PUNCT, 			// OPEN_PAREN
-    	 State.ON_PUNCT,		// CLOSE_PAREN
-    	 State.ON_PUNCT,		// OPEN_ANGLE
-    	 State.ON_PUNCT,		// CLOSE_ANGLE
-    	 State.BETWEEN_TOKENS,			// SPACE
-         State.ON_HYPHEN,       // HYPHEN
-    	 State.ON_UNKNOWN,					// UNKNOWN
-     	},
-    	// ON_HASH_TAG
-    	{State.IN_HASH_TAG,				// ALPHA
-    	 State.IN_HASH_TAG,				// DIGIT
-    	 State.ON_EPOINT_OR_QMARK,		// QMARK
-    	 State.ON_EPOINT_OR_QMARK,		// EPOINT
-    	 State.ON_DIGIT,					// DECIMAL
-    	 State.ON_DOT, 			// PERIOD
-    	 State.ON_PUNCT,			// COLON
-    	 State.ON_PUNCT,			// SEMI-COLON
-    	 State.ON_AMPERSAND,			// AMPERSAND
-    	 State.ON_AT,					// AT_SIGN
-    	 State.ON_PUNCT,			// PUNCT 
-    	 State.ON_HASH,					// HASH
-    	 State.ON_PUNCT, 		// OPEN_PAREN
-    	 State.ON_PUNCT, 		// CLOSE_PAREN
-    	 State.ON_PUNCT, 		// OPEN_ANGLE
-    	 State.ON_PUNCT,		// CLOSE_ANGLE
-    	 State.BETWEEN_TOKENS,			// SPACE
-         State.ON_HYPHEN,       // HYPHEN
-    	 State.ON_UNKNOWN,					// UNKNOWN
-     	},
-    	// ON_DIGIT
-    	{State.ON_DIGIT, 				// ALPHA
-    	 State.ON_DIGIT, 				// DIGIT
-    	 State.ON_EPOINT_OR_QMARK, 		// QMARK
-    	 State.ON_EPOINT_OR_QMARK, 		// EPOINT
-    	 State.ON_DIGIT, 				// DECIMAL
-    	 State.ON_PUNCT, 				// PERIOD
-    	 State.ON_DIGIT, 				// COLON
-    	 State.BETWEEN_TOKENS, 		// SEMI-COLON
-    	 State.ON_AMPERSAND,			// AMPERSAND
-    	 State.ON_PUNCT,			// PUNCT 
-    	 State.ON_AT,					// AT_SIGN
-    	 State.ON_HASH,					// HASH
-    	 State.ON_PUNCT,		// OPEN_PAREN
-    	 State.ON_PUNCT,		// CLOSE_PAREN
-    	 State.ON_PUNCT,		// OPEN_ANGLE
-    	 State.ON_PUNCT,		// CLOSE_ANGLE
-    	 State.BETWEEN_TOKENS,			// SPACE
-         State.ON_HYPHEN,       // HYPHEN
-    	 State.ON_UNKNOWN},					// UNKNOWN
-     	// BETWEEN_TOKENS
-    	{State.IN_WORD, 				// ALPHA
-       	 State.ON_DIGIT, 				// DIGIT
-       	 State.ON_EPOINT_OR_QMARK, 		// QMARK
-       	 State.ON_EPOINT_OR_QMARK, 		// EPOINT
-       	 State.ON_DIGIT, 					// DECIMAL
-       	 State.ON_DOT, 			// PERIOD
-       	 State.ON_PUNCT, 				// COLON
-       	 State.ON_PUNCT, 				// SEMI-COLON
-    	 State.ON_AMPERSAND,			// AMPERSAND
-    	 State.ON_PUNCT,			// PUNCT 
-       	 State.ON_AT,					// AT_SIGN
-       	 State.ON_HASH,					// HASH
-       	 State.ON_PUNCT,			// OPEN_PAREN
-       	 State.ON_PUNCT,				// CLOSE_PAREN
-       	 State.ON_PUNCT,				// OPEN_ANGLE
-       	 State.ON_PUNCT,				// CLOSE_ANGLE
-       	 State.BETWEEN_TOKENS,			// SPACE
-         State.ON_HYPHEN,         // HYPHEN
-       	 State.ON_UNKNOWN},					// UNKNOWN
-       	// ON_EPOINT_OR_QMARK
-      	{State.IN_WORD, 				// ALPHA
-       	 State.ON_DIGIT, 				// DIGIT
-       	 State.ON_EPOINT_OR_QMARK, 		// QMARK
-       	 State.ON_EPOINT_OR_QMARK, 		// EPOINT
-       	 State.ON_DIGIT, 					// DECIMAL
-       	 State.ON_PUNCT, 			// PERIOD
-       	 State.ON_PUNCT, 				// COLON
-       	 State.ON_PUNCT, 				// SEMI-COLON
-    	 State.ON_AMPERSAND,			// AMPERSAND
-    	 State.ON_PUNCT,			// PUNCT 
-       	 State.ON_AT,					// AT_SIGN
-       	 State.ON_HASH,					// HASH
-       	 State.ON_PUNCT,			// OPEN_PAREN
-       	 State.ON_PUNCT,			// CLOSE_PAREN
-       	 State.ON_PUNCT,			// OPEN_ANGLE
-       	 State.ON_PUNCT,			// CLOSE_ANGLE
-       	 State.BETWEEN_TOKENS,			// SPACE
-         State.ON_HYPHEN,         // HYPHEN
-       	 State.ON_UNKNOWN},					// UNKNOWN
-        // ON_ELLIPSIS
-       	{State.IN_WORD, 				// ALPHA
-         State.ON_DIGIT, 				// DIGIT
-         State.ON_EPOINT_OR_QMARK, 		// QMARK
-         State.ON_EPOINT_OR_QMARK, 		// EPOINT
-         State.ON_ELLIPSIS, 			// DECIMAL
-         State.ON_ELLIPSIS, 			// PERIOD
-         State.ON_PUNCT, 				// COLON
-         State.ON_PUNCT, 				// SEMI-COLON
-     	 State.ON_AMPERSAND,			// AMPERSAND
-    	 State.ON_PUNCT,			// PUNCT 
-         State.ON_AT,					// AT_SIGN
-         State.ON_HASH,					// HASH
-         State.ON_PUNCT,			// OPEN_PAREN
-         State.ON_PUNCT,			// CLOSE_PAREN
-         State.ON_PUNCT,			// OPEN_ANGLE
-         State.ON_PUNCT,			// CLOSE_ANGLE
-         State.BETWEEN_TOKENS,			// SPACE
-         State.ON_HYPHEN,         // HYPHEN
-         State.ON_UNKNOWN},					// UNKNOWN
-         // URL
-        {State.URL,						// ALPHA
-         State.URL,						// DIGIT
-         State.URL,						// QMARK
-         State.URL,						// EPOINT
-         State.URL,						// DECIMAL
-         State.URL, 					// PERIOD
-         State.URL,						// COLON
-         State.URL,			// SEMI-COLON
-         State.URL,			// AMPERSAND
-     	 State.URL,			// PUNCT 
-         State.URL,						// AT_SIGN
-         State.URL,						// HASH
-         State.URL, 		// OPEN_PAREN
-         State.URL, 		// CLOSE_PAREN
-         State.ON_PUNCT, 		// OPEN_ANGLE
-         State.ON_PUNCT,		// CLOSE_ANGLE
-         State.BETWEEN_TOKENS,			// SPACE
-         State.ON_HYPHEN,         // HYPHEN
-         State.ON_UNKNOWN,				// UNKNOWN
-         },    
-       	// ON_UNKNOWN
-      	{State.IN_WORD, 				// ALPHA
-       	 State.ON_DIGIT, 				// DIGIT
-       	 State.ON_EPOINT_OR_QMARK,      // QMARK
-       	 State.ON_EPOINT_OR_QMARK,      // EPOINT
-       	 State.ON_DIGIT, 					// DECIMAL
-       	 State.ON_DOT, 			// PERIOD
-       	 State.ON_PUNCT,			// COLON
-       	 State.ON_PUNCT,			// SEMI-COLON
-    	 State.ON_AMPERSAND,			// AMPERSAND
-    	 State.ON_PUNCT,			// PUNCT 
-       	 State.ON_AT,					// AT_SIGN
-       	 State.ON_HASH,					// HASH
-       	 State.ON_PUNCT,		// OPEN_PAREN
-       	 State.ON_PUNCT,		// CLOSE_PAREN
-       	 State.ON_PUNCT,		// OPEN_ANGLE
-       	 State.ON_PUNCT,		// CLOSE_ANGLE
-       	 State.BETWEEN_TOKENS,			// SPACE
-         State.ON_HYPHEN,         // HYPHEN
-       	 State.ON_UNKNOWN},					// UNKNOWN
-        // ON_ERROR
-       	{State.START, 					// ALPHA
-       	 State.START, 					// DIGIT
-       	 State.START, 					// QMARK
-       	 State.START, 					// EPOINT
-       	 State.START, 					// DECIMAL
-       	 State.START, 					// PERIOD
-      	 State.START, 					// COLON
-       	 State.START, 					// SEMI-COLON
-    	 State.START,					// AMPERSAND
-    	 State.ON_PUNCT,			// PUNCT 
-       	 State.START,					// AT_SIGN
-       	 State.START,					// HASH
-       	 State.START,					// OPEN_PAREN
-       	 State.START,					// CLOSE_PAREN
-       	 State.START,					// OPEN_ANGLE
-       	 State.START,					// CLOSE_ANGLE
-       	 State.START,					// SPACE
-         State.ON_HYPHEN,         // HYPHEN
-       	 State.ON_UNKNOWN},					// UNKNOWN
+    /*
+     * The transitions of the FSA. Each row starts with the state it belongs to and then gives the next state
+     * for every symbol of the alphabet. The rows are compiled into TRANSITIONS when the class is loaded, and
+     * compile() rejects a table that misses a state or a symbol or names one twice.
+     */
+    private static final Object[][] stateTable = {
+        {State.START,
+            Alphabet.ALPHA,          State.IN_WORD,
+            Alphabet.DIGIT,          State.ON_DIGIT,
+            Alphabet.QMARK,          State.ON_EPOINT_OR_QMARK,
+            Alphabet.EPOINT,         State.ON_EPOINT_OR_QMARK,
+            Alphabet.DECIMAL,        State.ON_DOT,
+            Alphabet.PERIOD,         State.ON_DOT,
+            Alphabet.COLON,          State.ON_PUNCT,
+            Alphabet.SEMICOLON,      State.ON_PUNCT,
+            Alphabet.AMPERSAND,      State.ON_AMPERSAND,
+            Alphabet.PUNCT,          State.ON_PUNCT,
+            Alphabet.AT_SIGN,        State.ON_AT,
+            Alphabet.HASH,           State.ON_HASH,
+            Alphabet.OPEN_PAREN,     State.ON_PUNCT,
+            Alphabet.CLOSE_PAREN,    State.ON_PUNCT,
+            Alphabet.OPEN_ANGLE,     State.ON_PUNCT,
+            Alphabet.CLOSE_ANGLE,    State.ON_PUNCT,
+            Alphabet.SPACE,          State.BETWEEN_TOKENS,
+            Alphabet.HYPHEN,         State.ON_HYPHEN,
+            Alphabet.UNKNOWN,        State.ON_UNKNOWN},
+        {State.ON_HASH,
+            Alphabet.ALPHA,          State.IN_HASH_TAG,
+            Alphabet.DIGIT,          State.IN_HASH_TAG,
+            Alphabet.QMARK,          State.ON_EPOINT_OR_QMARK,
+            Alphabet.EPOINT,         State.ON_EPOINT_OR_QMARK,
+            Alphabet.DECIMAL,        State.ON_DIGIT,
+            Alphabet.PERIOD,         State.ON_PUNCT,
+            Alphabet.COLON,          State.ON_PUNCT,
+            Alphabet.SEMICOLON,      State.ON_PUNCT,
+            Alphabet.AMPERSAND,      State.ON_AMPERSAND,
+            Alphabet.PUNCT,          State.ON_PUNCT,
+            Alphabet.AT_SIGN,        State.ON_AT,
+            Alphabet.HASH,           State.ON_HASH,
+            Alphabet.OPEN_PAREN,     State.ON_PUNCT,
+            Alphabet.CLOSE_PAREN,    State.ON_PUNCT,
+            Alphabet.OPEN_ANGLE,     State.ON_PUNCT,
+            Alphabet.CLOSE_ANGLE,    State.ON_PUNCT,
+            Alphabet.SPACE,          State.BETWEEN_TOKENS,
+            Alphabet.HYPHEN,         State.ON_HYPHEN,
+            Alphabet.UNKNOWN,        State.ON_UNKNOWN},
+        {State.ON_AT,
+            Alphabet.ALPHA,          State.IN_AT_NAME,
+            Alphabet.DIGIT,          State.IN_AT_NAME,
+            Alphabet.QMARK,          State.ON_EPOINT_OR_QMARK,
+            Alphabet.EPOINT,         State.ON_EPOINT_OR_QMARK,
+            Alphabet.DECIMAL,        State.ON_DIGIT,
+            Alphabet.PERIOD,         State.ON_PUNCT,
+            Alphabet.COLON,          State.ON_PUNCT,
+            Alphabet.SEMICOLON,      State.ON_PUNCT,
+            Alphabet.AMPERSAND,      State.ON_AMPERSAND,
+            Alphabet.PUNCT,          State.ON_PUNCT,
+            Alphabet.AT_SIGN,        State.ON_AT,
+            Alphabet.HASH,           State.ON_HASH,
+            Alphabet.OPEN_PAREN,     State.ON_PUNCT,
+            Alphabet.CLOSE_PAREN,    State.ON_PUNCT,
+            Alphabet.OPEN_ANGLE,     State.ON_PUNCT,
+            Alphabet.CLOSE_ANGLE,    State.ON_PUNCT,
+            Alphabet.SPACE,          State.BETWEEN_TOKENS,
+            Alphabet.HYPHEN,         State.ON_HYPHEN,
+            Alphabet.UNKNOWN,        State.ON_UNKNOWN},
+        {State.ON_AMPERSAND,
+            Alphabet.ALPHA,          State.IN_WORD,
+            Alphabet.DIGIT,          State.ON_DIGIT,
+            Alphabet.QMARK,          State.ON_EPOINT_OR_QMARK,
+            Alphabet.EPOINT,         State.ON_EPOINT_OR_QMARK,
+            Alphabet.DECIMAL,        State.ON_DIGIT,
+            Alphabet.PERIOD,         State.ON_PUNCT,
+            Alphabet.COLON,          State.ON_PUNCT,
+            Alphabet.SEMICOLON,      State.ON_PUNCT,
+            Alphabet.AMPERSAND,      State.ON_AMPERSAND,
+            Alphabet.PUNCT,          State.ON_PUNCT,
+            Alphabet.AT_SIGN,        State.ON_AT,
+            Alphabet.HASH,           State.ON_HASH,
+            Alphabet.OPEN_PAREN,     State.ON_PUNCT,
+            Alphabet.CLOSE_PAREN,    State.ON_PUNCT,
+            Alphabet.OPEN_ANGLE,     State.ON_PUNCT,
+            Alphabet.CLOSE_ANGLE,    State.ON_PUNCT,
+            Alphabet.SPACE,          State.BETWEEN_TOKENS,
+            Alphabet.HYPHEN,         State.ON_HYPHEN,
+            Alphabet.UNKNOWN,        State.ON_UNKNOWN},
+        {State.ON_DOT,
+            Alphabet.ALPHA,          State.IN_WORD,
+            Alphabet.DIGIT,          State.ON_DIGIT,
+            Alphabet.QMARK,          State.ON_EPOINT_OR_QMARK,
+            Alphabet.EPOINT,         State.ON_EPOINT_OR_QMARK,
+            Alphabet.DECIMAL,        State.ON_ELLIPSIS,
+            Alphabet.PERIOD,         State.ON_ELLIPSIS,
+            Alphabet.COLON,          State.ON_PUNCT,
+            Alphabet.SEMICOLON,      State.ON_PUNCT,
+            Alphabet.AMPERSAND,      State.ON_AMPERSAND,
+            Alphabet.PUNCT,          State.ON_PUNCT,
+            Alphabet.AT_SIGN,        State.ON_AT,
+            Alphabet.HASH,           State.ON_HASH,
+            Alphabet.OPEN_PAREN,     State.ON_PUNCT,
+            Alphabet.CLOSE_PAREN,    State.ON_PUNCT,
+            Alphabet.OPEN_ANGLE,     State.ON_PUNCT,
+            Alphabet.CLOSE_ANGLE,    State.ON_PUNCT,
+            Alphabet.SPACE,          State.BETWEEN_TOKENS,
+            Alphabet.HYPHEN,         State.ON_HYPHEN,
+            Alphabet.UNKNOWN,        State.ON_UNKNOWN},
+        {State.ON_PUNCT,
+            Alphabet.ALPHA,          State.IN_WORD,
+            Alphabet.DIGIT,          State.ON_DIGIT,
+            Alphabet.QMARK,          State.ON_EPOINT_OR_QMARK,
+            Alphabet.EPOINT,         State.ON_EPOINT_OR_QMARK,
+            Alphabet.DECIMAL,        State.ON_DIGIT,
+            Alphabet.PERIOD,         State.ON_PUNCT,
+            Alphabet.COLON,          State.ON_PUNCT,
+            Alphabet.SEMICOLON,      State.ON_PUNCT,
+            Alphabet.AMPERSAND,      State.ON_AMPERSAND,
+            Alphabet.PUNCT,          State.ON_PUNCT,
+            Alphabet.AT_SIGN,        State.ON_AT,
+            Alphabet.HASH,           State.ON_HASH,
+            Alphabet.OPEN_PAREN,     State.ON_PUNCT,
+            Alphabet.CLOSE_PAREN,    State.ON_PUNCT,
+            Alphabet.OPEN_ANGLE,     State.ON_PUNCT,
+            Alphabet.CLOSE_ANGLE,    State.ON_PUNCT,
+            Alphabet.SPACE,          State.ON_PUNCT,
+            Alphabet.HYPHEN,         State.ON_HYPHEN,
+            Alphabet.UNKNOWN,        State.ON_UNKNOWN},
+        {State.ON_HYPHEN,
+            Alphabet.ALPHA,          State.IN_WORD,
+            Alphabet.DIGIT,          State.ON_DIGIT,
+            Alphabet.QMARK,          State.ON_EPOINT_OR_QMARK,
+            Alphabet.EPOINT,         State.ON_EPOINT_OR_QMARK,
+            Alphabet.DECIMAL,        State.ON_DIGIT,
+            Alphabet.PERIOD,         State.ON_PUNCT,
+            Alphabet.COLON,          State.ON_PUNCT,
+            Alphabet.SEMICOLON,      State.ON_PUNCT,
+            Alphabet.AMPERSAND,      State.ON_AMPERSAND,
+            Alphabet.PUNCT,          State.ON_PUNCT,
+            Alphabet.AT_SIGN,        State.ON_AT,
+            Alphabet.HASH,           State.ON_HASH,
+            Alphabet.OPEN_PAREN,     State.ON_PUNCT,
+            Alphabet.CLOSE_PAREN,    State.ON_PUNCT,
+            Alphabet.OPEN_ANGLE,     State.ON_PUNCT,
+            Alphabet.CLOSE_ANGLE,    State.ON_PUNCT,
+            Alphabet.SPACE,          State.ON_PUNCT,
+            Alphabet.HYPHEN,         State.ON_HYPHEN,
+            Alphabet.UNKNOWN,        State.ON_UNKNOWN},
+        {State.IN_WORD,
+            Alphabet.ALPHA,          State.IN_WORD,
+            Alphabet.DIGIT,          State.IN_WORD,
+            Alphabet.QMARK,          State.ON_EPOINT_OR_QMARK,
+            Alphabet.EPOINT,         State.ON_EPOINT_OR_QMARK,
+            Alphabet.DECIMAL,        State.ON_DIGIT,
+            Alphabet.PERIOD,         State.ON_DOT,
+            Alphabet.COLON,          State.ON_PUNCT,
+            Alphabet.SEMICOLON,      State.ON_PUNCT,
+            Alphabet.AMPERSAND,      State.IN_WORD,
+            Alphabet.PUNCT,          State.ON_PUNCT,
+            Alphabet.AT_SIGN,        State.ON_AT,
+            Alphabet.HASH,           State.ON_HASH,
+            Alphabet.OPEN_PAREN,     State.ON_PUNCT,
+            Alphabet.CLOSE_PAREN,    State.ON_PUNCT,
+            Alphabet.OPEN_ANGLE,     State.ON_PUNCT,
+            Alphabet.CLOSE_ANGLE,    State.ON_PUNCT,
+            Alphabet.SPACE,          State.BETWEEN_TOKENS,
+            Alphabet.HYPHEN,         State.ON_HYPHEN,
+            Alphabet.UNKNOWN,        State.ON_UNKNOWN},
+        {State.IN_AT_NAME,
+            Alphabet.ALPHA,          State.IN_AT_NAME,
+            Alphabet.DIGIT,          State.IN_AT_NAME,
+            Alphabet.QMARK,          State.ON_EPOINT_OR_QMARK,
+            Alphabet.EPOINT,         State.ON_EPOINT_OR_QMARK,
+            Alphabet.DECIMAL,        State.ON_DIGIT,
+            Alphabet.PERIOD,         State.ON_DOT,
+            Alphabet.COLON,          State.ON_PUNCT,
+            Alphabet.SEMICOLON,      State.ON_PUNCT,
+            Alphabet.AMPERSAND,      State.ON_AMPERSAND,
+            Alphabet.PUNCT,          State.ON_PUNCT,
+            Alphabet.AT_SIGN,        State.ON_AT,
+            Alphabet.HASH,           State.ON_HASH,
+            Alphabet.OPEN_PAREN,     State.ON_PUNCT,
+            Alphabet.CLOSE_PAREN,    State.ON_PUNCT,
+            Alphabet.OPEN_ANGLE,     State.ON_PUNCT,
+            Alphabet.CLOSE_ANGLE,    State.ON_PUNCT,
+            Alphabet.SPACE,          State.BETWEEN_TOKENS,
+            Alphabet.HYPHEN,         State.ON_HYPHEN,
+            Alphabet.UNKNOWN,        State.ON_UNKNOWN},
+        {State.IN_HASH_TAG,
+            Alphabet.ALPHA,          State.IN_HASH_TAG,
+            Alphabet.DIGIT,          State.IN_HASH_TAG,
+            Alphabet.QMARK,          State.ON_EPOINT_OR_QMARK,
+            Alphabet.EPOINT,         State.ON_EPOINT_OR_QMARK,
+            Alphabet.DECIMAL,        State.ON_DIGIT,
+            Alphabet.PERIOD,         State.ON_DOT,
+            Alphabet.COLON,          State.ON_PUNCT,
+            Alphabet.SEMICOLON,      State.ON_PUNCT,
+            Alphabet.AMPERSAND,      State.ON_AMPERSAND,
+            Alphabet.AT_SIGN,        State.ON_AT,
+            Alphabet.PUNCT,          State.ON_PUNCT,
+            Alphabet.HASH,           State.ON_HASH,
+            Alphabet.OPEN_PAREN,     State.ON_PUNCT,
+            Alphabet.CLOSE_PAREN,    State.ON_PUNCT,
+            Alphabet.OPEN_ANGLE,     State.ON_PUNCT,
+            Alphabet.CLOSE_ANGLE,    State.ON_PUNCT,
+            Alphabet.SPACE,          State.BETWEEN_TOKENS,
+            Alphabet.HYPHEN,         State.ON_HYPHEN,
+            Alphabet.UNKNOWN,        State.ON_UNKNOWN},
+        {State.ON_DIGIT,
+            Alphabet.ALPHA,          State.ON_DIGIT,
+            Alphabet.DIGIT,          State.ON_DIGIT,
+            Alphabet.QMARK,          State.ON_EPOINT_OR_QMARK,
+            Alphabet.EPOINT,         State.ON_EPOINT_OR_QMARK,
+            Alphabet.DECIMAL,        State.ON_DIGIT,
+            Alphabet.PERIOD,         State.ON_PUNCT,
+            Alphabet.COLON,          State.ON_DIGIT,
+            Alphabet.SEMICOLON,      State.BETWEEN_TOKENS,
+            Alphabet.AMPERSAND,      State.ON_AMPERSAND,
+            Alphabet.PUNCT,          State.ON_PUNCT,
+            Alphabet.AT_SIGN,        State.ON_AT,
+            Alphabet.HASH,           State.ON_HASH,
+            Alphabet.OPEN_PAREN,     State.ON_PUNCT,
+            Alphabet.CLOSE_PAREN,    State.ON_PUNCT,
+            Alphabet.OPEN_ANGLE,     State.ON_PUNCT,
+            Alphabet.CLOSE_ANGLE,    State.ON_PUNCT,
+            Alphabet.SPACE,          State.BETWEEN_TOKENS,
+            Alphabet.HYPHEN,         State.ON_HYPHEN,
+            Alphabet.UNKNOWN,        State.ON_UNKNOWN},
+        {State.BETWEEN_TOKENS,
+            Alphabet.ALPHA,          State.IN_WORD,
+            Alphabet.DIGIT,          State.ON_DIGIT,
+            Alphabet.QMARK,          State.ON_EPOINT_OR_QMARK,
+            Alphabet.EPOINT,         State.ON_EPOINT_OR_QMARK,
+            Alphabet.DECIMAL,        State.ON_DIGIT,
+            Alphabet.PERIOD,         State.ON_DOT,
+            Alphabet.COLON,          State.ON_PUNCT,
+            Alphabet.SEMICOLON,      State.ON_PUNCT,
+            Alphabet.AMPERSAND,      State.ON_AMPERSAND,
+            Alphabet.PUNCT,          State.ON_PUNCT,
+            Alphabet.AT_SIGN,        State.ON_AT,
+            Alphabet.HASH,           State.ON_HASH,
+            Alphabet.OPEN_PAREN,     State.ON_PUNCT,
+            Alphabet.CLOSE_PAREN,    State.ON_PUNCT,
+            Alphabet.OPEN_ANGLE,     State.ON_PUNCT,
+            Alphabet.CLOSE_ANGLE,    State.ON_PUNCT,
+            Alphabet.SPACE,          State.BETWEEN_TOKENS,
+            Alphabet.HYPHEN,         State.ON_HYPHEN,
+            Alphabet.UNKNOWN,        State.ON_UNKNOWN},
+        {State.ON_EPOINT_OR_QMARK,
+            Alphabet.ALPHA,          State.IN_WORD,
+            Alphabet.DIGIT,          State.ON_DIGIT,
+            Alphabet.QMARK,          State.ON_EPOINT_OR_QMARK,
+            Alphabet.EPOINT,         State.ON_EPOINT_OR_QMARK,
+            Alphabet.DECIMAL,        State.ON_DIGIT,
+            Alphabet.PERIOD,         State.ON_PUNCT,
+            Alphabet.COLON,          State.ON_PUNCT,
+            Alphabet.SEMICOLON,      State.ON_PUNCT,
+            Alphabet.AMPERSAND,      State.ON_AMPERSAND,
+            Alphabet.PUNCT,          State.ON_PUNCT,
+            Alphabet.AT_SIGN,        State.ON_AT,
+            Alphabet.HASH,           State.ON_HASH,
+            Alphabet.OPEN_PAREN,     State.ON_PUNCT,
+            Alphabet.CLOSE_PAREN,    State.ON_PUNCT,
+            Alphabet.OPEN_ANGLE,     State.ON_PUNCT,
+            Alphabet.CLOSE_ANGLE,    State.ON_PUNCT,
+            Alphabet.SPACE,          State.BETWEEN_TOKENS,
+            Alphabet.HYPHEN,         State.ON_HYPHEN,
+            Alphabet.UNKNOWN,        State.ON_UNKNOWN},
+        {State.ON_ELLIPSIS,
+            Alphabet.ALPHA,          State.IN_WORD,
+            Alphabet.DIGIT,          State.ON_DIGIT,
+            Alphabet.QMARK,          State.ON_EPOINT_OR_QMARK,
+            Alphabet.EPOINT,         State.ON_EPOINT_OR_QMARK,
+            Alphabet.DECIMAL,        State.ON_ELLIPSIS,
+            Alphabet.PERIOD,         State.ON_ELLIPSIS,
+            Alphabet.COLON,          State.ON_PUNCT,
+            Alphabet.SEMICOLON,      State.ON_PUNCT,
+            Alphabet.AMPERSAND,      State.ON_AMPERSAND,
+            Alphabet.PUNCT,          State.ON_PUNCT,
+            Alphabet.AT_SIGN,        State.ON_AT,
+            Alphabet.HASH,           State.ON_HASH,
+            Alphabet.OPEN_PAREN,     State.ON_PUNCT,
+            Alphabet.CLOSE_PAREN,    State.ON_PUNCT,
+            Alphabet.OPEN_ANGLE,     State.ON_PUNCT,
+            Alphabet.CLOSE_ANGLE,    State.ON_PUNCT,
+            Alphabet.SPACE,          State.BETWEEN_TOKENS,
+            Alphabet.HYPHEN,         State.ON_HYPHEN,
+            Alphabet.UNKNOWN,        State.ON_UNKNOWN},
+        {State.URL,
+            Alphabet.ALPHA,          State.URL,
+            Alphabet.DIGIT,          State.URL,
+            Alphabet.QMARK,          State.URL,
+            Alphabet.EPOINT,         State.URL,
+            Alphabet.DECIMAL,        State.URL,
+            Alphabet.PERIOD,         State.URL,
+            Alphabet.COLON,          State.URL,
+            Alphabet.SEMICOLON,      State.URL,
+            Alphabet.AMPERSAND,      State.URL,
+            Alphabet.PUNCT,          State.URL,
+            Alphabet.AT_SIGN,        State.URL,
+            Alphabet.HASH,           State.URL,
+            Alphabet.OPEN_PAREN,     State.URL,
+            Alphabet.CLOSE_PAREN,    State.URL,
+            Alphabet.OPEN_ANGLE,     State.ON_PUNCT,
+            Alphabet.CLOSE_ANGLE,    State.ON_PUNCT,
+            Alphabet.SPACE,          State.BETWEEN_TOKENS,
+            Alphabet.HYPHEN,         State.ON_HYPHEN,
+            Alphabet.UNKNOWN,        State.ON_UNKNOWN},
+        {State.ON_UNKNOWN,
+            Alphabet.ALPHA,          State.IN_WORD,
+            Alphabet.DIGIT,          State.ON_DIGIT,
+            Alphabet.QMARK,          State.ON_EPOINT_OR_QMARK,
+            Alphabet.EPOINT,         State.ON_EPOINT_OR_QMARK,
+            Alphabet.DECIMAL,        State.ON_DIGIT,
+            Alphabet.PERIOD,         State.ON_DOT,
+            Alphabet.COLON,          State.ON_PUNCT,
+            Alphabet.SEMICOLON,      State.ON_PUNCT,
+            Alphabet.AMPERSAND,      State.ON_AMPERSAND,
+            Alphabet.PUNCT,          State.ON_PUNCT,
+            Alphabet.AT_SIGN,        State.ON_AT,
+            Alphabet.HASH,           State.ON_HASH,
+            Alphabet.OPEN_PAREN,     State.ON_PUNCT,
+            Alphabet.CLOSE_PAREN,    State.ON_PUNCT,
+            Alphabet.OPEN_ANGLE,     State.ON_PUNCT,
+            Alphabet.CLOSE_ANGLE,    State.ON_PUNCT,
+            Alphabet.SPACE,          State.BETWEEN_TOKENS,
+            Alphabet.HYPHEN,         State.ON_HYPHEN,
+            Alphabet.UNKNOWN,        State.ON_UNKNOWN},
+        {State.ERROR,
+            Alphabet.ALPHA,          State.START,
+            Alphabet.DIGIT,          State.START,
+            Alphabet.QMARK,          State.START,
+            Alphabet.EPOINT,         State.START,
+            Alphabet.DECIMAL,        State.START,
+            Alphabet.PERIOD,         State.START,
+            Alphabet.COLON,          State.START,
+            Alphabet.SEMICOLON,      State.START,
+            Alphabet.AMPERSAND,      State.START,
+            Alphabet.PUNCT,          State.ON_PUNCT,
+            Alphabet.AT_SIGN,        State.START,
+            Alphabet.HASH,           State.START,
+            Alphabet.OPEN_PAREN,     State.START,
+            Alphabet.CLOSE_PAREN,    State.START,
+            Alphabet.OPEN_ANGLE,     State.START,
+            Alphabet.CLOSE_ANGLE,    State.START,
+            Alphabet.SPACE,          State.START,
+            Alphabet.HYPHEN,         State.ON_HYPHEN,
+            Alphabet.UNKNOWN,        State.ON_UNKNOWN},
     };
-    
+
+    private static final State[] STATES = State.values();
+    private static final Alphabet[] ALPHABET = Alphabet.values();
+
+    /** The number of symbols in the alphabet. */
+    static final int ALPHABET_SIZE = ALPHABET.length;
+
+    // The compiled transition table, indexed by state * ALPHABET_SIZE + symbol.
+    private static final byte[] TRANSITIONS = compile(stateTable);
+
+    /*
+     * Compiles a transition table into a flat array after checking that it has exactly one row for every
+     * state and that every row gives exactly one next state for every symbol. The compiled array is then
+     * compared with the table row by row.
+     */
+    static byte[] compile(Object[][] table) {
+        byte[] transitions = new byte[STATES.length * ALPHABET_SIZE];
+        boolean[] seenStates = new boolean[STATES.length];
+        for (Object[] row : table) {
+            if (row.length != 1 + 2 * ALPHABET_SIZE || !(row[0] instanceof State)) {
+                throw new IllegalStateException("Transition table row must be a state followed by " + ALPHABET_SIZE
+                        + " symbol and state pairs: " + Arrays.toString(row));
+            }
+            State state = (State) row[0];
+            if (seenStates[state.ordinal()]) {
+                throw new IllegalStateException("Transition table has more than one row for " + state);
+            }
+            seenStates[state.ordinal()] = true;
+            boolean[] seenSymbols = new boolean[ALPHABET_SIZE];
+            for (int i = 1; i < row.length; i += 2) {
+                if (!(row[i] instanceof Alphabet) || !(row[i + 1] instanceof State)) {
+                    throw new IllegalStateException("Transition table row for " + state + " has no symbol and state pair at " + i);
+                }
+                Alphabet symbol = (Alphabet) row[i];
+                if (seenSymbols[symbol.ordinal()]) {
+                    throw new IllegalStateException("Transition table row for " + state + " names " + symbol + " more than once");
+                }
+                seenSymbols[symbol.ordinal()] = true;
+                transitions[state.ordinal() * ALPHABET_SIZE + symbol.ordinal()] = (byte) ((State) row[i + 1]).ordinal();
+            }
+        }
+        for (State state : STATES) {
+            if (!seenStates[state.ordinal()]) {
+                throw new IllegalStateException("Transition table has no row for " + state);
+            }
+        }
+
+        for (Object[] row : table) {
+            int state = ((State) row[0]).ordinal();
+            for (int i = 1; i < row.length; i += 2) {
+                if (transitions[state * ALPHABET_SIZE + ((Alphabet) row[i]).ordinal()] != ((State) row[i + 1]).ordinal()) {
+                    throw new IllegalStateException("Compiled transition for " + row[0] + " on " + row[i] + " does not match the table");
+                }
+            }
+        }
+        return transitions;
+    }
+
     public static State getNextState(State curState, Alphabet symbol) {
-		return stateTable[curState.ordinal()][symbol.ordinal()];
+        return STATES[TRANSITIONS[curState.ordinal() * ALPHABET_SIZE + symbol.ordinal()]];
     }
 
-    public static Alphabet getSymbol(char c, char lastchar, char lookahead) {
-        Alphabet symbol = null;
+    /*
+     * Returns the code of the next state. State and symbol codes are the ordinals of State and Alphabet.
+     */
+    static int nextState(int state, int symbol) {
+        return TRANSITIONS[state * ALPHABET_SIZE + symbol];
+    }
+
+    static State state(int code) {
+        return STATES[code];
+    }
+
+    // Classes stored in the character table besides the Alphabet ordinals. Apostrophes and periods are
+    // resolved from the surrounding characters after the lookup.
+    private static final int APOSTROPHE_CLASS = ALPHABET.length;
+    private static final int PERIOD_CLASS = ALPHABET.length + 1;
+    private static final int CLASS_MASK = 0x1F;
+    private static final int LETTER_FLAG = 0x20;
+    private static final int DIGIT_FLAG = 0x40;
+
+    // Two-level character table: BLOCK_OFFSET maps the high byte of a char to the start of its 256-entry
+    // block in CHAR_TABLE. Identical blocks are stored once, and block 0 covers Latin-1.
+    private static final char[] BLOCK_OFFSET = new char[256];
+    private static final byte[] CHAR_TABLE;
+
+    // The entries for ASCII, for text known to have no other characters.
+    private static final byte[] ASCII_TABLE = new byte[128];
+
+    static {
+        byte[][] blocks = new byte[256][];
+        byte[] block = new byte[256];
+        int blockCount = 0;
+        for (int high = 0; high < 256; high++) {
+            for (int low = 0; low < 256; low++) {
+                block[low] = (byte) classify((char) (high << 8 | low));
+            }
+            int b = 0;
+            while (b < blockCount && !Arrays.equals(blocks[b], block)) {
+                b++;
+            }
+            if (b == blockCount) {
+                blocks[blockCount++] = block.clone();
+            }
+            BLOCK_OFFSET[high] = (char) (b << 8);
+        }
+        CHAR_TABLE = new byte[blockCount << 8];
+        for (int b = 0; b < blockCount; b++) {
+            System.arraycopy(blocks[b], 0, CHAR_TABLE, b << 8, 256);
+        }
+        for (char c = 0; c < ASCII_TABLE.length; c++) {
+            ASCII_TABLE[c] = (byte) lookup(c);
+        }
+    }
+
+    /*
+     * Computes the table entry for a character: its class and whether it is a letter or a digit.
+     */
+    private static int classify(char c) {
+        int symbol;
 
         if (Character.isWhitespace(c))
-            symbol = Alphabet.SPACE;
+            symbol = Alphabet.SPACE.ordinal();
         else if (c == '-' || c == (char)0x2012 || c == (char)0x2013 || c == (char)0x2014 || c == (char)0x2015)
-//        	if (Character.isLetter(lastchar) && (Character.isLetter(lookahead) || Character.isDigit(lookahead)))
-//        		symbol = Alphabet.ALPHA;
-//        	else
-//        		symbol = Alphabet.PUNCT;
-            symbol = Alphabet.HYPHEN;
+            symbol = Alphabet.HYPHEN.ordinal();
         else if (c == '=')
-        	symbol = Alphabet.PUNCT;
+            symbol = Alphabet.PUNCT.ordinal();
         else if (Character.isLetter(c))
-            symbol = Alphabet.ALPHA;
+            symbol = Alphabet.ALPHA.ordinal();
         else if (Character.isDigit(c))
-            symbol = Alphabet.DIGIT;
+            symbol = Alphabet.DIGIT.ordinal();
         else if (c == '"' || c == (char)0x201c || c == (char)0x201d || c == (char)0x201e || c == (char)0x201f || c == (char)0x301d || c == (char)0x301e || c == (char)0x301f || c == (char)0xff02)
-            symbol = Alphabet.PUNCT;
+            symbol = Alphabet.PUNCT.ordinal();
         else if (c == '\'' ||  c == (char)0x2018 || c == (char)0x2019 || c == (char)0x201a || c == (char)0x201b || c == (char)0xff07)
-        	if (lookahead == 's')
-        		symbol = Alphabet.ALPHA;
-        	else if (Character.isLetter(lookahead) && Character.isLetter(lastchar))
-        		symbol = Alphabet.ALPHA;
-        	else
-        		symbol = Alphabet.PUNCT;
+            symbol = APOSTROPHE_CLASS;
         else if (c == '?')
-            symbol = Alphabet.QMARK;
+            symbol = Alphabet.QMARK.ordinal();
         else if (c == '!')
-            symbol = Alphabet.EPOINT;
+            symbol = Alphabet.EPOINT.ordinal();
         else if (c == '.')
-        	if (Character.isDigit(lookahead)) {
-        		symbol = Alphabet.DECIMAL;
-        	} else {
-        		symbol = Alphabet.PERIOD;
-        	}
-        else if (c == ',')
-            symbol = Alphabet.PUNCT;
+            symbol = PERIOD_CLASS;
+        else if (c == ',' || c == '\\' || c == '/' || c == '$')
+            symbol = Alphabet.PUNCT.ordinal();
         else if (c == '&')
-        	symbol = Alphabet.AMPERSAND;
+            symbol = Alphabet.AMPERSAND.ordinal();
         else if (c == ':')
-        	symbol = Alphabet.COLON;
+            symbol = Alphabet.COLON.ordinal();
         else if (c == ';')
-            symbol = Alphabet.SEMICOLON;
-        else if (c == '\\')
-            symbol = Alphabet.PUNCT;
-        else if (c == '/')
-            symbol = Alphabet.PUNCT;
+            symbol = Alphabet.SEMICOLON.ordinal();
         else if (c == '@')
-            symbol = Alphabet.AT_SIGN;
+            symbol = Alphabet.AT_SIGN.ordinal();
         else if (c == '#')
-            symbol = Alphabet.HASH;
+            symbol = Alphabet.HASH.ordinal();
         else if (c == '(' || c == '[')
-            symbol = Alphabet.OPEN_PAREN;
+            symbol = Alphabet.OPEN_PAREN.ordinal();
         else if (c == ')')
-            symbol = Alphabet.CLOSE_PAREN;
+            symbol = Alphabet.CLOSE_PAREN.ordinal();
         else if (c == '<')
-            symbol = Alphabet.OPEN_ANGLE;
+            symbol = Alphabet.OPEN_ANGLE.ordinal();
         else if (c == '>')
-            symbol = Alphabet.CLOSE_ANGLE;
-        else if (c == '_')
-        	symbol = Alphabet.ALPHA;
-        else if (c == '$')
-        	symbol = Alphabet.PUNCT;
-        else if (c == '*')
-        	symbol = Alphabet.ALPHA;
+            symbol = Alphabet.CLOSE_ANGLE.ordinal();
+        else if (c == '_' || c == '*')
+            symbol = Alphabet.ALPHA.ordinal();
         else
-            symbol = Alphabet.UNKNOWN;
+            symbol = Alphabet.UNKNOWN.ordinal();
+
+        if (Character.isLetter(c))
+            symbol |= LETTER_FLAG;
+        if (Character.isDigit(c))
+            symbol |= DIGIT_FLAG;
+        return symbol;
+    }
+
+    private static int lookup(char c) {
+        return CHAR_TABLE[BLOCK_OFFSET[c >>> 8] + (c & 0xFF)];
+    }
+
+    /**
+     * Classifies a character. Apostrophes are part of a word when they are followed by an 's' or stand
+     * between two letters, and a period followed by a digit is a decimal point.
+     * @param c the character to classify
+     * @param lastchar the character before c
+     * @param lookahead the character after c
+     * @return the symbol for c
+     */
+    public static Alphabet getSymbol(char c, char lastchar, char lookahead) {
+        return ALPHABET[symbol(c, lastchar, lookahead)];
+    }
+
+    /*
+     * Returns the code of the symbol for c, the ordinal of its Alphabet value.
+     */
+    static int symbol(char c, char lastchar, char lookahead) {
+        int symbol = lookup(c) & CLASS_MASK;
+
+        if (symbol == APOSTROPHE_CLASS) {
+            if (lookahead == 's' || ((lookup(lookahead) & LETTER_FLAG) != 0 && (lookup(lastchar) & LETTER_FLAG) != 0))
+                return Alphabet.ALPHA.ordinal();
+            return Alphabet.PUNCT.ordinal();
+        }
+        if (symbol == PERIOD_CLASS) {
+            return (lookup(lookahead) & DIGIT_FLAG) != 0 ? Alphabet.DECIMAL.ordinal() : Alphabet.PERIOD.ordinal();
+        }
+        return symbol;
+    }
+
+    /*
+     * Returns the same code as symbol() when c, lastchar and lookahead are all ASCII, with one lookup in a
+     * table small enough to stay in the L1 cache.
+     */
+    static int asciiSymbol(char c, char lastchar, char lookahead) {
+        int symbol = ASCII_TABLE[c] & CLASS_MASK;
 
+        if (symbol == APOSTROPHE_CLASS) {
+            if (lookahead == 's' || ((ASCII_TABLE[lookahead] & LETTER_FLAG) != 0 && (ASCII_TABLE[lastchar] & LETTER_FLAG) != 0))
+                return Alphabet.ALPHA.ordinal();
+            return Alphabet.PUNCT.ordinal();
+        }
+        if (symbol == PERIOD_CLASS) {
+            return (ASCII_TABLE[lookahead] & DIGIT_FLAG) != 0 ? Alphabet.DECIMAL.ordinal() : Alphabet.PERIOD.ordinal();
+        }
         return symbol;
     }
 
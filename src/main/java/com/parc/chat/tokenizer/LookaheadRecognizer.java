@@ -0,0 +1,577 @@
+package com.parc.chat.tokenizer;
+
+/**
+ * Recognizes email addresses, URLs, hostnames and file names anchored at a character position of the text
+ * being tokenized. It replaces the regular expressions that were matched against a copy of the remaining text
+ * at every position. Each match method returns the length of the match, or 0 when nothing can be matched, and
+ * gives the same result the corresponding {@code ^(...).*} expression would have given on
+ * {@code text.substring(pos)}. {@link #match(int)} tries all of them in the tokenizer's order of preference
+ * and reports the type of the token it found.
+ *
+ * The tokenizer probes nearly every character position, so scans that can run past the current token (to the
+ * end of a run of non-space characters, to the next '@', or to the end of the text) are cached and reused by
+ * the following probes. Probes are expected at non-decreasing positions; an earlier position simply causes
+ * the cached value to be recomputed. One instance serves one tokenizer and is reset for every message.
+ *
+ * Every match needs certain characters somewhere in the text: an email address an '@' and a '.', a URL "://",
+ * and a hostname or file name a '.'. {@link #features(CharSequence, int, int)} finds out which of them a text
+ * has in a single pass, and the patterns that cannot match anywhere in it are never tried. Most short
+ * messages have none, and {@link #match(int)} then returns at once.
+ *
+ * It is the link recognizer in a tokenizer's list of {@link Recognizer}s, where it is told the features of each
+ * text by the tokenizer.
+ */
+final class LookaheadRecognizer implements Recognizer {
+
+	static final String[] PROTOCOLS = {
+		"http", "https", "mailto", "sftp", "ftp", "smb", "htp", "htps", "smtp", "fax", "xrxscanwebservice",
+		"mailbox", "usb", "webdav", "webdavs"
+	};
+
+	static final String[] TOP_LEVEL_DOMAINS = { "com", "edu", "org", "net", "gov", "mil", "co", "us" };
+
+	static final WordTrie DEFAULT_PROTOCOLS = new WordTrie(PROTOCOLS);
+	static final WordTrie DEFAULT_TOP_LEVEL_DOMAINS = new WordTrie(TOP_LEVEL_DOMAINS);
+
+	// Listed in the order they were tried by the original alternation, e.g. "aiff?" is "aiff" before "aif".
+	static final String[] FILE_EXTENSIONS = {
+		"aiff", "aif", "au", "avi", "bat", "bmp", "class", "csv", "cvs", "dbf", "dif", "docx", "doc", "eps",
+		"exe", "fm3", "gif", "hqx", "html", "htm", "java", "jpeg", "jpg", "mac", "map", "mdb", "mid", "midi",
+		"mov", "mtb", "mtw", "pdf", "png", "ppt", "pptx", "psd", "psp", "qt", "qxd", "ra", "rtf", "sit", "tar",
+		"tif", "txt", "wav", "xls", "xlsx", "zip"
+	};
+
+	// Features of a text, as found by features().
+	static final int AT = 1;
+	static final int DOT = 2;
+	static final int SCHEME = 4;
+	static final int NON_ASCII = 8;
+	static final int ALL = AT | DOT | SCHEME;
+
+	private static final int COLON = 16;
+	private static final byte[] FEATURES = new byte[128];
+
+	static {
+		FEATURES['@'] = AT;
+		FEATURES['.'] = DOT;
+		FEATURES[':'] = COLON;
+	}
+
+	private static final int UNKNOWN = -2;
+
+	private WordTrie protocols = DEFAULT_PROTOCOLS;
+	private WordTrie topLevelDomains = DEFAULT_TOP_LEVEL_DOMAINS;
+
+	private CharSequence text;
+	private int start;
+	private int end;
+	private int features;
+
+	// Index of the last line terminator in the text. The original expressions ended in ".*", which cannot
+	// match across a line terminator, so no match may be followed by one.
+	private int lastLineTerminator;
+
+	// Cached end of the run of non-space characters starting at or before spaceRunStart, and the last '@',
+	// ':' and '.' in it. Every match lies inside a run, and needs one of these characters after its start.
+	private int spaceRunStart;
+	private int spaceRunEnd;
+	private int runLastAt;
+	private int runLastColon;
+	private int runLastDot;
+
+	private TokenType matchType;
+
+	// Counts the probes when the tokenizer has metrics, and is null otherwise.
+	TokenizerMetrics.Recorder recorder;
+
+	// Cached end of the run of email local-part characters.
+	private int localRunStart;
+	private int localRunEnd;
+
+	// Cached domain match following the '@' at atPos.
+	private int atPos;
+	private int atDomainEnd;
+
+	// Cached rightmost file extension in the run [fileRunStart, fileRunEnd).
+	private int fileRunStart;
+	private int fileRunEnd;
+	private int fileMatchEnd;
+	private int fileDot;
+
+	// Trailing run of hostname characters and its structure.
+	private int hostTailStart;
+	private int hostTailLastDot;
+	private int hostTailLastDoubleDot;
+	private boolean hostTailHasDomain;
+
+	// Trailing run of path characters, and the cached structure of the path segment ending at segmentSlash.
+	private int pathTailStart;
+	private int segmentStart;
+	private int segmentSlash;
+	private int segmentLastDot;
+	private int segmentLastDoubleDot;
+	private int segmentLastUnderscore;
+	private boolean segmentHasDomain;
+
+	WordTrie getProtocols() {
+		return protocols;
+	}
+
+	void setProtocols(WordTrie protocols) {
+		this.protocols = protocols;
+	}
+
+	WordTrie getTopLevelDomains() {
+		return topLevelDomains;
+	}
+
+	void setTopLevelDomains(WordTrie topLevelDomains) {
+		this.topLevelDomains = topLevelDomains;
+	}
+
+	/**
+	 * Prepares the recognizer for a new text and discards everything cached for the previous one.
+	 * @param text the text being tokenized
+	 */
+	void reset(CharSequence text) {
+		reset(text, 0, text.length());
+	}
+
+	/**
+	 * Prepares the recognizer for a region of a text, which is treated as if it were the whole text, and
+	 * discards everything cached for the previous one.
+	 * @param text the text holding the region
+	 * @param start the position of the first character of the region
+	 * @param end the position just past the last character of the region
+	 */
+	@Override
+	public void reset(CharSequence text, int start, int end) {
+		reset(text, start, end, features(text, start, end));
+	}
+
+	/**
+	 * Prepares the recognizer for a region of a text whose features are already known.
+	 * @param text the text holding the region
+	 * @param start the position of the first character of the region
+	 * @param end the position just past the last character of the region
+	 * @param features the features of the region, or {@link #ALL} to try every pattern
+	 */
+	void reset(CharSequence text, int start, int end, int features) {
+		this.text = text;
+		this.start = start;
+		this.end = end;
+		this.features = features;
+		lastLineTerminator = UNKNOWN;
+		spaceRunStart = spaceRunEnd = -1;
+		localRunStart = localRunEnd = -1;
+		atPos = -1;
+		fileRunStart = fileRunEnd = -1;
+		hostTailStart = UNKNOWN;
+		pathTailStart = UNKNOWN;
+		segmentStart = segmentSlash = -1;
+	}
+
+	/**
+	 * Finds the token that starts at the given position, trying an email address, a URL, a hostname with a
+	 * path, a hostname and a file name in that order. A final period is not part of a URL. The type of the
+	 * token is available from {@link #getMatchType()} afterwards.
+	 * @param pos the position where the token has to start
+	 * @return the length of the token or 0
+	 */
+	int match(int pos) {
+		if ((features & ALL) == 0 || nonSpaceRunEnd(pos) == pos) {
+			return 0;
+		}
+		int len;
+		if ((features & (AT | DOT)) == (AT | DOT) && runLastAt > pos
+				&& (len = counted(TokenizerMetrics.Probe.EMAIL, matchEmail(pos))) > 0) {
+			matchType = TokenType.EMAIL_ADDR;
+			return len;
+		}
+		if ((features & SCHEME) != 0 && runLastColon > pos
+				&& (len = counted(TokenizerMetrics.Probe.URL, matchUrl(pos))) > 0) {
+			matchType = TokenType.URL;
+			return withoutFinalPeriod(pos, len);
+		}
+		if (runLastDot > pos) {
+			int path = matchHostnamePath(pos);
+			if ((len = counted(TokenizerMetrics.Probe.HOSTNAME, path > 0 ? path : matchHostname(pos))) > 0) {
+				matchType = TokenType.URL;
+				return path > 0 ? withoutFinalPeriod(pos, len) : len;
+			}
+			if ((len = counted(TokenizerMetrics.Probe.FILENAME, matchFilename(pos))) > 0) {
+				matchType = TokenType.FILENAME;
+				return len;
+			}
+		}
+		return 0;
+	}
+
+	private int counted(TokenizerMetrics.Probe probe, int len) {
+		return recorder == null ? len : recorder.probe(probe, len);
+	}
+
+	/**
+	 * A token can start with any character but whitespace.
+	 */
+	@Override
+	public boolean canStartWith(char c) {
+		return !isSpace(c);
+	}
+
+	/**
+	 * Same as {@link #match(int)}, for the text last passed to reset.
+	 */
+	@Override
+	public int recognize(CharSequence text, int pos, int end) {
+		return match(pos);
+	}
+
+	@Override
+	public TokenType getTokenType() {
+		return matchType;
+	}
+
+	@Override
+	public String getLabel() {
+		return null;
+	}
+
+	/**
+	 * Finds out in one pass which of the characters the patterns need are in a region of a text: {@link #AT}
+	 * for an '@', {@link #DOT} for a '.' and {@link #SCHEME} for "://". {@link #NON_ASCII} is set as well if a
+	 * character is not ASCII, so that the tokenizer does not have to look at the text again.
+	 * @param text the text holding the region
+	 * @param start the position of the first character of the region
+	 * @param end the position just past the last character of the region
+	 * @return the features of the region
+	 */
+	static int features(CharSequence text, int start, int end) {
+		int features = 0;
+		for (int i = start; i < end; i++) {
+			char c = text.charAt(i);
+			features |= c < 0x80 ? FEATURES[c] : NON_ASCII;
+		}
+		if ((features & COLON) != 0) {
+			features &= ~COLON;
+			for (int i = start; i + 2 < end; i++) {
+				if (text.charAt(i) == ':' && text.charAt(i + 1) == '/' && text.charAt(i + 2) == '/') {
+					features |= SCHEME;
+					break;
+				}
+			}
+		}
+		return features;
+	}
+
+	/**
+	 * Gets the type of the token found by the last successful call to {@link #match(int)}.
+	 * @return EMAIL_ADDR, URL or FILENAME
+	 */
+	TokenType getMatchType() {
+		return matchType;
+	}
+
+	/**
+	 * Matches an email address: a local part, an '@' and a domain that ends in a known top-level domain.
+	 * Quoted local parts and comments are not recognized.
+	 * @param pos the position where the address has to start
+	 * @return the length of the address or 0
+	 */
+	int matchEmail(int pos) {
+		char c = text.charAt(pos);
+		if (c == '.' || isSpace(c)) {
+			return 0;
+		}
+		int first = pos + 1;
+		if (Character.isHighSurrogate(c) && first < end && Character.isLowSurrogate(text.charAt(first))) {
+			first++;
+		}
+		int at = localPartEnd(first);
+		if (at >= end || text.charAt(at) != '@') {
+			return 0;
+		}
+		int domainEnd = emailDomainEnd(at);
+		if (domainEnd < 0 || !nothingFollowsOnLine(domainEnd)) {
+			return 0;
+		}
+		return domainEnd - pos;
+	}
+
+	/**
+	 * Matches a URL: one of the known protocols followed by "://" and the rest of the non-space run.
+	 * @param pos the position where the URL has to start
+	 * @return the length of the URL or 0
+	 */
+	int matchUrl(int pos) {
+		int len = protocols.prefixFollowedBy(text, pos, end, "://", true);
+		int protocolEnd = pos + len + 3;
+		if (len == 0 || protocolEnd >= end || isSpace(text.charAt(protocolEnd))) {
+			return 0;
+		}
+		int runEnd = nonSpaceRunEnd(protocolEnd);
+		if (!nothingFollowsOnLine(runEnd)) {
+			return 0;
+		}
+		return runEnd - pos;
+	}
+
+	/**
+	 * Matches a hostname followed by a path that together make up the rest of the text.
+	 * @param pos the position where the hostname has to start
+	 * @return the length of the hostname and path or 0
+	 */
+	int matchHostnamePath(int pos) {
+		if (pathTailStart == UNKNOWN) {
+			pathTailStart = end;
+			while (pathTailStart > start && isPathChar(text.charAt(pathTailStart - 1))) {
+				pathTailStart--;
+			}
+		}
+		if (pos < pathTailStart || text.charAt(pos) == '.') {
+			return 0;
+		}
+		if (pos < segmentStart || pos > segmentSlash) {
+			scanPathSegment(pos);
+		}
+		if (segmentSlash + 1 >= end || !segmentHasDomain || segmentLastDot <= pos
+				|| segmentLastDoubleDot >= pos || segmentLastUnderscore >= pos) {
+			return 0;
+		}
+		return end - pos;
+	}
+
+	/**
+	 * Matches a hostname that makes up the rest of the text.
+	 * @param pos the position where the hostname has to start
+	 * @return the length of the hostname or 0
+	 */
+	int matchHostname(int pos) {
+		if (hostTailStart == UNKNOWN) {
+			scanHostnameTail();
+		}
+		if (pos < hostTailStart || !hostTailHasDomain || text.charAt(pos) == '.'
+				|| hostTailLastDot <= pos || hostTailLastDoubleDot >= pos) {
+			return 0;
+		}
+		return end - pos;
+	}
+
+	/**
+	 * Matches a file name: the longest prefix of the non-space run that ends in a dot and a known extension.
+	 * @param pos the position where the file name has to start
+	 * @return the length of the file name or 0
+	 */
+	int matchFilename(int pos) {
+		if (pos < fileRunStart || pos >= fileRunEnd) {
+			fileRunStart = pos;
+			fileRunEnd = nonSpaceRunEnd(pos);
+			fileDot = -1;
+			for (int i = fileRunEnd - 1; i > pos; i--) {
+				if (text.charAt(i) == '.') {
+					int len = matchAny(i + 1, FILE_EXTENSIONS);
+					if (len > 0) {
+						fileDot = i;
+						fileMatchEnd = i + 1 + len;
+						break;
+					}
+				}
+			}
+		}
+		if (fileDot <= pos || !nothingFollowsOnLine(fileMatchEnd)) {
+			return 0;
+		}
+		return fileMatchEnd - pos;
+	}
+
+/*-------------------- Scanning helpers --------------------*/
+
+	private int withoutFinalPeriod(int pos, int len) {
+		return text.charAt(pos + len - 1) == '.' ? len - 1 : len;
+	}
+
+	private int nonSpaceRunEnd(int pos) {
+		if (pos < spaceRunStart || pos > spaceRunEnd) {
+			int lastAt = -1, lastColon = -1, lastDot = -1;
+			int i = pos;
+			for (char c; i < end && !isSpace(c = text.charAt(i)); i++) {
+				if (c == '@') {
+					lastAt = i;
+				} else if (c == ':') {
+					lastColon = i;
+				} else if (c == '.') {
+					lastDot = i;
+				}
+			}
+			spaceRunStart = pos;
+			spaceRunEnd = i;
+			runLastAt = lastAt;
+			runLastColon = lastColon;
+			runLastDot = lastDot;
+		}
+		return spaceRunEnd;
+	}
+
+	private int localPartEnd(int pos) {
+		if (pos < localRunStart || pos > localRunEnd) {
+			int i = pos;
+			while (i < end && isLocalPartChar(text.charAt(i))) {
+				i++;
+			}
+			localRunStart = pos;
+			localRunEnd = i;
+		}
+		return localRunEnd;
+	}
+
+	/*
+	 * Returns the end of the domain that follows the '@' at the given position, or -1. Like the original
+	 * greedy expression, the match with the most labels wins and the longest top-level domain that follows
+	 * the last label is taken, even when it is only a prefix of the remaining characters. With the default
+	 * list that is also the first one the expression's alternation tried ("com" before "co").
+	 */
+	private int emailDomainEnd(int at) {
+		if (at != atPos) {
+			atPos = at;
+			atDomainEnd = -1;
+			int i = at + 1;
+			while (true) {
+				int labelStart = i;
+				while (i < end && isLabelChar(text.charAt(i))) {
+					i++;
+				}
+				if (i == labelStart || i >= end || text.charAt(i) != '.') {
+					break;
+				}
+				i++;
+				int len = topLevelDomains.longestPrefix(text, i, end, false);
+				if (len > 0) {
+					atDomainEnd = i + len;
+				}
+			}
+		}
+		return atDomainEnd;
+	}
+
+	private void scanHostnameTail() {
+		hostTailLastDot = -1;
+		hostTailLastDoubleDot = -1;
+		int i = end;
+		while (i > start && isLabelChar(text.charAt(i - 1)) || i > start && text.charAt(i - 1) == '.') {
+			i--;
+			if (text.charAt(i) == '.') {
+				if (hostTailLastDot < 0) {
+					hostTailLastDot = i;
+				}
+				if (hostTailLastDoubleDot < 0 && i + 1 < end && text.charAt(i + 1) == '.') {
+					hostTailLastDoubleDot = i;
+				}
+			}
+		}
+		hostTailStart = i;
+		hostTailHasDomain = hostTailLastDot >= 0 && isTopLevelDomain(hostTailLastDot + 1, end);
+	}
+
+	private void scanPathSegment(int pos) {
+		segmentStart = pos;
+		segmentLastDot = -1;
+		segmentLastDoubleDot = -1;
+		segmentLastUnderscore = -1;
+		int i = pos;
+		while (i < end && text.charAt(i) != '/') {
+			char c = text.charAt(i);
+			if (c == '.') {
+				segmentLastDot = i;
+				if (i > pos && text.charAt(i - 1) == '.') {
+					segmentLastDoubleDot = i - 1;
+				}
+			} else if (c == '_') {
+				segmentLastUnderscore = i;
+			}
+			i++;
+		}
+		segmentSlash = i;
+		segmentHasDomain = segmentLastDot >= 0 && isTopLevelDomain(segmentLastDot + 1, i);
+	}
+
+	private boolean nothingFollowsOnLine(int matchEnd) {
+		if (lastLineTerminator == UNKNOWN) {
+			int i = end - 1;
+			while (i >= start && !isLineTerminator(text.charAt(i))) {
+				i--;
+			}
+			lastLineTerminator = i;
+		}
+		return lastLineTerminator < matchEnd;
+	}
+
+	private boolean isTopLevelDomain(int start, int stop) {
+		return topLevelDomains.matches(text, start, stop, true);
+	}
+
+	/*
+	 * Returns the length of the first word in the list found at the given position, ignoring case, or 0.
+	 */
+	private int matchAny(int pos, String[] words) {
+		for (String word : words) {
+			if (regionMatchesIgnoreCase(pos, word)) {
+				return word.length();
+			}
+		}
+		return 0;
+	}
+
+	/*
+	 * The words are lowercase ASCII. Only ASCII letters are folded, as java.util.regex does without
+	 * UNICODE_CASE.
+	 */
+	private boolean regionMatchesIgnoreCase(int pos, String word) {
+		if (pos + word.length() > end) {
+			return false;
+		}
+		for (int i = 0; i < word.length(); i++) {
+			char c = text.charAt(pos + i);
+			if (c >= 'A' && c <= 'Z') {
+				c += 'a' - 'A';
+			}
+			if (c != word.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+/*-------------------- Character classes --------------------*/
+
+	// The \s class of java.util.regex.
+	static boolean isSpace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+
+	// Characters the '.' of java.util.regex does not match.
+	static boolean isLineTerminator(char c) {
+		return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+	}
+
+	static boolean isLabelChar(char c) {
+		return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '-';
+	}
+
+	static boolean isPathChar(char c) {
+		return isLabelChar(c) || c == '_' || c == '.' || c == '/';
+	}
+
+	static boolean isLocalPartChar(char c) {
+		if (isLabelChar(c)) {
+			return true;
+		}
+		switch (c) {
+		case '!': case '#': case '$': case '%': case '&': case '\'': case '*': case '+': case '/': case '=':
+		case '?': case '^': case '_': case '`': case '{': case '|': case '}': case '~':
+			return true;
+		default:
+			return false;
+		}
+	}
+
+}
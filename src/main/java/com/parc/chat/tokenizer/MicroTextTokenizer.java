@@ -4,7 +4,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Stack;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import com.parc.chat.tokenizer.LexicalFSA.State;
@@ -13,7 +12,7 @@ import com.parc.chat.tokenizer.LexicalFSA.State;
  * The MicroTextTokenizer class provides methods to break up a string into individual tokens. It has special
  * features to deal with micro-text as it appears in micro-blogs like Twitter and SMS and chat messages.
  * 
- * Obtain a new instance for each string to be tokenized. Typical usage:
+ * The simplest way is to obtain a new instance for each string to be tokenized. Typical usage:
  * 
  * <pre>
  * {@code
@@ -24,49 +23,362 @@ import com.parc.chat.tokenizer.LexicalFSA.State;
  * }
  * </pre>
  * 
+ * When many messages are tokenized, one instance can instead be reused for all of them. It keeps its buffers
+ * and token storage from one message to the next, so the Stack returned by {@link #tokenize(CharSequence)}
+ * is only valid until the next message is tokenized. An instance must not be shared between threads.
+ * 
+ * <pre>
+ * {@code
+ * MicroTextTokenizer tokenizer = new MicroTextTokenizer();
+ * for (String message : messages) {
+ *     Stack<LabeledToken> tokenStack = tokenizer.tokenize(message);
+ *     ...
+ * }
+ * }
+ * </pre>
+ *
+ * Callers that only need token offsets and types can tokenize into a reusable {@link TokenBuffer} with
+ * {@link #tokenize(CharSequence, TokenBuffer)}. No LabeledToken or String is created for the tokens; the
+ * buffer builds them only when they are asked for. {@link #tokenize(CharSequence, TokenSink)} passes each token
+ * to a {@link TokenSink} instead, which can also stop the tokenizer before the end of the text.
+ *
+ * Any CharSequence can be tokenized, such as a StringBuilder or a CharBuffer, and every form of tokenize()
+ * also takes a region of the text, so that part of a larger buffer can be tokenized without copying it.
+ *
+ * Emoticons, email addresses, URLs and file names are found by {@link Recognizer}s, and further recognizers,
+ * for example for ticket IDs or stock cashtags, can be added with {@link #addRecognizer(Recognizer)}. Their
+ * tokens are CUSTOM tokens with the recognizer's label.
+ *
+ * A service that takes messages from anyone can bound the work spent on one message with
+ * {@link #setMaxMessageLength(int)} and {@link #setTimeBudget(long)}. A message beyond either limit is not
+ * rejected; it is split at whitespace and punctuation only and {@link #isDegraded()} tells so. Counts and
+ * latencies can be collected with {@link #setMetrics(TokenizerMetrics)}, and when the library is built on JDK 17
+ * a Java Flight Recorder recording can catch single slow texts as com.parc.chat.tokenizer.SlowTokenize events.
+ *
  * @author Kyle Dent
  *
  */
 public class MicroTextTokenizer {
 
     static Pattern p = Pattern.compile("^[a-z0]+$");
+    private static final String AT_NAME_STEM = "ATNAME";
+    // The number of characters the state machine reads between looks at the clock when there is a time budget.
+    private static final int CLOCK_INTERVAL = 1024;
+    // Reports slow tokenizations to Java Flight Recorder. Null unless the library was built with the jdk17
+    // profile and the jdk.jfr module is present. Setting the system property com.parc.chat.tokenizer.jfr to false
+    // turns the events off.
+    private static final String SLOW_TOKENIZE_EVENTS = "com.parc.chat.tokenizer.SlowTokenizeEvent$Events";
+    private static final TokenizeEvents EVENTS = loadEvents();
+
     private Stack<LabeledToken> tokenStack = null;
+    private TokenBuffer tokens = null;
+    private TokenBuffer ownTokens = null;
+    private TokenSink sink = null;
     private StringBuilder surfaceFormBuffer = new StringBuilder();
     private StringBuilder lexemeBuffer = new StringBuilder();
-	private String originalText;
+    // Kept up to date as characters are appended to lexemeBuffer, to reclassify ALPHA tokens in saveToken.
+    private boolean lexemeAllNumeric = true;
+    private boolean lexemeHasLetter = false;
+    private boolean lexemeHasLineTerminator = false;
+	private CharSequence originalText;
+	private int regionStart = 0;
+	private int regionEnd = 0;
+	private boolean positionsRelativeToRegion = false;
+	private boolean asciiText = false;
+	private PreScan preScan = null;
+	private int maxMessageLength = Integer.MAX_VALUE;
+	private long timeBudget = 0;
+	private boolean degraded = false;
+	private TokenizerMetrics.Recorder recorder = null;
+	// Set while a flight recorder event is being timed: the time spent in recognizers, the recognizers tried as
+	// a bit mask of their indices, the index of the last one that found a token, and the tokens passed to a sink.
+	private boolean timeRecognizers = false;
+	private long recognizerTime = 0;
+	private long recognizersTried = 0;
+	private int matchingRecognizer = 0;
+	private int emittedTokens = 0;
+	private int positionOffset = 0;
 	private int tokenCount = 0;
 	private int charPos = 0;
 	private int currentTokenPos = 0;
+	private int currentTokenEnd = 0;
 
     public static List<String> abbreviationList = Arrays.asList(
       "mr", "mrs", "dr", "ms", "st", "rd", "no");
 
-    // Define a pattern for URLs and hostnames as a regular expression.
-    private static String protocolList = "http|https|mailto|sftp|ftp|smb|htp|htps|smtp|fax|xrxscanwebservice|mailbox|usb|webdav|webdavs";
-    private static String urlRegex = "^(((" + protocolList + "):\\/\\/)" + "\\S+" + ").*";
-    private static Pattern urlPattern = Pattern.compile(urlRegex, Pattern.CASE_INSENSITIVE);
-
-    // Define a pattern for bare hostnames and hostnames plus a path.
-    private static String topLevelDomainList = "com|edu|org|net|gov|mil|co|us";
-    private static String domainPart = "([A-Za-z0-9-]+\\.)+(" + topLevelDomainList + ")";
-    private static String filePath = "([\\w\\d\\.\\/-])+";
-    private static Pattern hostnamePattern = Pattern.compile("(" + domainPart + ")", Pattern.CASE_INSENSITIVE);
-    private static Pattern hostnamePathPattern = Pattern.compile("(" + domainPart + "\\/" + filePath + ")", Pattern.CASE_INSENSITIVE);
-
-    // Define a pattern for email addresses as a regular expression.
-    // Warning: this doesn't recognize email addresses with quoted strings or comments.
-    private static String localpart = "[^\\.\\s][a-zA-Z0-9!#$%&'*+\\-/=?\\^_`{|}~]*";
-    private static String emailAddressRegex = "^(" + localpart + "@" + domainPart + ").*";
-    private static Pattern emailPattern = Pattern.compile(emailAddressRegex);
-
-    // Define a pattern for file names as a regular expression.
-    private static String fileExtension = "aiff?|au|avi|bat|bmp|class|csv|cvs|dbf|dif|docx?|eps|exe|fm3|gif|hqx|html?|java|jpeg"
-           + "|jpg|mac|map|mdb|mid|midi|mov|mtb|mtw|pdf|png|ppt|pptx|psd|psp|qt|qxd|ra|rtf|sit|tar|tif|txt|wav|xls|xlsx|zip";
-    private static String filenameRegex = "^(\\S+\\.(" + fileExtension + ")).*";
-    private static Pattern filenamePattern = Pattern.compile(filenameRegex, Pattern.CASE_INSENSITIVE);
+    // Recognizes email addresses, URLs, hostnames and file names in place.
+    private LookaheadRecognizer recognizer = new LookaheadRecognizer();
+
+    // The recognizers tried before the state machine reads a character, and the ones to try for each character.
+    // Tokenizers with the default recognizers share one table.
+    private static final DispatchTable DEFAULT_DISPATCH_TABLE = new DispatchTable(
+    		Arrays.asList(EmoticonFST.RECOGNIZER, new LookaheadRecognizer()));
+    private Recognizer[] recognizers = { EmoticonFST.RECOGNIZER, recognizer };
+    private DispatchTable dispatchTable = DEFAULT_DISPATCH_TABLE;
+
+    /**
+     * Creates a tokenizer that can be reused for many messages. Pass each message to
+     * {@link #tokenize(CharSequence)} or to {@link #reset(CharSequence)}.
+     */
+    public MicroTextTokenizer() {
+    	;
+    }
 
     public MicroTextTokenizer(String tweetString) {
 		this.originalText = tweetString;
+		this.regionEnd = tweetString == null ? 0 : tweetString.length();
+	}
+
+	/**
+	 * Sets the text for the next call to tokenize() and discards the state left from the previous text.
+	 * Buffers and token storage are kept for reuse.
+	 * @param text the text to be tokenized
+	 */
+	public void reset(CharSequence text) {
+		reset(text, 0, text == null ? 0 : text.length());
+	}
+
+	/**
+	 * Sets a region of a text for the next call to tokenize() and discards the state left from the previous
+	 * text. The region is tokenized as if it were the whole text, without copying it.
+	 * @param text the text holding the region
+	 * @param start the position of the first character of the region
+	 * @param end the position just past the last character of the region
+	 * @throws IndexOutOfBoundsException if the region is not inside the text
+	 */
+	public void reset(CharSequence text, int start, int end) {
+		if (start < 0 || start > end || end > (text == null ? 0 : text.length())) {
+			throw new IndexOutOfBoundsException("Region " + start + " to " + end + " is not inside the text");
+		}
+		originalText = text;
+		regionStart = start;
+		regionEnd = end;
+		tokenCount = 0;
+		charPos = start;
+		currentTokenPos = start;
+		clearBuffers();
+	}
+
+	/**
+	 * Tells whether character positions are reported relative to the start of the region being tokenized.
+	 * @return true if positions are relative to the region, false if they are positions in the whole text
+	 */
+	public boolean isPositionsRelativeToRegion() {
+		return positionsRelativeToRegion;
+	}
+
+	/**
+	 * Sets whether the character positions of tokens are reported relative to the start of the region being
+	 * tokenized or as positions in the whole text passed to tokenize(), which is the default. This makes no
+	 * difference when the whole text is tokenized.
+	 * @param positionsRelativeToRegion true to report positions relative to the region
+	 */
+	public void setPositionsRelativeToRegion(boolean positionsRelativeToRegion) {
+		this.positionsRelativeToRegion = positionsRelativeToRegion;
+	}
+
+	/**
+	 * Tells whether the tokenizer scans each text before tokenizing it.
+	 * @return true if the pre-scan is on
+	 */
+	public boolean isPreScan() {
+		return preScan != null;
+	}
+
+	/**
+	 * Turns on or off a pass over each text before it is tokenized that marks the whitespace and the '@', ':'
+	 * and '.' characters of the text. With it, the tokenizer only tries to recognize an email address, a URL
+	 * or a file name at positions where one of those characters follows in the same run of non-space
+	 * characters, which saves most of the work on long texts. The pass uses the Vector API when it is
+	 * available; see {@link #isVectorPreScanAvailable()}. The tokens are the same either way.
+	 * @param preScan true to scan each text first
+	 */
+	public void setPreScan(boolean preScan) {
+		this.preScan = preScan ? new PreScan() : null;
+	}
+
+	/**
+	 * Tells whether the pre-scan runs on the Vector API. That needs a library built on JDK 17 or later and the
+	 * jdk.incubator.vector module, for example with the JVM option --add-modules jdk.incubator.vector.
+	 * Otherwise the pre-scan runs on scalar code.
+	 * @return true if the pre-scan is vectorized
+	 */
+	public static boolean isVectorPreScanAvailable() {
+		return PreScan.isVectorized();
+	}
+
+	/**
+	 * Gets the length of the longest text the tokenizer fully tokenizes.
+	 * @return the maximum length in characters
+	 */
+	public int getMaxMessageLength() {
+		return maxMessageLength;
+	}
+
+	/**
+	 * Sets the length of the longest text the tokenizer fully tokenizes, to protect a service from unusually
+	 * long or hostile messages. A longer text is only split at whitespace and punctuation, which costs a few
+	 * nanoseconds per character, and the result is marked as degraded (see {@link #isDegraded()}). The state
+	 * machine and the built-in recognizers read each character a bounded number of times, so this also bounds
+	 * the characters examined for a text. The default is no limit.
+	 * @param maxMessageLength the maximum length in characters
+	 * @throws IllegalArgumentException if the length is negative
+	 */
+	public void setMaxMessageLength(int maxMessageLength) {
+		if (maxMessageLength < 0) {
+			throw new IllegalArgumentException("The maximum message length is negative: " + maxMessageLength);
+		}
+		this.maxMessageLength = maxMessageLength;
+	}
+
+	/**
+	 * Gets the time the tokenizer may spend on one text.
+	 * @return the time budget in nanoseconds, or 0 if there is none
+	 */
+	public long getTimeBudget() {
+		return timeBudget;
+	}
+
+	/**
+	 * Sets the time the tokenizer may spend on one text. The tokenizer looks at the clock every 1024
+	 * characters, and once the budget is spent it splits the rest of the text, from the start of the token it
+	 * was reading, at whitespace and punctuation only. The tokens found until then are kept and the result is
+	 * marked as degraded (see {@link #isDegraded()}). Which texts are degraded depends on the load of the
+	 * machine, so use a budget well above the usual time per text. A recognizer is not interrupted, so a custom
+	 * recognizer that can take long at a single position defeats the budget. The default is no budget.
+	 * @param nanos the time budget in nanoseconds, or 0 for none
+	 * @throws IllegalArgumentException if the budget is negative
+	 */
+	public void setTimeBudget(long nanos) {
+		if (nanos < 0) {
+			throw new IllegalArgumentException("The time budget is negative: " + nanos);
+		}
+		this.timeBudget = nanos;
+	}
+
+	/**
+	 * Tells whether the tokenizer gave up on part of the last text because it was longer than the maximum
+	 * message length or took longer than the time budget. That part was only split at whitespace and
+	 * punctuation: each run of letters and digits is a token, every other character but whitespace is a PUNCT
+	 * token of its own, and no emoticons, links or custom tokens are found in it.
+	 * @return true if the last text was tokenized in degraded mode
+	 */
+	public boolean isDegraded() {
+		return degraded;
+	}
+
+	/**
+	 * Gets the metrics the tokenizer counts its work in.
+	 * @return the metrics, or null if they are off
+	 */
+	public TokenizerMetrics getMetrics() {
+		return recorder == null ? null : recorder.metrics;
+	}
+
+	/**
+	 * Sets the metrics the tokenizer counts its work in. The same metrics can be given to tokenizers in several
+	 * threads. The tokenizer adds the counts of a text to them when it is done with the text. Metrics are off by
+	 * default, and then cost nothing.
+	 * @param metrics the metrics, or null to turn them off
+	 */
+	public void setMetrics(TokenizerMetrics metrics) {
+		recorder = metrics == null ? null : new TokenizerMetrics.Recorder(metrics);
+		recognizer.recorder = recorder;
+	}
+
+	/**
+	 * Tokenizes the given text, reusing this tokenizer's buffers and token storage. The returned Stack
+	 * belongs to the tokenizer and is cleared when the next text is tokenized; copy it if the tokens have
+	 * to be kept.
+	 * @param text the text to be tokenized
+	 * @return a Stack of LabeledTokens
+	 */
+	public Stack<LabeledToken> tokenize(CharSequence text) {
+		return tokenize(text, 0, text == null ? 0 : text.length());
+	}
+
+	/**
+	 * Tokenizes a region of a text like {@link #tokenize(CharSequence)}, without copying the region.
+	 * @param text the text holding the region
+	 * @param start the position of the first character of the region
+	 * @param end the position just past the last character of the region
+	 * @return a Stack of LabeledTokens
+	 */
+	public Stack<LabeledToken> tokenize(CharSequence text, int start, int end) {
+		reset(text, start, end);
+		if (tokenStack == null) {
+			tokenStack = new Stack<LabeledToken>();
+		} else {
+			tokenStack.clear();
+		}
+		tokenizeText(ownTokens());
+		return fillTokenStack();
+	}
+
+	/**
+	 * Tokenizes the given text into a TokenBuffer instead of creating a LabeledToken for every token. The
+	 * buffer is cleared first and can be reused for the next text. Surface forms and lexemes are kept in the
+	 * buffer's character arrays and only become Strings when they are requested from the buffer.
+	 * getTokensAsList() and getTokenPosition() are not available after tokenizing into a buffer.
+	 * @param text the text to be tokenized
+	 * @param tokenBuffer the buffer that receives the tokens
+	 * @return the buffer passed in
+	 */
+	public TokenBuffer tokenize(CharSequence text, TokenBuffer tokenBuffer) {
+		return tokenize(text, 0, text == null ? 0 : text.length(), tokenBuffer);
+	}
+
+	/**
+	 * Tokenizes a region of a text into a TokenBuffer like {@link #tokenize(CharSequence, TokenBuffer)},
+	 * without copying the region.
+	 * @param text the text holding the region
+	 * @param start the position of the first character of the region
+	 * @param end the position just past the last character of the region
+	 * @param tokenBuffer the buffer that receives the tokens
+	 * @return the buffer passed in
+	 */
+	public TokenBuffer tokenize(CharSequence text, int start, int end, TokenBuffer tokenBuffer) {
+		reset(text, start, end);
+		tokenStack = null;
+		tokenBuffer.clear();
+		tokenizeText(tokenBuffer);
+		return tokenBuffer;
+	}
+
+	/**
+	 * Tokenizes the given text and passes each token to a sink instead of collecting the tokens. The sink can
+	 * stop the tokenizer by returning false, in which case the rest of the text is not read.
+	 *
+	 * Tokens are passed on once nothing later in the text can change them. A period can combine a token with
+	 * the tokens before it (as in "D.H."), so the tokens before the last period of the text are held back
+	 * until that period has been read; the tokens after it are passed on as soon as they are complete.
+	 * getTokensAsList() and getTokenPosition() are not available after tokenizing into a sink.
+	 * @param text the text to be tokenized
+	 * @param tokenSink the sink that receives the tokens
+	 * @return true if the whole text was tokenized, false if the sink stopped the tokenizer
+	 */
+	public boolean tokenize(CharSequence text, TokenSink tokenSink) {
+		return tokenize(text, 0, text == null ? 0 : text.length(), tokenSink);
+	}
+
+	/**
+	 * Tokenizes a region of a text and passes each token to a sink like
+	 * {@link #tokenize(CharSequence, TokenSink)}, without copying the region.
+	 * @param text the text holding the region
+	 * @param start the position of the first character of the region
+	 * @param end the position just past the last character of the region
+	 * @param tokenSink the sink that receives the tokens
+	 * @return true if the whole region was tokenized, false if the sink stopped the tokenizer
+	 */
+	public boolean tokenize(CharSequence text, int start, int end, TokenSink tokenSink) {
+		reset(text, start, end);
+		tokenStack = null;
+		sink = tokenSink;
+		try {
+			return tokenizeText(ownTokens());
+		} finally {
+			sink = null;
+		}
 	}
 
 	/**
@@ -78,47 +390,90 @@ public class MicroTextTokenizer {
 	 */
 	public Stack<LabeledToken> tokenize() {
 		tokenStack = new Stack<LabeledToken>();
-        LexicalFSA.State curState = null;
-        LexicalFSA.State nextState = null;
-        LexicalFSA.Alphabet symbol = null;
+		tokenizeText(ownTokens());
+		return fillTokenStack();
+	}
 
-        if (originalText == null || originalText.isEmpty())
-            return tokenStack;  // Return the empty stack.
+	/**
+	 * Gets the protocols that can start a URL.
+	 * @return the protocols
+	 */
+	public WordTrie getProtocols() {
+		return recognizer.getProtocols();
+	}
 
-        char c, lastChar = 0, nextChar = 0;
-        curState = LexicalFSA.State.START;
+	/**
+	 * Sets the protocols that can start a URL, for example a list of scan-to schemes read with
+	 * {@link WordTrie#readResource(String)}. A URL is a protocol followed by "://" and the rest of the
+	 * non-space characters.
+	 * @param protocols the protocols
+	 */
+	public void setProtocols(WordTrie protocols) {
+		recognizer.setProtocols(protocols);
+	}
 
-        for (charPos = 0; charPos < originalText.length(); charPos++)
-        {
-        	c = originalText.charAt(charPos);
-            nextChar = getLookahead(charPos);
-            symbol = LexicalFSA.getSymbol(c, lastChar, nextChar);
-            nextState = LexicalFSA.getNextState(curState, symbol);
-            if ( nextState != curState) {
-            	State newState = exitState(curState, nextState, c, lastChar, nextChar);
-            	if (newState != curState) {		// On epsilon transition, skip enter arc.
-            		nextState = newState;
-            	} else {
-            		nextState = enterState(nextState, curState, c, lastChar, nextChar);
-            	}
-            } else {
-            	nextState = steadyState(curState, c, lastChar, nextChar);
-            }
-            curState = nextState;
-            lastChar = c;
-        }
-        exitState(nextState, null, (char)0, lastChar, nextChar);
+	/**
+	 * Gets the top-level domains that can end a hostname or an email address.
+	 * @return the top-level domains
+	 */
+	public WordTrie getTopLevelDomains() {
+		return recognizer.getTopLevelDomains();
+	}
+
+	/**
+	 * Sets the top-level domains that can end a hostname or an email address, for example the list published
+	 * by IANA read with {@link WordTrie#read(java.io.File)}.
+	 * @param topLevelDomains the top-level domains
+	 */
+	public void setTopLevelDomains(WordTrie topLevelDomains) {
+		recognizer.setTopLevelDomains(topLevelDomains);
+	}
+
+	/**
+	 * Gets the recognizers the tokenizer tries at each position before its state machine reads the character
+	 * there, in the order they are tried. By default these are the emoticon recognizer and the recognizer of
+	 * email addresses, URLs, hostnames and file names.
+	 * @return a new list of the recognizers
+	 */
+	public List<Recognizer> getRecognizers() {
+		return new ArrayList<Recognizer>(Arrays.asList(recognizers));
+	}
 
-        return tokenStack;
+	/**
+	 * Sets the recognizers the tokenizer tries at each position, in the order they are to be tried. The
+	 * built-in recognizers from {@link #getRecognizers()} can be moved or left out; the tokens they find are
+	 * then not recognized. A table of the recognizers that can start with each character is built here, so
+	 * set the recognizers once rather than for every text.
+	 * @param recognizers the recognizers, at most 64
+	 * @throws IllegalArgumentException if there are more than 64 recognizers or one of them is null
+	 */
+	public void setRecognizers(List<? extends Recognizer> recognizers) {
+		if (recognizers.contains(null)) {
+			throw new IllegalArgumentException("A recognizer is null");
+		}
+		dispatchTable = new DispatchTable(recognizers);
+		this.recognizers = recognizers.toArray(new Recognizer[recognizers.size()]);
+	}
+
+	/**
+	 * Adds a recognizer to be tried after the others, for example one for ticket IDs or stock cashtags. The
+	 * tokens it finds are CUSTOM tokens with its label, unless it reports another type.
+	 * @param recognizer the recognizer
+	 * @throws IllegalArgumentException if the tokenizer already has 64 recognizers
+	 */
+	public void addRecognizer(Recognizer recognizer) {
+		List<Recognizer> list = getRecognizers();
+		list.add(recognizer);
+		setRecognizers(list);
 	}
 
 	public String getText() {
-		return originalText;
+		return originalText == null ? null : originalText.subSequence(regionStart, regionEnd).toString();
 	}
 
 	@Override
     public String toString() {
-    	return originalText;
+    	return getText();
     }
 
     /**
@@ -156,6 +511,241 @@ public class MicroTextTokenizer {
 
 /*-------------------- End of public methods --------------------*/
 
+    private TokenBuffer ownTokens() {
+    	if (ownTokens == null) {
+    		ownTokens = new TokenBuffer();
+    	} else {
+    		ownTokens.clear();
+    	}
+    	return ownTokens;
+    }
+
+    /*
+     * Creates a LabeledToken for every token in the buffer and pushes it onto tokenStack.
+     */
+    private Stack<LabeledToken> fillTokenStack() {
+    	for (int i = 0; i < tokens.size(); i++) {
+    		tokenStack.push(tokens.getLabeledToken(i));
+    	}
+    	return tokenStack;
+    }
+
+    private static TokenizeEvents loadEvents() {
+    	if (!"false".equals(System.getProperty("com.parc.chat.tokenizer.jfr"))) {
+    		try {
+    			return (TokenizeEvents) Class.forName(SLOW_TOKENIZE_EVENTS).getDeclaredConstructor().newInstance();
+    		} catch (ReflectiveOperationException e) {
+    			// Not built with the jdk17 profile.
+    		} catch (LinkageError e) {
+    			// The jdk.jfr module is not available.
+    		}
+    	}
+    	return null;
+    }
+
+    private boolean tokenizeText(TokenBuffer tokenBuffer) {
+    	TokenizeEvents.Event event = EVENTS == null ? null : EVENTS.begin();
+    	if (recorder == null && event == null) {
+    		return runStateMachine(tokenBuffer);
+    	}
+    	long start = System.nanoTime();
+    	timeRecognizers = event != null;
+    	recognizerTime = 0;
+    	recognizersTried = 0;
+    	emittedTokens = 0;
+    	try {
+    		return runStateMachine(tokenBuffer);
+    	} finally {
+    		long nanos = System.nanoTime() - start;
+    		timeRecognizers = false;
+    		if (recorder != null) {
+    			recorder.nanos = nanos;
+    			recordText();
+    		}
+    		if (event != null && event.finish()) {
+    			event.commit(regionEnd - regionStart, emittedTokens + tokens.size(), recognizerNames(), recognizerTime,
+    					nanos - recognizerTime, degraded);
+    		}
+    	}
+    }
+
+    /*
+     * Names the recognizers that were tried on the current text, for a flight recorder event.
+     */
+    private String recognizerNames() {
+    	StringBuilder names = new StringBuilder();
+    	for (long tried = recognizersTried; tried != 0; tried &= tried - 1) {
+    		Recognizer r = recognizers[Long.numberOfTrailingZeros(tried)];
+    		if (names.length() > 0) {
+    			names.append(", ");
+    		}
+    		if (r == EmoticonFST.RECOGNIZER) {
+    			names.append("emoticons");
+    		} else if (r == recognizer) {
+    			names.append("links");
+    		} else {
+    			names.append(r.getClass().getSimpleName().isEmpty() ? r.getClass().getName() : r.getClass().getSimpleName());
+    		}
+    	}
+    	return names.toString();
+    }
+
+    /*
+     * Adds the counts of the current text to the metrics. The tokens passed to a sink have been counted as
+     * they were passed; the others are still in the buffer.
+     */
+    private void recordText() {
+    	recorder.characters = regionEnd - regionStart;
+    	recorder.degraded = degraded;
+    	for (int i = 0; i < tokens.size(); i++) {
+    		recorder.token(tokens.getTokenType(i));
+    	}
+    	recorder.flush();
+    }
+
+    /*
+     * Runs the state machine over the current text, adding the tokens to the given buffer. When a sink is
+     * set, the tokens are passed to it and removed from the buffer as soon as they are final. Returns false
+     * if the sink stopped the tokenizer.
+     */
+    private boolean runStateMachine(TokenBuffer tokenBuffer) {
+        // The loop runs on state and symbol codes; the handlers below get the State values.
+        int curState, nextState = 0, symbol;
+
+        tokens = tokenBuffer;
+        degraded = false;
+        if (originalText == null || regionStart == regionEnd)
+            return true;  // Leave the buffer empty.
+
+        char c, lastChar = 0, nextChar = 0;
+        curState = State.START.ordinal();
+        positionOffset = positionsRelativeToRegion ? regionStart : 0;
+
+        if (regionEnd - regionStart > maxMessageLength) {
+        	// The text is not scanned, so lowercase it without assuming it is ASCII.
+        	asciiText = false;
+        	splitPlain(regionStart);
+        	return sink == null || emitTokens();
+        }
+        long deadline = timeBudget > 0 ? System.nanoTime() + timeBudget : 0;
+        int nextClockCheck = timeBudget > 0 ? regionStart + CLOCK_INTERVAL : Integer.MAX_VALUE;
+
+        // One pass over the text finds out which of the recognizer's patterns could match anywhere in it, and
+        // whether it is plain ASCII, as most messages are. For those, characters are classified with a single
+        // small table and lowercased arithmetically; the flag does not change inside the loop, so the JIT
+        // compiles a separate loop for each case. The pre-scan, when set, already does both jobs.
+        if (preScan != null) {
+        	preScan.scan(originalText, regionStart, regionEnd);
+        	asciiText = preScan.isAscii();
+        	recognizer.reset(originalText, regionStart, regionEnd, LookaheadRecognizer.ALL);
+        } else {
+        	int features = LookaheadRecognizer.features(originalText, regionStart, regionEnd);
+        	asciiText = (features & LookaheadRecognizer.NON_ASCII) == 0;
+        	recognizer.reset(originalText, regionStart, regionEnd, features);
+        }
+        for (Recognizer r : recognizers) {
+        	if (r != recognizer) {
+        		r.reset(originalText, regionStart, regionEnd);
+        	}
+        }
+
+        // Only a period can change tokens that have already been saved, so once the last period has been
+        // read every saved token is final.
+        int finalFrom = sink == null ? Integer.MAX_VALUE : lastPeriod() + 1;
+
+        for (charPos = regionStart; charPos < regionEnd; charPos++)
+        {
+        	int pos = charPos;
+        	if (pos >= nextClockCheck) {
+        		if (System.nanoTime() - deadline > 0) {
+        			splitPlain(lexemeBuffer.length() > 0 ? currentTokenPos : pos);
+        			return sink == null || emitTokens();
+        		}
+        		nextClockCheck = pos + CLOCK_INTERVAL;
+        	}
+        	c = originalText.charAt(charPos);
+            nextChar = getLookahead(charPos);
+            symbol = asciiText ? LexicalFSA.asciiSymbol(c, lastChar, nextChar) : LexicalFSA.symbol(c, lastChar, nextChar);
+            nextState = LexicalFSA.nextState(curState, symbol);
+            if ( nextState != curState) {
+            	State state = LexicalFSA.state(curState);
+            	State newState = exitState(state, LexicalFSA.state(nextState), c, lastChar, nextChar);
+            	if (newState != state) {		// On epsilon transition, skip enter arc.
+            		nextState = newState.ordinal();
+            	} else {
+            		nextState = enterState(LexicalFSA.state(nextState), state, c, lastChar, nextChar).ordinal();
+            	}
+            } else {
+            	nextState = steadyState(LexicalFSA.state(curState), c, lastChar, nextChar).ordinal();
+            }
+            curState = nextState;
+            lastChar = c;
+            if (pos >= finalFrom && tokens.size() > 0 && !emitTokens()) {
+            	return false;
+            }
+        }
+        exitState(LexicalFSA.state(nextState), null, (char)0, lastChar, nextChar);
+        return sink == null || emitTokens();
+	}
+
+    private int lastPeriod() {
+    	for (int i = regionEnd - 1; i >= regionStart; i--) {
+    		if (originalText.charAt(i) == '.') {
+    			return i;
+    		}
+    	}
+    	return regionStart - 1;
+    }
+
+    /*
+     * Passes the tokens in the buffer to the sink and clears the buffer. Returns false if the sink asked
+     * to stop.
+     */
+    private boolean emitTokens() {
+    	for (int i = 0; i < tokens.size(); i++) {
+    		if (recorder != null) {
+    			recorder.token(tokens.getTokenType(i));
+    		}
+    		if (!tokens.emit(i, originalText, sink)) {
+    			emittedTokens += i + 1;
+    			tokens.clear();
+    			return false;
+    		}
+    	}
+    	emittedTokens += tokens.size();
+    	tokens.clear();
+    	return true;
+    }
+
+    /*
+     * Splits the text from the given position to the end of the region at whitespace and punctuation, without
+     * the state machine or the recognizers, and marks the result as degraded. Runs of letters, digits and
+     * surrogates make words; every other character but whitespace is a token by itself. The token being read
+     * when the tokenizer gave up, if any, is dropped, so pass its start.
+     */
+    private void splitPlain(int from) {
+    	clearBuffers();
+    	degraded = true;
+    	tokens.setDegraded(true);
+    	for (charPos = from; charPos < regionEnd; charPos++) {
+    		char c = originalText.charAt(charPos);
+    		if (Character.isLetterOrDigit(c) || Character.isSurrogate(c)) {
+    			if (lexemeBuffer.length() == 0) {
+    				currentTokenPos = charPos;
+    			}
+    			appendSymbol(State.ERROR, c, (char) 0, (char) 0);
+    			continue;
+    		}
+    		saveToken(TokenType.ALPHA);
+    		if (!LookaheadRecognizer.isSpace(c)) {
+    			currentTokenPos = charPos;
+    			appendSymbol(State.ERROR, c, (char) 0, (char) 0);
+    			saveToken(TokenType.PUNCT);
+    		}
+    	}
+    	saveToken(TokenType.ALPHA);
+    }
+
     private LexicalFSA.State enterState(LexicalFSA.State state, LexicalFSA.State lastState, char c, char lastChar, char nextChar) {
 
     	State newState = checkTransitionNetworks(c);
@@ -167,13 +757,9 @@ public class MicroTextTokenizer {
 		case ON_DOT:
 			if (nextChar == '.') {
 				newState = LexicalFSA.State.ON_ELLIPSIS;
-			} else if (tokenStack.size() > 1) {
-				String previousWord = tokenStack.peek().getStem();
-				if (isAbbreviation(previousWord)) {
-					LabeledToken tok = tokenStack.pop();
-					tok.setOriginalWord(tok.getOriginalWord() + ".");
-					tok.setStem(tok.getStem() + ".");
-					tokenStack.push(tok);
+			} else if (tokens.size() > 1) {
+				if (isAbbreviation(tokens.size() - 1)) {
+					tokens.appendToLast('.', charPos + 1 - positionOffset);
 					break;
 				}
 			 }
@@ -272,162 +858,162 @@ public class MicroTextTokenizer {
     }
 
     private State checkTransitionNetworks(char c) {
-    	State state = null;
-
-    	// If the current character can start an emoticon, branch into the EmoticonFST.
-		if (EmoticonFST.isInitialEmoticonChar(c)) {
-			int emoticonLen = EmoticonFST.recognizeEmoticon(originalText.substring(charPos));
-			if (emoticonLen > 0) {
-				String emoticonStr = originalText.substring(charPos, charPos + emoticonLen);
-				lexemeBuffer.append(emoticonStr);
-				surfaceFormBuffer.append(emoticonStr);
-				currentTokenPos = charPos;
-				saveToken(TokenType.EMOTICON);
-				charPos += emoticonLen;
-				return state = State.BETWEEN_TOKENS;
-			}
-		}
+    	long candidates = dispatchTable.get(c);
+    	if (!timeRecognizers || candidates == 0) {
+    		return runRecognizers(candidates);
+    	}
+    	long start = System.nanoTime();
+    	State state = runRecognizers(candidates);
+    	recognizerTime += System.nanoTime() - start;
+    	// The recognizers after the one that found a token were not tried.
+    	recognizersTried |= state == null ? candidates : candidates & ((2L << matchingRecognizer) - 1);
+    	return state;
+    }
 
-		// Check if the next token can be recognized as an email address.
-		Matcher m = emailPattern.matcher(originalText.substring(charPos));
-		if (m.matches()) {
-			String emailAddress = m.group(1);
-			lexemeBuffer.append(emailAddress.toLowerCase());
-			surfaceFormBuffer.append(emailAddress);
-			currentTokenPos = charPos;
-			saveToken(TokenType.EMAIL_ADDR);
-			charPos += emailAddress.length();
-			return state = State.BETWEEN_TOKENS;
-		}
+    private State runRecognizers(long candidates) {
+    	// Try the recognizers that can start with the current character, in order.
+    	for (; candidates != 0; candidates &= candidates - 1) {
+    		int index = Long.numberOfTrailingZeros(candidates);
+    		Recognizer r = recognizers[index];
 
-		// Check if the next token can be recognized as a URL.
-	    m = urlPattern.matcher(originalText.substring(charPos));
-	    if (m.matches()) {
-			String url = m.group(1);
-			// Remove final period.
-			if (url.endsWith(".")) {
-				url = url.substring(0, url.length() - 1);
-			}
-			lexemeBuffer.append(url.toLowerCase());
-			surfaceFormBuffer.append(url);
-			currentTokenPos = charPos;
-			saveToken(TokenType.URL);
-			charPos += url.length() - 1;
-			return state = State.BETWEEN_TOKENS;
-	    }
-
-	    // Check for a hostname and file path together; tag it as a URL.
-	    m = hostnamePathPattern.matcher(originalText.substring(charPos));
-	    if (m.matches()) {
-	        String hostname = m.group(1);
-	        // Remove the final period.
-	        if (hostname.endsWith(".")) {
-	            hostname = hostname.substring(0,  hostname.length() - 1);
-	        }
-	        lexemeBuffer.append(hostname.toLowerCase());
-	        surfaceFormBuffer.append(hostname);
-	        currentTokenPos = charPos;
-	        saveToken(TokenType.URL);
-	        charPos += hostname.length() - 1;
-	        return state = State.BETWEEN_TOKENS;
-	    }
-
-	    // Check for a hostname, tag it as a URL.
-	    m = hostnamePattern.matcher(originalText.substring(charPos));
-	    if (m.matches()) {
-	        String hostname = m.group(1);
-	        lexemeBuffer.append(hostname.toLowerCase());
-	        surfaceFormBuffer.append(hostname);
-	        currentTokenPos = charPos;
-	        saveToken(TokenType.URL);
-	        charPos += hostname.length() - 1;
-	        return state = State.BETWEEN_TOKENS;
-	    }
-
-	    // Check for a filename
-	    m = filenamePattern.matcher(originalText.substring(charPos));
-	    if (m.matches()) {
-	        String filename = m.group(1);
-	        lexemeBuffer.append(filename.toLowerCase());
-	        surfaceFormBuffer.append(filename);
-	        currentTokenPos = charPos;
-	        saveToken(TokenType.FILENAME);
-	        charPos += filename.length() - 1;
-	        return state = State.BETWEEN_TOKENS;
-	    }
-
-	    return state;
+    		if (r == EmoticonFST.RECOGNIZER) {
+    			int emoticonLen = EmoticonFST.recognizeEmoticon(originalText, regionStart, charPos, regionEnd);
+    			if (recorder != null) {
+    				recorder.probe(TokenizerMetrics.Probe.EMOTICON, emoticonLen);
+    			}
+    			if (emoticonLen > 0) {
+    				lexemeBuffer.append(originalText, charPos, charPos + emoticonLen);
+    				surfaceFormBuffer.append(originalText, charPos, charPos + emoticonLen);
+    				currentTokenPos = charPos;
+    				currentTokenEnd = charPos + emoticonLen;
+    				saveToken(TokenType.EMOTICON);
+    				charPos += emoticonLen - 1;
+    				matchingRecognizer = index;
+    				return State.BETWEEN_TOKENS;
+    			}
+    		} else if (r == recognizer) {
+    			// An email address, a URL, a hostname (tagged as a URL) or a file name. The pre-scan tells when
+    			// there is no point in trying.
+    			int len = preScan == null || preScan.mayStartLink(charPos) ? recognizer.match(charPos) : 0;
+    			if (len > 0) {
+    				TokenType type = recognizer.getMatchType();
+    				appendMatch(len);
+    				saveToken(type);
+    				charPos += type == TokenType.EMAIL_ADDR ? len : len - 1;
+    				matchingRecognizer = index;
+    				return State.BETWEEN_TOKENS;
+    			}
+    		} else {
+    			int len = r.recognize(originalText, charPos, regionEnd);
+    			if (recorder != null) {
+    				recorder.probe(TokenizerMetrics.Probe.CUSTOM, len);
+    			}
+    			if (len > 0) {
+    				TokenType type = r.getTokenType();
+    				appendMatch(len);
+    				saveToken(type, type == TokenType.CUSTOM ? r.getLabel() : null);
+    				charPos += len - 1;
+    				matchingRecognizer = index;
+    				return State.BETWEEN_TOKENS;
+    			}
+    		}
+    	}
+	    return null;
+    }
+
+    /*
+     * Appends a token matched by the recognizer at the current position to the buffers.
+     */
+    private void appendMatch(int len) {
+    	String match = originalText.subSequence(charPos, charPos + len).toString();
+    	lexemeBuffer.append(match.toLowerCase());
+    	surfaceFormBuffer.append(match);
+    	currentTokenPos = charPos;
+    	currentTokenEnd = charPos + len;
     }
 
     private void resolveAbbreviationPeriods() {
 
-		if (tokenStack.size() < 2) {
+		if (tokens.size() < 2) {
 			return;
 		}
 
-		LabeledToken periodToken = tokenStack.pop();
-		LabeledToken tok = tokenStack.pop();
-		if (tok.getOriginalWord().length() == 1) {
-			Stack<LabeledToken> abbreviationStack = new Stack<LabeledToken>();
-			abbreviationStack.push(periodToken);
-			abbreviationStack.push(tok);
-			while (tokenStack.size() > 1) {
-				periodToken = tokenStack.pop();
-				tok = tokenStack.pop();
-				if (tok.getOriginalWord().length() == 1) {
-					abbreviationStack.push(periodToken);
-					abbreviationStack.push(tok);
-				} else {
-					break;
-				}
-			}
-			LabeledToken combinedToken = new LabeledToken();
-			StringBuilder combinedWord = new StringBuilder();
-			StringBuilder combinedStem = new StringBuilder();
-			for (LabeledToken tokenPart : abbreviationStack) {
-				combinedWord.insert(0, tokenPart.getOriginalWord());
-				combinedStem.insert(0, tokenPart.getStem());
+		// A run of single-character tokens each followed by another token (usually a period) is combined
+		// into one token, e.g. "D.H.", which takes its position and index from the last part.
+		int first = tokens.size() - 2;
+		if (tokens.getSurfaceLength(first) != 1) {
+			return;
+		}
+		int target = first;
+		while (first > 1) {
+			if (tokens.getSurfaceLength(first - 2) == 1) {
+				first -= 2;
+				target = first;
+			} else {
+				// The two tokens examined last are dropped.
+				target = first - 2;
+				break;
 			}
-			combinedToken.setCharacterPosition(abbreviationStack.get(0).getCharacterPosition());
-			combinedToken.setIndex(abbreviationStack.get(0).getIndex());
-			combinedToken.setOriginalWord(combinedWord.toString());
-			combinedToken.setStem(combinedStem.toString());
-			combinedToken.setTokenType(TokenType.ALPHA);
-			tokenStack.push(combinedToken);
-		} else {
-			tokenStack.push(tok);
-			tokenStack.push(periodToken);
+		}
+		tokens.merge(first, target, TokenType.ALPHA);
+		if (recorder != null) {
+			recorder.abbreviationMerges++;
 		}
     }
 
-    private static boolean isAbbreviation(String str) {
-    	return abbreviationList.contains(str.toLowerCase());
+    private boolean isAbbreviation(int tokenIndex) {
+    	for (int i = 0; i < abbreviationList.size(); i++) {
+    		if (tokens.lexemeEquals(tokenIndex, abbreviationList.get(i))) {
+    			return true;
+    		}
+    	}
+    	return false;
     }
 
     private void appendSymbol(LexicalFSA.State state, char curChar, char lastChar, char nextChar)
     {
     	surfaceFormBuffer.append(curChar);
+    	currentTokenEnd = charPos + 1;
     	if (curChar == '\'' && (state == LexicalFSA.State.IN_WORD && nextChar != 's')) {
     		return;
     	}
 
     	// Don't append repeating characters to the lexeme. But always append digits.
     	// If we're in a token and the character is a '0' convert it to a 'o'.
+    	char c;
     	if (state == LexicalFSA.State.IN_WORD && curChar == '0') {
-    		lexemeBuffer.append('o');
+    		c = 'o';
+    	} else if (asciiText) {
+    		c = curChar >= 'A' && curChar <= 'Z' ? (char) (curChar + ('a' - 'A')) : curChar;
     	} else {
-    		lexemeBuffer.append(Character.toLowerCase(curChar));
+    		c = Character.toLowerCase(curChar);
+    	}
+    	lexemeBuffer.append(c);
+
+    	// Numbers are made of digits, '-', '.', ',' and '$'. A token that is not a number needs an ASCII letter
+    	// to stay ALPHA (and no line terminator, which the pattern this replaces did not match).
+    	if (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z') {
+    		lexemeHasLetter = true;
+    		lexemeAllNumeric = false;
+    	} else if (!(c >= '0' && c <= '9' || c == '-' || c == '.' || c == ',' || c == '$')) {
+    		lexemeAllNumeric = false;
+    		if (LookaheadRecognizer.isLineTerminator(c)) {
+    			lexemeHasLineTerminator = true;
+    		}
     	}
     }
 
     private void clearBuffers() {
-		surfaceFormBuffer = new StringBuilder();
-        lexemeBuffer = new StringBuilder();
+		surfaceFormBuffer.setLength(0);
+        lexemeBuffer.setLength(0);
+        lexemeAllNumeric = true;
+        lexemeHasLetter = false;
+        lexemeHasLineTerminator = false;
     }
 
     private char getLookahead(int pos) {
     	char lookaheadChar;
-		if (originalText.length() <= pos+1 )
+		if (regionEnd <= pos+1 )
 			lookaheadChar = 0;
 		else
 			lookaheadChar = originalText.charAt(pos+1);
@@ -436,34 +1022,26 @@ public class MicroTextTokenizer {
 
     private void saveToken(TokenType type)
     {
-    	String lexeme = lexemeBuffer.toString();
-    	String surface = surfaceFormBuffer.toString();
-    	if (lexeme == null || lexeme.length() == 0)
+    	saveToken(type, null);
+    }
+
+    private void saveToken(TokenType type, String label)
+    {
+    	if (lexemeBuffer.length() == 0)
     		return;
-    	LabeledToken currentToken = new LabeledToken();
-    	if (type == TokenType.AT_NAME) {
-    	    currentToken.setStem("ATNAME");
-    	} else {
-    	    currentToken.setStem(lexeme);
-    	}
-    	currentToken.setOriginalWord(surface);
-    	currentToken.setCharacterPosition(currentTokenPos);
 
+    	// Only characters appended by appendSymbol can end up in an ALPHA token.
     	if (type == TokenType.ALPHA) {
-    		if (currentToken.getStem().matches("^[\\d\\-\\.\\,\\$]+$")) {  // All number stuff.
-    			currentToken.setTokenType(TokenType.NUMERIC);
-    		} else if (! currentToken.getStem().matches(".*[A-Za-z].*")) {  // contains no letters
-    			currentToken.setTokenType(TokenType.PUNCT);
-    		} else {
-    			currentToken.setTokenType(TokenType.ALPHA);
+    		if (lexemeAllNumeric) {  // All number stuff.
+    			type = TokenType.NUMERIC;
+    		} else if (!lexemeHasLetter || lexemeHasLineTerminator) {  // contains no letters
+    			type = TokenType.PUNCT;
     		}
-    	} else {
-    		currentToken.setTokenType(type);
     	}
 
 		tokenCount++;
-		currentToken.setIndex(tokenCount);
-    	tokenStack.push(currentToken);
+		tokens.add(type, label, currentTokenPos - positionOffset, currentTokenEnd - positionOffset, tokenCount, surfaceFormBuffer,
+				type == TokenType.AT_NAME ? AT_NAME_STEM : lexemeBuffer);
     	clearBuffers();
    }
 
@@ -0,0 +1,157 @@
+package com.parc.chat.tokenizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Tokenizes batches of messages on a fork-join pool. Each worker thread keeps its own MicroTextTokenizer and
+ * reuses it for every message it gets, and the messages are handed out in chunks of consecutive messages
+ * rather than one at a time. The tokens of each message come back as a list in the same position the message
+ * had in the input.
+ *
+ * A ParallelTokenizer owns its pool and can be shared by any number of threads. It should be closed when it is
+ * no longer needed so that the pool's threads stop.
+ */
+public class ParallelTokenizer implements AutoCloseable {
+
+	/** The number of consecutive messages a worker tokenizes when none is given. */
+	public static final int DEFAULT_CHUNK_SIZE = 64;
+
+	private final ForkJoinPool pool;
+	private final int chunkSize;
+	private volatile TokenizerMetrics metrics;
+	private final ThreadLocal<MicroTextTokenizer> tokenizers = new ThreadLocal<MicroTextTokenizer>() {
+		@Override
+		protected MicroTextTokenizer initialValue() {
+			return new MicroTextTokenizer();
+		}
+	};
+
+	/**
+	 * Creates a tokenizer with one worker per available processor.
+	 */
+	public ParallelTokenizer() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a tokenizer with the given number of workers.
+	 * @param parallelism the number of worker threads
+	 * @throws IllegalArgumentException if parallelism is less than 1
+	 */
+	public ParallelTokenizer(int parallelism) {
+		this(parallelism, DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * Creates a tokenizer with the given number of workers that hands out messages in chunks of the given size.
+	 * @param parallelism the number of worker threads
+	 * @param chunkSize the largest number of consecutive messages a worker tokenizes at a time
+	 * @throws IllegalArgumentException if parallelism or chunkSize is less than 1
+	 */
+	public ParallelTokenizer(int parallelism, int chunkSize) {
+		if (chunkSize < 1) {
+			throw new IllegalArgumentException("Chunk size must be at least 1: " + chunkSize);
+		}
+		this.pool = new ForkJoinPool(parallelism);
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Gets the number of worker threads.
+	 * @return the parallelism of the pool
+	 */
+	public int getParallelism() {
+		return pool.getParallelism();
+	}
+
+	/**
+	 * Gets the metrics the workers count their work in.
+	 * @return the metrics, or null if they are off
+	 */
+	public TokenizerMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Sets the metrics the workers count their work in, starting with the next batch.
+	 * @param metrics the metrics, or null to turn them off
+	 * @see MicroTextTokenizer#setMetrics(TokenizerMetrics)
+	 */
+	public void setMetrics(TokenizerMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Tokenizes every message of a list.
+	 * @param messages the messages; a null message gets an empty list of tokens
+	 * @return the tokens of each message, in the order of the messages
+	 */
+	public List<List<LabeledToken>> tokenizeAll(List<? extends CharSequence> messages) {
+		CharSequence[] texts = messages.toArray(new CharSequence[messages.size()]);
+		@SuppressWarnings("unchecked")
+		List<LabeledToken>[] results = new List[texts.length];
+		pool.invoke(new TokenizeTask(texts, results, 0, texts.length));
+		return Arrays.asList(results);
+	}
+
+	/**
+	 * Tokenizes every message of a stream. The stream is read to its end before the messages are handed out.
+	 * @param messages the messages; a null message gets an empty list of tokens
+	 * @return the tokens of each message, in the order of the messages
+	 */
+	public List<List<LabeledToken>> tokenizeAll(Stream<? extends CharSequence> messages) {
+		return tokenizeAll(messages.collect(Collectors.<CharSequence>toList()));
+	}
+
+	/**
+	 * Stops the worker threads. Batches that are being tokenized are finished first.
+	 */
+	@Override
+	public void close() {
+		pool.shutdown();
+	}
+
+	/*
+	 * Splits a range of messages in halves until it is no larger than a chunk, then tokenizes the chunk with
+	 * the tokenizer of the worker thread.
+	 */
+	private class TokenizeTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final CharSequence[] texts;
+		private final List<LabeledToken>[] results;
+		private final int from;
+		private final int to;
+
+		TokenizeTask(CharSequence[] texts, List<LabeledToken>[] results, int from, int to) {
+			this.texts = texts;
+			this.results = results;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > chunkSize) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new TokenizeTask(texts, results, from, middle), new TokenizeTask(texts, results, middle, to));
+				return;
+			}
+			MicroTextTokenizer tokenizer = tokenizers.get();
+			TokenizerMetrics metrics = ParallelTokenizer.this.metrics;
+			if (tokenizer.getMetrics() != metrics) {
+				tokenizer.setMetrics(metrics);
+			}
+			for (int i = from; i < to; i++) {
+				results[i] = new ArrayList<LabeledToken>(tokenizer.tokenize(texts[i]));
+			}
+		}
+	}
+
+}
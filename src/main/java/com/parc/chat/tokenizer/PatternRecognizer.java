@@ -0,0 +1,176 @@
+package com.parc.chat.tokenizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A {@link Recognizer} for tokens described by regular expressions, such as order numbers, SKUs or internal
+ * hostnames. All expressions are compiled together into one minimized DFA, which runs from the start of the token
+ * and stops as soon as no expression can match any more. Finding a token takes time in proportion to the
+ * characters read, however many expressions there are.
+ *
+ * <pre>
+ * {@code
+ * PatternRecognizer patterns = new PatternRecognizer();
+ * patterns.addPattern("ORDER", "ORD-\\d{6}");
+ * patterns.addPattern("SKU", "[A-Z]{3}-[0-9A-Z]{4}");
+ * patterns.addPattern(TokenType.URL, "[a-z0-9-]+\\.corp\\.example");
+ * tokenizer.addRecognizer(patterns);
+ * }
+ * </pre>
+ *
+ * The longest match wins; when expressions match the same text, the one added first does. The expressions use
+ * a subset of the java.util.regex syntax: literal characters, '.', the escapes \d \D \w \W \s \S \t \n \r \f
+ * and escaped meta characters, character classes such as [a-z_] and [^0-9], groups, alternation and the
+ * quantifiers * + ? {n} {n,} and {n,m}. Backreferences, anchors, lookaround and flags are not supported, and
+ * all quantifiers are greedy.
+ *
+ * The DFA is built the first time it is needed, normally when the recognizer is given to a tokenizer, so add all
+ * expressions before that. An expression that would need too many states, such as ((a{1000}){1000}), is
+ * rejected when it is added; expressions that are only too large together, for example because the DFA of
+ * [ab]*a[ab]{20} needs millions of states, are rejected with a PatternSyntaxException when the DFA is built.
+ */
+public class PatternRecognizer implements Recognizer {
+
+	private final List<String> expressions = new ArrayList<String>();
+	private final List<TokenType> types = new ArrayList<TokenType>();
+	private final List<String> labels = new ArrayList<String>();
+
+	private Dfa dfa;
+
+	// The expression matched by the last successful call to recognize().
+	private int lastMatch;
+
+	/*
+	 * The compiled tables. The class of an ASCII character is looked up directly, that of another character
+	 * by a binary search of the class starts.
+	 */
+	private static final class Dfa {
+		final int[] classStarts;
+		final int[] asciiClasses = new int[128];
+		final int classCount;
+		final int[] transitions;
+		final int[] accepts;
+
+		Dfa(DfaCompiler compiler) {
+			classStarts = compiler.classStarts;
+			classCount = classStarts.length;
+			transitions = compiler.transitions;
+			accepts = compiler.accepts;
+			for (char c = 0; c < 128; c++) {
+				asciiClasses[c] = search(c);
+			}
+		}
+
+		int classOf(char c) {
+			return c < 128 ? asciiClasses[c] : search(c);
+		}
+
+		private int search(char c) {
+			int i = Arrays.binarySearch(classStarts, c);
+			return i >= 0 ? i : -i - 2;
+		}
+	}
+
+	/**
+	 * Adds an expression for CUSTOM tokens with the given label.
+	 * @param label the label of the tokens, such as "ORDER"
+	 * @param expression the regular expression
+	 * @throws PatternSyntaxException if the expression is not valid, uses syntax that is not supported, or would
+	 * need too many states
+	 * @throws IllegalStateException if the DFA has already been built
+	 */
+	public void addPattern(String label, String expression) {
+		add(TokenType.CUSTOM, label, expression);
+	}
+
+	/**
+	 * Adds an expression for tokens of one of the built-in types, for example internal hostnames as URLs.
+	 * @param type the type of the tokens
+	 * @param expression the regular expression
+	 * @throws PatternSyntaxException if the expression is not valid, uses syntax that is not supported, or would
+	 * need too many states
+	 * @throws IllegalStateException if the DFA has already been built
+	 */
+	public void addPattern(TokenType type, String expression) {
+		add(type, null, expression);
+	}
+
+	private void add(TokenType type, String label, String expression) {
+		if (dfa != null) {
+			throw new IllegalStateException("Patterns cannot be added once the recognizer is in use");
+		}
+		// Parse it now, so that a syntax error is reported where the expression is added.
+		DfaCompiler.parse(expression);
+		expressions.add(expression);
+		types.add(type);
+		labels.add(label);
+	}
+
+	/**
+	 * Gets the number of states of the minimized DFA, building it if needed.
+	 * @return the number of states
+	 * @throws PatternSyntaxException if the expressions together need too many states
+	 */
+	public int getStateCount() {
+		return dfa().accepts.length;
+	}
+
+	private Dfa dfa() {
+		if (dfa == null) {
+			dfa = new Dfa(new DfaCompiler(expressions));
+		}
+		return dfa;
+	}
+
+	@Override
+	public boolean canStartWith(char c) {
+		Dfa dfa = dfa();
+		return dfa.transitions[dfa.classOf(c)] >= 0;
+	}
+
+	@Override
+	public int recognize(CharSequence text, int pos, int end) {
+		Dfa dfa = dfa();
+		int[] transitions = dfa.transitions;
+		int[] accepts = dfa.accepts;
+		int classCount = dfa.classCount;
+		int state = 0;
+		int matchEnd = -1;
+		int match = -1;
+		for (int i = pos; i < end; i++) {
+			state = transitions[state * classCount + dfa.classOf(text.charAt(i))];
+			if (state < 0) {
+				break;
+			}
+			if (accepts[state] >= 0) {
+				matchEnd = i + 1;
+				match = accepts[state];
+			}
+		}
+		if (match < 0) {
+			return 0;
+		}
+		lastMatch = match;
+		return matchEnd - pos;
+	}
+
+	/**
+	 * Gets the type given with the expression that matched last.
+	 */
+	@Override
+	public TokenType getTokenType() {
+		return types.get(lastMatch);
+	}
+
+	/**
+	 * Gets the label given with the expression that matched last, or null if it was given a built-in type.
+	 */
+	@Override
+	public String getLabel() {
+		return labels.get(lastMatch);
+	}
+
+}
@@ -0,0 +1,141 @@
+package com.parc.chat.tokenizer;
+
+import java.nio.CharBuffer;
+
+/*
+ * The optional pass MicroTextTokenizer makes over a message before it runs the state machine. It marks the
+ * whitespace and the '@', ':' and '.' characters of the message in two bitmaps, so that the tokenizer can tell
+ * at a glance whether the link recognizer could match at a position, and finds out whether the message is
+ * all ASCII.
+ *
+ * The scan runs on the Vector API when the jdk.incubator.vector module is available and the library was built
+ * with the jdk17 profile, and on scalar code otherwise. Setting the system property
+ * com.parc.chat.tokenizer.vector to false forces the scalar code.
+ */
+final class PreScan {
+
+	private static final String VECTOR_SCANNER = "com.parc.chat.tokenizer.VectorCharScanner";
+	private static final CharScanner SCANNER = loadScanner();
+
+	private char[] chars = new char[256];
+	private long[] spaceBits = new long[4];
+	private long[] triggerBits = new long[4];
+	private int start;
+	private int length;
+	private boolean ascii;
+
+	// The run of non-space characters last looked at, from runStart to runEnd, and its last trigger character.
+	private int runStart;
+	private int runEnd;
+	private int runLastTrigger;
+
+	/*
+	 * Returns true if the scan runs on the Vector API.
+	 */
+	static boolean isVectorized() {
+		return !(SCANNER instanceof ScalarCharScanner);
+	}
+
+	private static CharScanner loadScanner() {
+		if (!"false".equals(System.getProperty("com.parc.chat.tokenizer.vector"))) {
+			try {
+				return (CharScanner) Class.forName(VECTOR_SCANNER).getDeclaredConstructor().newInstance();
+			} catch (ReflectiveOperationException e) {
+				// Not built with the jdk17 profile.
+			} catch (LinkageError e) {
+				// The jdk.incubator.vector module is not available.
+			}
+		}
+		return new ScalarCharScanner();
+	}
+
+	/*
+	 * Scans the characters of a text from start to end.
+	 */
+	void scan(CharSequence text, int start, int end) {
+		this.start = start;
+		this.length = end - start;
+		if (chars.length < length) {
+			chars = new char[Math.max(length, 2 * chars.length)];
+		}
+		int words = (length + 63) >>> 6;
+		if (spaceBits.length < words) {
+			spaceBits = new long[Math.max(words, 2 * spaceBits.length)];
+			triggerBits = new long[spaceBits.length];
+		}
+
+		if (text instanceof String) {
+			((String) text).getChars(start, end, chars, 0);
+		} else if (text instanceof StringBuilder) {
+			((StringBuilder) text).getChars(start, end, chars, 0);
+		} else if (text instanceof CharBuffer && ((CharBuffer) text).hasArray()) {
+			CharBuffer buffer = (CharBuffer) text;
+			System.arraycopy(buffer.array(), buffer.arrayOffset() + buffer.position() + start, chars, 0, length);
+		} else {
+			for (int i = 0; i < length; i++) {
+				chars[i] = text.charAt(start + i);
+			}
+		}
+		ascii = SCANNER.scan(chars, length, spaceBits, triggerBits);
+		runStart = runEnd = -1;
+	}
+
+	/*
+	 * Returns true if every character of the text is ASCII.
+	 */
+	boolean isAscii() {
+		return ascii;
+	}
+
+	/*
+	 * Returns true if an '@', ':' or '.' follows pos before the next whitespace. Otherwise no link can start at
+	 * pos, for LookaheadRecognizer.match() gives up without trying a pattern.
+	 */
+	boolean mayStartLink(int pos) {
+		int i = pos - start;
+		if (i < runStart || i > runEnd) {
+			runStart = i;
+			runEnd = nextSetBit(spaceBits, i);
+			runLastTrigger = previousSetBit(triggerBits, runEnd - 1, i);
+		}
+		return runLastTrigger > i;
+	}
+
+	/*
+	 * Returns the index of the first bit set at or after from, or the length of the text.
+	 */
+	private int nextSetBit(long[] bits, int from) {
+		if (from >= length) {
+			return length;
+		}
+		int w = from >>> 6;
+		long word = bits[w] & (-1L << from);
+		while (word == 0) {
+			if (++w << 6 >= length) {
+				return length;
+			}
+			word = bits[w];
+		}
+		return Math.min((w << 6) + Long.numberOfTrailingZeros(word), length);
+	}
+
+	/*
+	 * Returns the index of the last bit set at or before from, or -1 if there is none down to lowest.
+	 */
+	private static int previousSetBit(long[] bits, int from, int lowest) {
+		if (from < lowest) {
+			return -1;
+		}
+		int w = from >>> 6;
+		long word = bits[w] & (-1L >>> (63 - (from & 63)));
+		while (word == 0) {
+			if (--w < lowest >>> 6) {
+				return -1;
+			}
+			word = bits[w];
+		}
+		int bit = (w << 6) + 63 - Long.numberOfLeadingZeros(word);
+		return bit >= lowest ? bit : -1;
+	}
+
+}
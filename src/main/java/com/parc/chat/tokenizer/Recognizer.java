@@ -0,0 +1,61 @@
+package com.parc.chat.tokenizer;
+
+/**
+ * Recognizes a kind of special token, such as a ticket ID, a stock cashtag or a phone number, starting at a
+ * character position of the text being tokenized. The tokenizer tries its recognizers before its state machine
+ * reads a character, in the order of {@link MicroTextTokenizer#getRecognizers()}, and the first one that finds a
+ * token makes it. The emoticon and link recognizers of the tokenizer are in the same list.
+ *
+ * A tokenizer asks {@link #canStartWith(char)} about every character once, when its recognizers are set, and
+ * keeps the answers in a table. A recognizer is only called at positions holding a character it can start with,
+ * so a recognizer that starts with a few characters costs next to nothing on text that has none of them.
+ *
+ * The tokenizer calls {@link #reset(CharSequence, int, int)} for every text and then {@link #recognize} at
+ * increasing positions, so a recognizer may cache what it learns about the text in between. It must not be
+ * shared between tokenizers that run at the same time.
+ */
+public interface Recognizer {
+
+	/**
+	 * Tells whether a token this recognizer finds can start with the given character. The answer must not
+	 * change once the recognizer has been given to a tokenizer.
+	 * @param c a character
+	 * @return true if {@link #recognize} may find a token starting with the character
+	 */
+	boolean canStartWith(char c);
+
+	/**
+	 * Called before a new text is tokenized. The default does nothing.
+	 * @param text the text holding the region to be tokenized
+	 * @param start the position of the first character of the region
+	 * @param end the position just past the last character of the region
+	 */
+	default void reset(CharSequence text, int start, int end) {
+	}
+
+	/**
+	 * Finds the token that starts at the given position.
+	 * @param text the text being tokenized
+	 * @param pos the position where the token has to start
+	 * @param end the position just past the last character the token may include
+	 * @return the length of the token or 0
+	 */
+	int recognize(CharSequence text, int pos, int end);
+
+	/**
+	 * Gets the type of the token found by the last successful call to {@link #recognize}. The default is
+	 * CUSTOM.
+	 * @return the type of the token
+	 */
+	default TokenType getTokenType() {
+		return TokenType.CUSTOM;
+	}
+
+	/**
+	 * Gets the label of the CUSTOM token found by the last successful call to {@link #recognize}, such as
+	 * "TICKET" or "CASHTAG".
+	 * @return the label
+	 */
+	String getLabel();
+
+}
@@ -0,0 +1,43 @@
+package com.parc.chat.tokenizer;
+
+import java.util.Arrays;
+
+/*
+ * Scans one character at a time with a table of the ASCII characters.
+ */
+final class ScalarCharScanner implements CharScanner {
+
+	private static final byte SPACE = 1;
+	private static final byte TRIGGER = 2;
+	private static final byte[] FLAGS = new byte[128];
+
+	static {
+		for (char c = 0; c < FLAGS.length; c++) {
+			if (LookaheadRecognizer.isSpace(c)) {
+				FLAGS[c] = SPACE;
+			} else if (c == '@' || c == ':' || c == '.') {
+				FLAGS[c] = TRIGGER;
+			}
+		}
+	}
+
+	@Override
+	public boolean scan(char[] chars, int length, long[] spaceBits, long[] triggerBits) {
+		int words = (length + 63) >>> 6;
+		Arrays.fill(spaceBits, 0, words, 0L);
+		Arrays.fill(triggerBits, 0, words, 0L);
+		boolean ascii = true;
+		for (int i = 0; i < length; i++) {
+			char c = chars[i];
+			if (c >= 128) {
+				ascii = false;
+			} else if (FLAGS[c] == SPACE) {
+				spaceBits[i >>> 6] |= 1L << i;
+			} else if (FLAGS[c] == TRIGGER) {
+				triggerBits[i >>> 6] |= 1L << i;
+			}
+		}
+		return ascii;
+	}
+
+}
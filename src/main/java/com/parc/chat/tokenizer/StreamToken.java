@@ -0,0 +1,66 @@
+package com.parc.chat.tokenizer;
+
+/**
+ * A token read by a {@link StreamingTokenizer}. Besides what a LabeledToken holds, it records where the token
+ * is in the whole input as character offsets that do not overflow on inputs of more than 2 GB, and the line
+ * it is on.
+ *
+ * The index and character position inherited from LabeledToken are counted from the start of the line, or
+ * from the start of the part of the line that was tokenized when the line did not fit in the buffer.
+ */
+public class StreamToken extends LabeledToken {
+	private static final long serialVersionUID = 1L;
+
+	private long startOffset = -1;
+	private long endOffset = -1;
+	private long line = -1;
+
+	/**
+	 * Gets the offset of the first character of the token in the input.
+	 * @return the offset where the token starts
+	 */
+	public long getStartOffset() {
+		return startOffset;
+	}
+
+	/**
+	 * Sets the offset of the first character of the token in the input.
+	 * @param startOffset the offset where the token starts
+	 */
+	public void setStartOffset(long startOffset) {
+		this.startOffset = startOffset;
+	}
+
+	/**
+	 * Gets the offset just past the last character of the token in the input.
+	 * @return the offset where the token ends
+	 */
+	public long getEndOffset() {
+		return endOffset;
+	}
+
+	/**
+	 * Sets the offset just past the last character of the token in the input.
+	 * @param endOffset the offset where the token ends
+	 */
+	public void setEndOffset(long endOffset) {
+		this.endOffset = endOffset;
+	}
+
+	/**
+	 * Gets the number of the line the token is on, starting from 1.
+	 * @return the line number
+	 */
+	public long getLine() {
+		return line;
+	}
+
+	/**
+	 * Sets the number of the line the token is on.
+	 * @param line the line number, starting from 1
+	 */
+	public void setLine(long line) {
+		this.line = line;
+	}
+
+}
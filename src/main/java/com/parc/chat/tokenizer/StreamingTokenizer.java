@@ -0,0 +1,235 @@
+package com.parc.chat.tokenizer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+
+/**
+ * Tokenizes text read from a Reader or a channel, such as a chat transcript or an IRC log that is not split
+ * into messages, without loading the whole text. The text is read through a buffer of fixed size and every
+ * line is tokenized as a message of its own with a {@link MicroTextTokenizer}. Tokens are returned one at a
+ * time as {@link StreamToken}s, which hold their offsets in the whole input as longs.
+ *
+ * Lines end with "\n", "\r" or "\r\n". A line that does not fit in the buffer is tokenized in parts split at
+ * the last whitespace that fits, so no token is cut and links, email addresses and emoticons that reach past
+ * the end of the buffer are still recognized. Only a run of text without whitespace that is longer than the buffer
+ * makes the buffer grow, so the memory used depends on the buffer size and the longest token, not on the
+ * size of the input.
+ *
+ * A StreamingTokenizer is not thread-safe. IOExceptions thrown while reading are rethrown as
+ * UncheckedIOExceptions by {@link #hasNext()} and {@link #next()}.
+ */
+public class StreamingTokenizer implements Iterator<StreamToken>, Closeable {
+
+	/** The size of the buffer when none is given. */
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+	private final Reader reader;
+	private final MicroTextTokenizer tokenizer = new MicroTextTokenizer();
+	private final TokenBuffer tokens = new TokenBuffer();
+
+	// The characters read and not yet tokenized are buffer[pos] to buffer[limit - 1]. buffer[0] is the
+	// character at bufferOffset in the input.
+	private char[] buffer;
+	private CharBuffer text;
+	private int pos = 0;
+	private int limit = 0;
+	private long bufferOffset = 0;
+	private boolean endOfInput = false;
+	private boolean skipLineFeed = false;
+	private long line = 1;
+
+	// The tokens of the part last tokenized, which started at partOffset on partLine.
+	private int nextToken = 0;
+	private long partOffset = 0;
+	private long partLine = 1;
+
+	/**
+	 * Creates a tokenizer reading from the given Reader with a buffer of the default size.
+	 * @param reader the text to be tokenized
+	 */
+	public StreamingTokenizer(Reader reader) {
+		this(reader, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Creates a tokenizer reading from the given Reader.
+	 * @param reader the text to be tokenized
+	 * @param bufferSize the number of characters read at a time
+	 * @throws IllegalArgumentException if the buffer size is less than 1
+	 */
+	public StreamingTokenizer(Reader reader, int bufferSize) {
+		if (bufferSize < 1) {
+			throw new IllegalArgumentException("Buffer size must be at least 1: " + bufferSize);
+		}
+		this.reader = reader;
+		this.buffer = new char[bufferSize];
+		this.text = CharBuffer.wrap(buffer);
+		tokenizer.setPositionsRelativeToRegion(true);
+	}
+
+	/**
+	 * Creates a tokenizer reading from the given channel.
+	 * @param channel the text to be tokenized
+	 * @param charset the encoding of the text
+	 * @param bufferSize the number of characters read at a time
+	 * @throws IllegalArgumentException if the buffer size is less than 1
+	 */
+	public StreamingTokenizer(ReadableByteChannel channel, Charset charset, int bufferSize) {
+		this(Channels.newReader(channel, charset.newDecoder(), -1), bufferSize);
+	}
+
+	/**
+	 * Gets the tokenizer used for each line, for example to set the top-level domains it recognizes.
+	 * @return the tokenizer
+	 */
+	public MicroTextTokenizer getTokenizer() {
+		return tokenizer;
+	}
+
+	/**
+	 * Returns the tokens that have not been read yet as an ordered Spliterator, for use with
+	 * {@link java.util.stream.StreamSupport#stream(Spliterator, boolean)}.
+	 * @return a Spliterator over the remaining tokens
+	 */
+	public Spliterator<StreamToken> spliterator() {
+		return Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+	}
+
+	@Override
+	public boolean hasNext() {
+		try {
+			while (nextToken == tokens.size()) {
+				if (!tokenizeNextPart()) {
+					return false;
+				}
+			}
+			return true;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public StreamToken next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		int i = nextToken++;
+		StreamToken token = new StreamToken();
+		token.setOriginalWord(tokens.getOriginalWord(i));
+		token.setStem(tokens.getStem(i));
+		token.setTokenType(tokens.getTokenType(i));
+		token.setLabel(tokens.getLabel(i));
+		token.setIndex(tokens.getIndex(i));
+		token.setCharacterPosition(tokens.getCharacterPosition(i));
+		token.setStartOffset(partOffset + tokens.getStart(i));
+		token.setEndOffset(partOffset + tokens.getEnd(i));
+		token.setLine(partLine);
+		return token;
+	}
+
+	/**
+	 * Closes the Reader or channel.
+	 */
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	/*
+	 * Tokenizes the next line, or the next part of a line that does not fit in the buffer. Returns false at
+	 * the end of the input.
+	 */
+	private boolean tokenizeNextPart() throws IOException {
+		int scanned = 0;  // The number of characters from pos known not to end the line.
+		while (true) {
+			if (skipLineFeed) {
+				if (pos < limit) {
+					if (buffer[pos] == '\n') {
+						pos++;
+					}
+					skipLineFeed = false;
+				} else if (endOfInput) {
+					skipLineFeed = false;
+				} else {
+					fill();
+					continue;
+				}
+			}
+
+			for (int i = pos + scanned; i < limit; i++) {
+				char c = buffer[i];
+				if (c == '\n' || c == '\r') {
+					tokenize(pos, i);
+					pos = i + 1;
+					skipLineFeed = c == '\r';
+					line++;
+					return true;
+				}
+			}
+
+			if (endOfInput) {
+				if (pos == limit) {
+					return false;
+				}
+				tokenize(pos, limit);
+				pos = limit;
+				return true;
+			}
+			scanned = limit - pos;
+
+			if (pos == 0 && limit == buffer.length) {
+				// The line does not fit: tokenize it up to the last whitespace, or make room for a longer run.
+				int cut = limit - 1;
+				while (cut >= 0 && !Character.isWhitespace(buffer[cut])) {
+					cut--;
+				}
+				if (cut >= 0) {
+					tokenize(0, cut + 1);
+					pos = cut + 1;
+					return true;
+				}
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+				text = CharBuffer.wrap(buffer);
+			}
+			fill();
+		}
+	}
+
+	/*
+	 * Moves the characters not yet tokenized to the start of the buffer and reads more after them.
+	 */
+	private void fill() throws IOException {
+		if (pos > 0) {
+			System.arraycopy(buffer, pos, buffer, 0, limit - pos);
+			bufferOffset += pos;
+			limit -= pos;
+			pos = 0;
+		}
+		int count = reader.read(buffer, limit, buffer.length - limit);
+		if (count < 0) {
+			endOfInput = true;
+		} else {
+			limit += count;
+		}
+	}
+
+	private void tokenize(int start, int end) {
+		partOffset = bufferOffset + start;
+		partLine = line;
+		tokenizer.tokenize(text, start, end, tokens);
+		nextToken = 0;
+	}
+
+}
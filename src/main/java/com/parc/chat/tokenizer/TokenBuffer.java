@@ -0,0 +1,391 @@
+package com.parc.chat.tokenizer;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * Holds the tokens of one text in parallel primitive arrays instead of one LabeledToken object per token.
+ * For every token it records the offsets where the token starts and ends in the text, its TokenType, its
+ * index in the sentence and the character position LabeledToken reports for it. The surface forms and lexemes are kept in two
+ * shared character arrays, and Strings are only created when they are asked for.
+ *
+ * A buffer is filled by {@link MicroTextTokenizer#tokenize(CharSequence, TokenBuffer)} and can be reused for
+ * any number of texts; its arrays only grow when a text has more tokens or characters than any text before.
+ * The character sequences returned by {@link #getSurfaceForm(int)} and {@link #getLexeme(int)} are views
+ * that are only valid until the buffer is filled again.
+ */
+public class TokenBuffer {
+
+	private static final TokenType[] TOKEN_TYPES = TokenType.values();
+
+	private int size;
+	private int[] start;
+	private int[] end;
+	private byte[] type;
+	private String[] label;
+	private int[] index;
+	private int[] position;
+
+	private int[] surfaceOffset;
+	private int[] surfaceLength;
+	private char[] surfaceChars;
+	private int surfaceCount;
+
+	private int[] lexemeOffset;
+	private int[] lexemeLength;
+	private char[] lexemeChars;
+	private int lexemeCount;
+
+	private boolean degraded;
+
+	/**
+	 * Creates an empty buffer.
+	 */
+	public TokenBuffer() {
+		this(16);
+	}
+
+	/**
+	 * Creates an empty buffer with room for the given number of tokens.
+	 * @param capacity the initial number of tokens the buffer can hold
+	 */
+	public TokenBuffer(int capacity) {
+		capacity = Math.max(capacity, 1);
+		start = new int[capacity];
+		end = new int[capacity];
+		type = new byte[capacity];
+		label = new String[capacity];
+		index = new int[capacity];
+		position = new int[capacity];
+		surfaceOffset = new int[capacity];
+		surfaceLength = new int[capacity];
+		lexemeOffset = new int[capacity];
+		lexemeLength = new int[capacity];
+		surfaceChars = new char[capacity * 4];
+		lexemeChars = new char[capacity * 4];
+	}
+
+	/**
+	 * Gets the number of tokens in the buffer.
+	 * @return the number of tokens
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Removes all tokens. The arrays are kept for the next text.
+	 */
+	public void clear() {
+		size = 0;
+		surfaceCount = 0;
+		lexemeCount = 0;
+		degraded = false;
+	}
+
+	/**
+	 * Tells whether the tokenizer gave up on part of the text because it was longer than the tokenizer's
+	 * maximum message length or took longer than its time budget. That part was split at whitespace and
+	 * punctuation only; see {@link MicroTextTokenizer#setMaxMessageLength(int)}.
+	 * @return true if the tokens are only partly the result of the full tokenizer
+	 */
+	public boolean isDegraded() {
+		return degraded;
+	}
+
+	/**
+	 * Gets the offset of the first character of a token in the text.
+	 * @param i the index of the token in the buffer
+	 * @return the start offset of the token
+	 */
+	public int getStart(int i) {
+		checkIndex(i);
+		return start[i];
+	}
+
+	/**
+	 * Gets the offset just past the last character of a token in the text.
+	 * @param i the index of the token in the buffer
+	 * @return the end offset of the token
+	 */
+	public int getEnd(int i) {
+		checkIndex(i);
+		return end[i];
+	}
+
+	/**
+	 * Gets the character position LabeledToken reports for a token. It is the start offset of the token,
+	 * except for abbreviations combined from several tokens, such as "D.H.", which report the position of
+	 * their last part.
+	 * @param i the index of the token in the buffer
+	 * @return the character position of the token
+	 */
+	public int getCharacterPosition(int i) {
+		checkIndex(i);
+		return position[i];
+	}
+
+	/**
+	 * Gets the type assigned to a token.
+	 * @param i the index of the token in the buffer
+	 * @return the type of the token
+	 */
+	public TokenType getTokenType(int i) {
+		checkIndex(i);
+		return TOKEN_TYPES[type[i]];
+	}
+
+	/**
+	 * Gets the label of a CUSTOM token.
+	 * @param i the index of the token in the buffer
+	 * @return the label of the token, or null for tokens of the other types
+	 */
+	public String getLabel(int i) {
+		checkIndex(i);
+		return label[i];
+	}
+
+	/**
+	 * Gets the index of a token in its sentence, as LabeledToken reports it.
+	 * @param i the index of the token in the buffer
+	 * @return the index of the token in its sentence
+	 */
+	public int getIndex(int i) {
+		checkIndex(i);
+		return index[i];
+	}
+
+	/**
+	 * Gets a view of a token in its original form. No characters are copied.
+	 * @param i the index of the token in the buffer
+	 * @return the surface form of the token
+	 */
+	public CharSequence getSurfaceForm(int i) {
+		checkIndex(i);
+		return CharBuffer.wrap(surfaceChars, surfaceOffset[i], surfaceLength[i]);
+	}
+
+	/**
+	 * Gets a view of the lexeme (stemmed form) of a token. No characters are copied.
+	 * @param i the index of the token in the buffer
+	 * @return the lexeme of the token
+	 */
+	public CharSequence getLexeme(int i) {
+		checkIndex(i);
+		return CharBuffer.wrap(lexemeChars, lexemeOffset[i], lexemeLength[i]);
+	}
+
+	/**
+	 * Creates a String holding a token in its original form.
+	 * @param i the index of the token in the buffer
+	 * @return the token in its original form
+	 */
+	public String getOriginalWord(int i) {
+		checkIndex(i);
+		return new String(surfaceChars, surfaceOffset[i], surfaceLength[i]);
+	}
+
+	/**
+	 * Creates a String holding the stemmed form of a token.
+	 * @param i the index of the token in the buffer
+	 * @return the stemmed form of the token
+	 */
+	public String getStem(int i) {
+		checkIndex(i);
+		return new String(lexemeChars, lexemeOffset[i], lexemeLength[i]);
+	}
+
+	/**
+	 * Creates a LabeledToken holding everything known about a token.
+	 * @param i the index of the token in the buffer
+	 * @return a new LabeledToken
+	 */
+	public LabeledToken getLabeledToken(int i) {
+		LabeledToken token = new LabeledToken(getOriginalWord(i));
+		token.setStem(getStem(i));
+		token.setTokenType(getTokenType(i));
+		token.setLabel(label[i]);
+		token.setIndex(index[i]);
+		token.setCharacterPosition(position[i]);
+		return token;
+	}
+
+	/**
+	 * Returns the tokens in the same form as a Stack of LabeledTokens.
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < size; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(surfaceChars, surfaceOffset[i], surfaceLength[i]).append('/')
+					.append(lexemeChars, lexemeOffset[i], lexemeLength[i]);
+		}
+		return sb.append(']').toString();
+	}
+
+/*-------------------- Methods used by the tokenizer --------------------*/
+
+	void setDegraded(boolean degraded) {
+		this.degraded = degraded;
+	}
+
+	int getSurfaceLength(int i) {
+		return surfaceLength[i];
+	}
+
+	/*
+	 * Returns true if the lexeme of the token, lowercased, equals the given lowercase word.
+	 */
+	boolean lexemeEquals(int i, String word) {
+		if (lexemeLength[i] != word.length()) {
+			return false;
+		}
+		int offset = lexemeOffset[i];
+		for (int k = 0; k < word.length(); k++) {
+			if (Character.toLowerCase(lexemeChars[offset + k]) != word.charAt(k)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * Passes a token to a sink and returns what the sink returns.
+	 */
+	boolean emit(int i, CharSequence source, TokenSink sink) {
+		return sink.token(TOKEN_TYPES[type[i]], label[i], start[i], end[i], source, lexemeChars, lexemeOffset[i], lexemeLength[i]);
+	}
+
+	/*
+	 * Adds a token to the end of the buffer, copying its surface form and lexeme.
+	 */
+	void add(TokenType tokenType, int tokenStart, int tokenEnd, int tokenIndex, CharSequence surface, CharSequence lexeme) {
+		add(tokenType, null, tokenStart, tokenEnd, tokenIndex, surface, lexeme);
+	}
+
+	/*
+	 * Adds a token with a label to the end of the buffer, copying its surface form and lexeme.
+	 */
+	void add(TokenType tokenType, String tokenLabel, int tokenStart, int tokenEnd, int tokenIndex, CharSequence surface,
+			CharSequence lexeme) {
+		if (size == start.length) {
+			grow();
+		}
+		start[size] = tokenStart;
+		end[size] = tokenEnd;
+		type[size] = (byte) tokenType.ordinal();
+		label[size] = tokenLabel;
+		index[size] = tokenIndex;
+		position[size] = tokenStart;
+
+		surfaceOffset[size] = surfaceCount;
+		surfaceLength[size] = surface.length();
+		surfaceChars = ensureCapacity(surfaceChars, surfaceCount + surface.length());
+		for (int k = 0; k < surface.length(); k++) {
+			surfaceChars[surfaceCount++] = surface.charAt(k);
+		}
+
+		lexemeOffset[size] = lexemeCount;
+		lexemeLength[size] = lexeme.length();
+		lexemeChars = ensureCapacity(lexemeChars, lexemeCount + lexeme.length());
+		for (int k = 0; k < lexeme.length(); k++) {
+			lexemeChars[lexemeCount++] = lexeme.charAt(k);
+		}
+		size++;
+	}
+
+	/*
+	 * Appends a character to both the surface form and the lexeme of the last token. The characters of the
+	 * last token are always at the end of the character arrays.
+	 */
+	void appendToLast(char c, int tokenEnd) {
+		int last = size - 1;
+		surfaceChars = ensureCapacity(surfaceChars, surfaceCount + 1);
+		surfaceChars[surfaceCount++] = c;
+		surfaceLength[last]++;
+		lexemeChars = ensureCapacity(lexemeChars, lexemeCount + 1);
+		lexemeChars[lexemeCount++] = c;
+		lexemeLength[last]++;
+		end[last] = tokenEnd;
+	}
+
+	/*
+	 * Replaces the tokens from first to the last one in the buffer with a single token whose surface form and
+	 * lexeme are the concatenation of theirs, and stores it at target, dropping any tokens between target and
+	 * first. The new token spans the text of the tokens it replaces and takes its index and character position
+	 * from the last one.
+	 */
+	void merge(int first, int target, TokenType tokenType) {
+		int last = size - 1;
+		int tokenStart = start[first];
+		int tokenEnd = end[last];
+		int tokenIndex = index[last];
+		int tokenPosition = position[last];
+		int surfaceStart = surfaceOffset[first];
+		int lexemeStart = lexemeOffset[first];
+		surfaceCount = surfaceStart;
+		lexemeCount = lexemeStart;
+		for (int k = first; k < size; k++) {
+			System.arraycopy(surfaceChars, surfaceOffset[k], surfaceChars, surfaceCount, surfaceLength[k]);
+			surfaceCount += surfaceLength[k];
+			System.arraycopy(lexemeChars, lexemeOffset[k], lexemeChars, lexemeCount, lexemeLength[k]);
+			lexemeCount += lexemeLength[k];
+		}
+		start[target] = tokenStart;
+		end[target] = tokenEnd;
+		type[target] = (byte) tokenType.ordinal();
+		label[target] = null;
+		index[target] = tokenIndex;
+		position[target] = tokenPosition;
+		surfaceOffset[target] = surfaceStart;
+		surfaceLength[target] = surfaceCount - surfaceStart;
+		lexemeOffset[target] = lexemeStart;
+		lexemeLength[target] = lexemeCount - lexemeStart;
+		size = target + 1;
+	}
+
+	/*
+	 * Replaces the start and end offsets of the tokens, which are char offsets in the text, with the offsets of
+	 * the same characters in its UTF-8 bytes.
+	 */
+	void toByteOffsets(Utf8Text text) {
+		if (text.isAscii()) {
+			return;
+		}
+		for (int i = 0; i < size; i++) {
+			start[i] = text.byteOffset(start[i]);
+			end[i] = text.byteOffset(end[i]);
+		}
+	}
+
+	private void grow() {
+		int capacity = start.length * 2;
+		start = Arrays.copyOf(start, capacity);
+		end = Arrays.copyOf(end, capacity);
+		type = Arrays.copyOf(type, capacity);
+		label = Arrays.copyOf(label, capacity);
+		index = Arrays.copyOf(index, capacity);
+		position = Arrays.copyOf(position, capacity);
+		surfaceOffset = Arrays.copyOf(surfaceOffset, capacity);
+		surfaceLength = Arrays.copyOf(surfaceLength, capacity);
+		lexemeOffset = Arrays.copyOf(lexemeOffset, capacity);
+		lexemeLength = Arrays.copyOf(lexemeLength, capacity);
+	}
+
+	private static char[] ensureCapacity(char[] chars, int capacity) {
+		if (capacity <= chars.length) {
+			return chars;
+		}
+		return Arrays.copyOf(chars, Math.max(capacity, chars.length * 2));
+	}
+
+	private void checkIndex(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("Token index: " + i + ", size: " + size);
+		}
+	}
+
+}
@@ -0,0 +1,46 @@
+package com.parc.chat.tokenizer;
+
+/**
+ * Receives tokens from {@link MicroTextTokenizer#tokenize(CharSequence, TokenSink)} one at a time, in the
+ * order they appear in the text. No LabeledToken or String is created for a token; the sink gets its offsets
+ * in the source text and its lexeme as a range of a character array.
+ *
+ * The lexeme array belongs to the tokenizer and is overwritten after the call returns, so a sink that keeps
+ * the lexeme must copy it. A sink that needs the label of a CUSTOM token, to tell the tokens of different
+ * recognizers apart, overrides the method that takes one.
+ */
+public interface TokenSink {
+
+	/**
+	 * Called for each token.
+	 * @param type the type of the token
+	 * @param start the character position where the token starts in the source text, or in the region being
+	 * tokenized if the tokenizer reports positions relative to the region
+	 * @param end the offset just past the last character of the token, counted the same way as start
+	 * @param source the text being tokenized, including the parts outside the region
+	 * @param lexeme an array holding the lexeme (stemmed form) of the token
+	 * @param lexemeOffset the position of the first character of the lexeme in the array
+	 * @param lexemeLength the number of characters in the lexeme
+	 * @return true to continue tokenizing, false to stop without reading the rest of the text
+	 */
+	boolean token(TokenType type, int start, int end, CharSequence source, char[] lexeme, int lexemeOffset, int lexemeLength);
+
+	/**
+	 * Called for each token, with the label of the recognizer that found it. The default ignores the label and
+	 * calls {@link #token(TokenType, int, int, CharSequence, char[], int, int)}.
+	 * @param type the type of the token
+	 * @param label the label of a CUSTOM token, such as "CASHTAG", or null
+	 * @param start the character position where the token starts, as for the other method
+	 * @param end the offset just past the last character of the token
+	 * @param source the text being tokenized, including the parts outside the region
+	 * @param lexeme an array holding the lexeme (stemmed form) of the token
+	 * @param lexemeOffset the position of the first character of the lexeme in the array
+	 * @param lexemeLength the number of characters in the lexeme
+	 * @return true to continue tokenizing, false to stop without reading the rest of the text
+	 */
+	default boolean token(TokenType type, String label, int start, int end, CharSequence source, char[] lexeme,
+			int lexemeOffset, int lexemeLength) {
+		return token(type, start, end, source, lexeme, lexemeOffset, lexemeLength);
+	}
+
+}
@@ -14,6 +14,8 @@ public enum TokenType {
     EMAIL_ADDR,
     FILENAME,
     HYPHEN,
-    NUMERIC
+    NUMERIC,
+    /** A token found by a {@link Recognizer} added to the tokenizer; its label tells what kind it is. */
+    CUSTOM
 }
 
@@ -0,0 +1,32 @@
+package com.parc.chat.tokenizer;
+
+/*
+ * Reports tokenizations that take long to Java Flight Recorder, as com.parc.chat.tokenizer.SlowTokenize events.
+ * The implementation needs the jdk.jfr module and is only built with the jdk17 profile; MicroTextTokenizer loads
+ * it by name and does without when it cannot.
+ */
+interface TokenizeEvents {
+
+	/*
+	 * Starts timing a tokenization. Returns null, and costs next to nothing, when no recording has the event
+	 * enabled.
+	 */
+	Event begin();
+
+	interface Event {
+
+		/*
+		 * Stops timing. Returns true if the tokenization took longer than the threshold of the recording, in which
+		 * case commit() must be called.
+		 */
+		boolean finish();
+
+		/*
+		 * Records the event. Times are in nanoseconds; recognizers names the recognizers that were tried.
+		 */
+		void commit(int messageLength, int tokenCount, String recognizers, long recognizerTime, long stateMachineTime,
+				boolean degraded);
+
+	}
+
+}
@@ -0,0 +1,355 @@
+package com.parc.chat.tokenizer;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Counts what tokenizers do: the messages and characters they read, the tokens they produce by type, how often
+ * each recognizer probe is tried and how often it finds a token, abbreviation merges and degraded messages. It
+ * also keeps a {@link LatencyHistogram} of the time taken per text for each {@link LengthRange}, which shows
+ * whether the time grows faster than the length of the texts.
+ * Metrics are off by default; pass an instance to {@link MicroTextTokenizer#setMetrics(TokenizerMetrics)} to
+ * turn them on.
+ *
+ * <pre>
+ * {@code
+ * TokenizerMetrics metrics = new TokenizerMetrics();
+ * metrics.register("chat");
+ * tokenizer.setMetrics(metrics);
+ * }
+ * </pre>
+ *
+ * One instance can be shared by any number of tokenizers in any number of threads. The counters are LongAdders,
+ * which do not contend across threads, and each tokenizer counts a message in plain fields and adds the counts
+ * to them once the message is done, so the counts are updated once per message rather than once per token.
+ * The histograms are LongAdders too, one per bucket, and a snapshot sums them up when it is asked for.
+ */
+public class TokenizerMetrics implements TokenizerMetricsMXBean {
+
+	/**
+	 * The recognizer probes that are counted.
+	 */
+	public enum Probe {
+		/** The email address pattern of the link recognizer. */
+		EMAIL,
+		/** The URL pattern of the link recognizer, a protocol followed by "://". */
+		URL,
+		/** The hostname patterns of the link recognizer, with or without a path. */
+		HOSTNAME,
+		/** The file name pattern of the link recognizer. */
+		FILENAME,
+		/** The emoticon recognizer. */
+		EMOTICON,
+		/** The recognizers added to the tokenizer. */
+		CUSTOM
+	}
+
+	/**
+	 * The ranges of text lengths, in characters, that have a latency histogram each.
+	 */
+	public enum LengthRange {
+		/** Up to 140 characters, the length of a classic tweet or SMS. */
+		CHARS_0_140(140),
+		/** 141 to 280 characters. */
+		CHARS_141_280(280),
+		/** 281 to 1000 characters. */
+		CHARS_281_1000(1000),
+		/** 1001 to 10000 characters. */
+		CHARS_1001_10000(10000),
+		/** More than 10000 characters. */
+		CHARS_OVER_10000(Integer.MAX_VALUE);
+
+		private final int maxLength;
+
+		LengthRange(int maxLength) {
+			this.maxLength = maxLength;
+		}
+
+		/**
+		 * Gets the range a text length falls in.
+		 * @param length the length in characters
+		 * @return the range
+		 */
+		public static LengthRange of(int length) {
+			for (LengthRange range : LENGTH_RANGES) {
+				if (length <= range.maxLength) {
+					return range;
+				}
+			}
+			return CHARS_OVER_10000;
+		}
+	}
+
+	private static final TokenType[] TOKEN_TYPES = TokenType.values();
+	private static final Probe[] PROBES = Probe.values();
+	private static final LengthRange[] LENGTH_RANGES = LengthRange.values();
+
+	private final LongAdder messages = new LongAdder();
+	private final LongAdder characters = new LongAdder();
+	private final LongAdder[] tokens = adders(TOKEN_TYPES.length);
+	private final LongAdder[] attempts = adders(PROBES.length);
+	private final LongAdder[] hits = adders(PROBES.length);
+	private final LongAdder abbreviationMerges = new LongAdder();
+	private final LongAdder degradedMessages = new LongAdder();
+	private final LongAdder[][] latencies = new LongAdder[LENGTH_RANGES.length][];
+
+	/**
+	 * Creates metrics with all counts 0.
+	 */
+	public TokenizerMetrics() {
+		for (int i = 0; i < latencies.length; i++) {
+			latencies[i] = adders(LatencyHistogram.BUCKET_COUNT);
+		}
+	}
+
+	private ObjectName objectName;
+
+	/**
+	 * Registers the metrics with the platform MBean server, under the name
+	 * "com.parc.chat.tokenizer:type=TokenizerMetrics,name=" followed by the given name in quotes. If they were
+	 * registered under another name before, that name is removed.
+	 * @param name a name that tells these metrics apart from others in the same JVM
+	 * @return the object name of the MBean
+	 * @throws JMException if the name is not valid or is already registered
+	 */
+	public synchronized ObjectName register(String name) throws JMException {
+		ObjectName objectName = new ObjectName("com.parc.chat.tokenizer:type=TokenizerMetrics,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		unregister();
+		this.objectName = objectName;
+		return objectName;
+	}
+
+	/**
+	 * Removes the metrics from the platform MBean server, if they are registered.
+	 * @throws JMException if the MBean server fails to remove them
+	 */
+	public synchronized void unregister() throws JMException {
+		if (objectName != null) {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if (server.isRegistered(objectName)) {
+				server.unregisterMBean(objectName);
+			}
+			objectName = null;
+		}
+	}
+
+	@Override
+	public long getMessages() {
+		return messages.sum();
+	}
+
+	@Override
+	public long getCharacters() {
+		return characters.sum();
+	}
+
+	/**
+	 * Gets the number of tokens of one type produced.
+	 * @param type the token type
+	 * @return the number of tokens
+	 */
+	public long getTokens(TokenType type) {
+		return tokens[type.ordinal()].sum();
+	}
+
+	@Override
+	public Map<String, Long> getTokens() {
+		Map<String, Long> map = new LinkedHashMap<String, Long>();
+		for (TokenType type : TOKEN_TYPES) {
+			map.put(type.name(), getTokens(type));
+		}
+		return map;
+	}
+
+	/**
+	 * Gets how often a probe was tried.
+	 * @param probe the probe
+	 * @return the number of attempts
+	 */
+	public long getProbeAttempts(Probe probe) {
+		return attempts[probe.ordinal()].sum();
+	}
+
+	@Override
+	public Map<String, Long> getProbeAttempts() {
+		return byProbe(attempts);
+	}
+
+	/**
+	 * Gets how often a probe found a token.
+	 * @param probe the probe
+	 * @return the number of hits
+	 */
+	public long getProbeHits(Probe probe) {
+		return hits[probe.ordinal()].sum();
+	}
+
+	@Override
+	public Map<String, Long> getProbeHits() {
+		return byProbe(hits);
+	}
+
+	@Override
+	public long getAbbreviationMerges() {
+		return abbreviationMerges.sum();
+	}
+
+	@Override
+	public long getDegradedMessages() {
+		return degradedMessages.sum();
+	}
+
+	/**
+	 * Takes a snapshot of the times taken for the texts of a length range. The time of a text is the time the
+	 * tokenizer spent on it, not counting the creation of LabeledTokens for a Stack.
+	 * @param range the length range
+	 * @return the histogram of the times
+	 */
+	public LatencyHistogram getLatencyHistogram(LengthRange range) {
+		LongAdder[] adders = latencies[range.ordinal()];
+		long[] counts = new long[adders.length];
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = adders[i].sum();
+		}
+		return new LatencyHistogram(range, counts);
+	}
+
+	@Override
+	public List<LatencyHistogram> getLatencyHistograms() {
+		List<LatencyHistogram> histograms = new ArrayList<LatencyHistogram>(LENGTH_RANGES.length);
+		for (LengthRange range : LENGTH_RANGES) {
+			histograms.add(getLatencyHistogram(range));
+		}
+		return histograms;
+	}
+
+	/**
+	 * Sets all counts and histograms back to 0. Counts added while this runs may be lost.
+	 */
+	@Override
+	public void reset() {
+		messages.reset();
+		characters.reset();
+		for (LongAdder adder : tokens) {
+			adder.reset();
+		}
+		for (int i = 0; i < PROBES.length; i++) {
+			attempts[i].reset();
+			hits[i].reset();
+		}
+		abbreviationMerges.reset();
+		degradedMessages.reset();
+		for (LongAdder[] histogram : latencies) {
+			for (LongAdder adder : histogram) {
+				adder.reset();
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "messages=" + getMessages() + ", characters=" + getCharacters() + ", tokens=" + getTokens()
+				+ ", probeAttempts=" + getProbeAttempts() + ", probeHits=" + getProbeHits()
+				+ ", abbreviationMerges=" + getAbbreviationMerges() + ", degradedMessages=" + getDegradedMessages();
+	}
+
+	/*
+	 * Adds the counts of one message, kept by a tokenizer.
+	 */
+	void add(Recorder recorder) {
+		messages.increment();
+		characters.add(recorder.characters);
+		for (int i = 0; i < TOKEN_TYPES.length; i++) {
+			if (recorder.tokens[i] != 0) {
+				tokens[i].add(recorder.tokens[i]);
+			}
+		}
+		for (int i = 0; i < PROBES.length; i++) {
+			if (recorder.attempts[i] != 0) {
+				attempts[i].add(recorder.attempts[i]);
+				hits[i].add(recorder.hits[i]);
+			}
+		}
+		if (recorder.abbreviationMerges != 0) {
+			abbreviationMerges.add(recorder.abbreviationMerges);
+		}
+		if (recorder.degraded) {
+			degradedMessages.increment();
+		}
+		latencies[LengthRange.of(recorder.characters).ordinal()][LatencyHistogram.bucketOf(recorder.nanos)].increment();
+	}
+
+	private Map<String, Long> byProbe(LongAdder[] adders) {
+		Map<String, Long> map = new LinkedHashMap<String, Long>();
+		for (Probe probe : PROBES) {
+			map.put(probe.name(), adders[probe.ordinal()].sum());
+		}
+		return map;
+	}
+
+	private static LongAdder[] adders(int count) {
+		LongAdder[] adders = new LongAdder[count];
+		for (int i = 0; i < count; i++) {
+			adders[i] = new LongAdder();
+		}
+		return adders;
+	}
+
+	/*
+	 * The counts of the message a tokenizer is working on, in plain fields. Each tokenizer has its own.
+	 */
+	static final class Recorder {
+		final TokenizerMetrics metrics;
+		final int[] tokens = new int[TOKEN_TYPES.length];
+		final int[] attempts = new int[PROBES.length];
+		final int[] hits = new int[PROBES.length];
+		int characters;
+		long nanos;
+		int abbreviationMerges;
+		boolean degraded;
+
+		Recorder(TokenizerMetrics metrics) {
+			this.metrics = metrics;
+		}
+
+		/*
+		 * Counts an attempt of a probe and returns the length of the token it found, or 0.
+		 */
+		int probe(Probe probe, int length) {
+			attempts[probe.ordinal()]++;
+			if (length > 0) {
+				hits[probe.ordinal()]++;
+			}
+			return length;
+		}
+
+		void token(TokenType type) {
+			tokens[type.ordinal()]++;
+		}
+
+		/*
+		 * Adds the counts to the metrics and clears them for the next message.
+		 */
+		void flush() {
+			metrics.add(this);
+			Arrays.fill(tokens, 0);
+			Arrays.fill(attempts, 0);
+			Arrays.fill(hits, 0);
+			characters = 0;
+			nanos = 0;
+			abbreviationMerges = 0;
+			degraded = false;
+		}
+	}
+
+}
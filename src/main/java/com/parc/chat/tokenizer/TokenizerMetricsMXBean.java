@@ -0,0 +1,69 @@
+package com.parc.chat.tokenizer;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The management interface of {@link TokenizerMetrics}, as it appears in JMX consoles such as JConsole or
+ * VisualVM. All counts are totals since the metrics were created or last reset.
+ */
+public interface TokenizerMetricsMXBean {
+
+	/**
+	 * Gets the number of texts tokenized.
+	 * @return the number of messages
+	 */
+	long getMessages();
+
+	/**
+	 * Gets the number of characters in the texts tokenized.
+	 * @return the number of characters
+	 */
+	long getCharacters();
+
+	/**
+	 * Gets the number of tokens produced, by token type.
+	 * @return a map from the names of the token types to the number of tokens of each type
+	 */
+	Map<String, Long> getTokens();
+
+	/**
+	 * Gets how often each recognizer probe was tried: the email address, URL, hostname and file name patterns of
+	 * the link recognizer, the emoticon recognizer and the custom recognizers.
+	 * @return a map from the names of the probes to the number of attempts
+	 */
+	Map<String, Long> getProbeAttempts();
+
+	/**
+	 * Gets how often each recognizer probe found a token.
+	 * @return a map from the names of the probes to the number of hits
+	 */
+	Map<String, Long> getProbeHits();
+
+	/**
+	 * Gets the number of times single-character tokens and periods were merged into abbreviations such as
+	 * "D.H.".
+	 * @return the number of merges
+	 */
+	long getAbbreviationMerges();
+
+	/**
+	 * Gets the number of texts that were tokenized in degraded mode, because they were too long or ran out of
+	 * time.
+	 * @return the number of degraded messages
+	 */
+	long getDegradedMessages();
+
+	/**
+	 * Takes snapshots of the latency histograms, one for every range of text lengths, from the shortest texts to
+	 * the longest.
+	 * @return the histograms
+	 */
+	List<LatencyHistogram> getLatencyHistograms();
+
+	/**
+	 * Sets all counts and histograms back to 0.
+	 */
+	void reset();
+
+}
@@ -0,0 +1,275 @@
+package com.parc.chat.tokenizer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A CharSequence over UTF-8 bytes, so that text that arrives as bytes can be tokenized without first being
+ * decoded into a String. When the bytes are all ASCII, which most chat messages are, every char is read
+ * straight from its byte and nothing is decoded or copied. Otherwise the bytes are decoded once into a char
+ * array the object keeps for the next text, together with the byte offset of every char.
+ *
+ * Malformed UTF-8 is read as U+FFFD. Code points above U+FFFF become two chars, as in a String.
+ *
+ * A Utf8Text can be reused for any number of texts with reset(), and only reads the bytes while it is used;
+ * they must not change until the next reset().
+ */
+public class Utf8Text implements CharSequence {
+
+	private static final char REPLACEMENT = '\uFFFD';
+
+	private byte[] array;
+	private ByteBuffer buffer;
+	private int byteStart;
+	private int byteLength;
+	private boolean ascii = true;
+
+	// Only used when the text is not ASCII.
+	private char[] chars = new char[0];
+	private int[] charToByte = new int[] { 0 };
+	private int length;
+
+	/**
+	 * Creates an empty text.
+	 */
+	public Utf8Text() {
+		;
+	}
+
+	/**
+	 * Creates a text over a range of a byte array.
+	 * @param bytes the UTF-8 bytes
+	 * @param offset the position of the first byte of the text
+	 * @param length the number of bytes in the text
+	 */
+	public Utf8Text(byte[] bytes, int offset, int length) {
+		reset(bytes, offset, length);
+	}
+
+	/**
+	 * Creates a text over the remaining bytes of a ByteBuffer.
+	 * @param bytes the UTF-8 bytes from the buffer's position to its limit
+	 */
+	public Utf8Text(ByteBuffer bytes) {
+		reset(bytes);
+	}
+
+	/**
+	 * Makes this object the text held in a range of a byte array.
+	 * @param bytes the UTF-8 bytes
+	 * @param offset the position of the first byte of the text
+	 * @param length the number of bytes in the text
+	 * @return this text
+	 * @throws IndexOutOfBoundsException if the range is not inside the array
+	 */
+	public Utf8Text reset(byte[] bytes, int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > bytes.length || offset + length < 0) {
+			throw new IndexOutOfBoundsException("Range " + offset + " + " + length + " is not inside the array");
+		}
+		array = bytes;
+		buffer = null;
+		byteStart = offset;
+		byteLength = length;
+		scan();
+		return this;
+	}
+
+	/**
+	 * Makes this object the text held in the remaining bytes of a ByteBuffer. The position of the buffer is not
+	 * changed.
+	 * @param bytes the UTF-8 bytes from the buffer's position to its limit
+	 * @return this text
+	 */
+	public Utf8Text reset(ByteBuffer bytes) {
+		if (bytes.hasArray()) {
+			return reset(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+		}
+		array = null;
+		buffer = bytes;
+		byteStart = bytes.position();
+		byteLength = bytes.remaining();
+		scan();
+		return this;
+	}
+
+	/**
+	 * Tells whether the text is all ASCII, in which case char offsets and byte offsets are the same.
+	 * @return true if every byte of the text is ASCII
+	 */
+	public boolean isAscii() {
+		return ascii;
+	}
+
+	/**
+	 * Gets the number of bytes in the text.
+	 * @return the length of the text in bytes
+	 */
+	public int byteLength() {
+		return byteLength;
+	}
+
+	/**
+	 * Gets the offset of the byte where a char starts, counted from the first byte of the text. The offset of
+	 * the position just past the last char is the length of the text in bytes. The second char of a code point
+	 * above U+FFFF has the offset of the code point.
+	 * @param index the position of a char, from 0 to length()
+	 * @return the offset of its first byte
+	 * @throws IndexOutOfBoundsException if the index is not in the text
+	 */
+	public int byteOffset(int index) {
+		if (index < 0 || index > length()) {
+			throw new IndexOutOfBoundsException("Index " + index + " is not in the text");
+		}
+		return ascii ? index : charToByte[index];
+	}
+
+	@Override
+	public int length() {
+		return ascii ? byteLength : length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (ascii) {
+			if (index < 0 || index >= byteLength) {
+				throw new IndexOutOfBoundsException("Index " + index + " is not in the text");
+			}
+			return (char) byteAt(byteStart + index);
+		}
+		if (index >= length) {
+			throw new IndexOutOfBoundsException("Index " + index + " is not in the text");
+		}
+		return chars[index];
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		if (start < 0 || start > end || end > length()) {
+			throw new IndexOutOfBoundsException("Range " + start + " to " + end + " is not in the text");
+		}
+		if (!ascii) {
+			return new String(chars, start, end - start);
+		}
+		if (array != null) {
+			return new String(array, byteStart + start, end - start, StandardCharsets.US_ASCII);
+		}
+		char[] sub = new char[end - start];
+		for (int i = 0; i < sub.length; i++) {
+			sub[i] = (char) buffer.get(byteStart + start + i);
+		}
+		return new String(sub);
+	}
+
+	@Override
+	public String toString() {
+		return subSequence(0, length()).toString();
+	}
+
+	private byte byteAt(int i) {
+		return array != null ? array[i] : buffer.get(i);
+	}
+
+	/*
+	 * Checks whether the bytes are all ASCII and decodes them if they are not.
+	 */
+	private void scan() {
+		int end = byteStart + byteLength;
+		int i = byteStart;
+		if (array != null) {
+			while (i < end && array[i] >= 0) {
+				i++;
+			}
+		} else {
+			while (i < end && buffer.get(i) >= 0) {
+				i++;
+			}
+		}
+		ascii = i == end;
+		if (!ascii) {
+			decode(i - byteStart);
+		}
+	}
+
+	/*
+	 * Decodes the text into chars. The first asciiLength bytes are known to be ASCII.
+	 */
+	private void decode(int asciiLength) {
+		// A UTF-8 text never has more chars than bytes.
+		if (chars.length < byteLength) {
+			chars = new char[Math.max(byteLength, 2 * chars.length)];
+			charToByte = new int[chars.length + 1];
+		}
+		int n = 0;
+		for (; n < asciiLength; n++) {
+			chars[n] = (char) byteAt(byteStart + n);
+			charToByte[n] = n;
+		}
+
+		int end = byteStart + byteLength;
+		int i = byteStart + asciiLength;
+		while (i < end) {
+			int b = byteAt(i) & 0xff;
+			int offset = i - byteStart;
+			if (b < 0x80) {
+				chars[n] = (char) b;
+				charToByte[n++] = offset;
+				i++;
+				continue;
+			}
+
+			int more;
+			int codePoint;
+			int min;
+			if (b >= 0xc2 && b <= 0xdf) {
+				more = 1;
+				codePoint = b & 0x1f;
+				min = 0x80;
+			} else if (b >= 0xe0 && b <= 0xef) {
+				more = 2;
+				codePoint = b & 0x0f;
+				min = 0x800;
+			} else if (b >= 0xf0 && b <= 0xf4) {
+				more = 3;
+				codePoint = b & 0x07;
+				min = 0x10000;
+			} else {
+				chars[n] = REPLACEMENT;
+				charToByte[n++] = offset;
+				i++;
+				continue;
+			}
+
+			int j = i + 1;
+			while (more > 0 && j < end && (byteAt(j) & 0xc0) == 0x80) {
+				codePoint = (codePoint << 6) | (byteAt(j) & 0x3f);
+				j++;
+				more--;
+			}
+			if (more > 0) {
+				// The sequence is cut short: replace what there is of it.
+				chars[n] = REPLACEMENT;
+				charToByte[n++] = offset;
+				i = j;
+			} else if (codePoint < min || codePoint > Character.MAX_CODE_POINT
+					|| codePoint >= Character.MIN_SURROGATE && codePoint <= Character.MAX_SURROGATE) {
+				// Overlong, too large or a surrogate: the lead byte is malformed and so are the bytes after it.
+				chars[n] = REPLACEMENT;
+				charToByte[n++] = offset;
+				i++;
+			} else if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+				chars[n] = (char) codePoint;
+				charToByte[n++] = offset;
+				i = j;
+			} else {
+				chars[n] = Character.highSurrogate(codePoint);
+				charToByte[n++] = offset;
+				chars[n] = Character.lowSurrogate(codePoint);
+				charToByte[n++] = offset;
+				i = j;
+			}
+		}
+		charToByte[n] = byteLength;
+		length = n;
+	}
+
+}
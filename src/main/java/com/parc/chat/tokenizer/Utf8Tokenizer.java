@@ -0,0 +1,143 @@
+package com.parc.chat.tokenizer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Tokenizes UTF-8 bytes, such as messages read from a socket or a file, without decoding them into a String.
+ * The bytes are read through a {@link Utf8Text}, so an ASCII message is tokenized straight from its bytes and
+ * any other message is decoded once into a reused char array. The tokens are the ones {@link MicroTextTokenizer}
+ * finds in the decoded text, since it is the same tokenizer that runs over it.
+ *
+ * The start and end offsets of the tokens are byte offsets counted from the first byte of the message, unless
+ * the tokenizer is set to report char offsets, which are counted from its first char. The character positions
+ * of the tokens, as LabeledToken reports them, are always char offsets.
+ *
+ * A Utf8Tokenizer reuses its buffers from one message to the next and is not thread-safe.
+ */
+public class Utf8Tokenizer {
+
+	private final MicroTextTokenizer tokenizer = new MicroTextTokenizer();
+	private final Utf8Text text = new Utf8Text();
+	private final OffsetSink offsetSink = new OffsetSink();
+	private boolean charOffsets = false;
+
+	/**
+	 * Gets the tokenizer that runs over the decoded text, for example to set the top-level domains it
+	 * recognizes.
+	 * @return the tokenizer
+	 */
+	public MicroTextTokenizer getTokenizer() {
+		return tokenizer;
+	}
+
+	/**
+	 * Gets the text of the last message tokenized. It is only valid until the next message is tokenized.
+	 * @return the text of the last message
+	 */
+	public Utf8Text getText() {
+		return text;
+	}
+
+	/**
+	 * Tells whether tokens are reported with char offsets instead of byte offsets.
+	 * @return true if the offsets of the tokens are char offsets
+	 */
+	public boolean isCharOffsets() {
+		return charOffsets;
+	}
+
+	/**
+	 * Sets whether tokens are reported with char offsets, as MicroTextTokenizer reports them for the decoded
+	 * text, instead of byte offsets, which is the default.
+	 * @param charOffsets true to report char offsets
+	 */
+	public void setCharOffsets(boolean charOffsets) {
+		this.charOffsets = charOffsets;
+	}
+
+	/**
+	 * Tokenizes a message held in a range of a byte array.
+	 * @param utf8 the bytes
+	 * @param offset the position of the first byte of the message
+	 * @param length the number of bytes in the message
+	 * @param tokenBuffer the buffer that receives the tokens
+	 * @return the buffer passed in
+	 */
+	public TokenBuffer tokenize(byte[] utf8, int offset, int length, TokenBuffer tokenBuffer) {
+		return tokenize(text.reset(utf8, offset, length), tokenBuffer);
+	}
+
+	/**
+	 * Tokenizes a message held in the remaining bytes of a ByteBuffer. The position of the buffer is not changed.
+	 * @param utf8 the bytes from the buffer's position to its limit
+	 * @param tokenBuffer the buffer that receives the tokens
+	 * @return the buffer passed in
+	 */
+	public TokenBuffer tokenize(ByteBuffer utf8, TokenBuffer tokenBuffer) {
+		return tokenize(text.reset(utf8), tokenBuffer);
+	}
+
+	/**
+	 * Tokenizes a message held in a range of a byte array and passes each token to a sink. The source the sink
+	 * gets is the decoded message.
+	 * @param utf8 the bytes
+	 * @param offset the position of the first byte of the message
+	 * @param length the number of bytes in the message
+	 * @param tokenSink the sink that receives the tokens
+	 * @return true if the whole message was tokenized, false if the sink stopped the tokenizer
+	 */
+	public boolean tokenize(byte[] utf8, int offset, int length, TokenSink tokenSink) {
+		return tokenize(text.reset(utf8, offset, length), tokenSink);
+	}
+
+	/**
+	 * Tokenizes a message held in the remaining bytes of a ByteBuffer and passes each token to a sink. The
+	 * position of the buffer is not changed.
+	 * @param utf8 the bytes from the buffer's position to its limit
+	 * @param tokenSink the sink that receives the tokens
+	 * @return true if the whole message was tokenized, false if the sink stopped the tokenizer
+	 */
+	public boolean tokenize(ByteBuffer utf8, TokenSink tokenSink) {
+		return tokenize(text.reset(utf8), tokenSink);
+	}
+
+	private TokenBuffer tokenize(Utf8Text message, TokenBuffer tokenBuffer) {
+		tokenizer.tokenize(message, tokenBuffer);
+		if (!charOffsets) {
+			tokenBuffer.toByteOffsets(message);
+		}
+		return tokenBuffer;
+	}
+
+	private boolean tokenize(Utf8Text message, TokenSink tokenSink) {
+		if (charOffsets || message.isAscii()) {
+			return tokenizer.tokenize(message, tokenSink);
+		}
+		offsetSink.target = tokenSink;
+		try {
+			return tokenizer.tokenize(message, offsetSink);
+		} finally {
+			offsetSink.target = null;
+		}
+	}
+
+	/*
+	 * Passes tokens on to another sink with their char offsets replaced by byte offsets.
+	 */
+	private class OffsetSink implements TokenSink {
+		TokenSink target;
+
+		@Override
+		public boolean token(TokenType type, int start, int end, CharSequence source, char[] lexeme, int lexemeOffset, int lexemeLength) {
+			return target.token(type, text.byteOffset(start), text.byteOffset(end), source, lexeme, lexemeOffset, lexemeLength);
+		}
+
+		@Override
+		public boolean token(TokenType type, String label, int start, int end, CharSequence source, char[] lexeme,
+				int lexemeOffset, int lexemeLength) {
+			return target.token(type, label, text.byteOffset(start), text.byteOffset(end), source, lexeme, lexemeOffset,
+					lexemeLength);
+		}
+	}
+
+}
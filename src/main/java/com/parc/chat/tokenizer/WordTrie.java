@@ -0,0 +1,266 @@
+package com.parc.chat.tokenizer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A set of words stored as a compact character trie. The tokenizer uses tries for the protocols that start a
+ * URL and for the top-level domains that end a hostname or an email address. Looking up a word takes one step
+ * per character, whether the trie holds ten words or the full list of top-level domains.
+ *
+ * Words are stored in lowercase. Lookups can fold ASCII letters to lowercase, as the case-insensitive
+ * expressions the tokenizer used to match with did.
+ *
+ * A trie can be read from a list with one word per line, such as the list of top-level domains published by
+ * IANA. Blank lines and lines starting with '#' are skipped.
+ */
+public final class WordTrie {
+
+	// Node n has the children childNode[firstChild[n]] to childNode[firstChild[n + 1] - 1], labeled by the
+	// characters at the same positions of childChar in ascending order. Node 0 is the root.
+	private final int[] firstChild;
+	private final char[] childChar;
+	private final int[] childNode;
+	private final boolean[] isWord;
+	private final int size;
+
+	/**
+	 * Creates a trie holding the given words.
+	 * @param words the words; they are converted to lowercase
+	 */
+	public WordTrie(Collection<String> words) {
+		TreeSet<String> sorted = new TreeSet<String>();
+		for (String word : words) {
+			if (word.length() > 0) {
+				sorted.add(word.toLowerCase(Locale.ROOT));
+			}
+		}
+		size = sorted.size();
+
+		// Build a tree of maps first, then number its nodes breadth first.
+		List<TreeMap<Character, Integer>> nodes = new ArrayList<TreeMap<Character, Integer>>();
+		List<Boolean> wordEnds = new ArrayList<Boolean>();
+		nodes.add(new TreeMap<Character, Integer>());
+		wordEnds.add(Boolean.FALSE);
+		for (String word : sorted) {
+			int node = 0;
+			for (int i = 0; i < word.length(); i++) {
+				Integer child = nodes.get(node).get(word.charAt(i));
+				if (child == null) {
+					child = nodes.size();
+					nodes.get(node).put(word.charAt(i), child);
+					nodes.add(new TreeMap<Character, Integer>());
+					wordEnds.add(Boolean.FALSE);
+				}
+				node = child;
+			}
+			wordEnds.set(node, Boolean.TRUE);
+		}
+
+		int[] order = new int[nodes.size()];
+		int[] number = new int[nodes.size()];
+		int count = 1;
+		for (int i = 0; i < count; i++) {
+			for (int child : nodes.get(order[i]).values()) {
+				number[child] = count;
+				order[count++] = child;
+			}
+		}
+
+		firstChild = new int[nodes.size() + 1];
+		childChar = new char[nodes.size() - 1];
+		childNode = new int[nodes.size() - 1];
+		isWord = new boolean[nodes.size()];
+		int edge = 0;
+		for (int n = 0; n < nodes.size(); n++) {
+			firstChild[n] = edge;
+			isWord[n] = wordEnds.get(order[n]);
+			for (Map.Entry<Character, Integer> child : nodes.get(order[n]).entrySet()) {
+				childChar[edge] = child.getKey();
+				childNode[edge] = number[child.getValue()];
+				edge++;
+			}
+		}
+		firstChild[nodes.size()] = edge;
+	}
+
+	/**
+	 * Creates a trie holding the given words.
+	 * @param words the words; they are converted to lowercase
+	 */
+	public WordTrie(String... words) {
+		this(Arrays.asList(words));
+	}
+
+	/**
+	 * Reads a trie from a word list with one word per line.
+	 * @param reader the word list
+	 * @return a new trie
+	 * @throws IOException if the list cannot be read
+	 */
+	public static WordTrie read(Reader reader) throws IOException {
+		List<String> words = new ArrayList<String>();
+		BufferedReader in = new BufferedReader(reader);
+		String line;
+		while ((line = in.readLine()) != null) {
+			line = line.trim();
+			if (line.length() > 0 && line.charAt(0) != '#') {
+				words.add(line);
+			}
+		}
+		return new WordTrie(words);
+	}
+
+	/**
+	 * Reads a trie from a UTF-8 word list file with one word per line.
+	 * @param file the word list
+	 * @return a new trie
+	 * @throws IOException if the file cannot be read
+	 */
+	public static WordTrie read(File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		try {
+			return read(new InputStreamReader(in, StandardCharsets.UTF_8));
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Reads a trie from a UTF-8 word list on the classpath with one word per line.
+	 * @param name the name of the resource, as passed to {@link ClassLoader#getResourceAsStream(String)}
+	 * @return a new trie
+	 * @throws IOException if the resource does not exist or cannot be read
+	 */
+	public static WordTrie readResource(String name) throws IOException {
+		ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		if (loader == null) {
+			loader = WordTrie.class.getClassLoader();
+		}
+		InputStream in = loader.getResourceAsStream(name);
+		if (in == null) {
+			throw new IOException("Word list resource not found: " + name);
+		}
+		try {
+			return read(new InputStreamReader(in, StandardCharsets.UTF_8));
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Gets the number of words in the trie.
+	 * @return the number of words
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks whether a word is in the trie, ignoring the case of ASCII letters.
+	 * @param word the word to look up
+	 * @return true if the trie holds the word
+	 */
+	public boolean contains(CharSequence word) {
+		return matches(word, 0, word.length(), true);
+	}
+
+/*-------------------- Lookups used by the tokenizer --------------------*/
+
+	/*
+	 * Returns true if the characters from start to stop make up a word of the trie.
+	 */
+	boolean matches(CharSequence text, int start, int stop, boolean ignoreCase) {
+		int node = 0;
+		for (int i = start; i < stop && node >= 0; i++) {
+			node = child(node, text.charAt(i), ignoreCase);
+		}
+		return node >= 0 && isWord[node];
+	}
+
+	/*
+	 * Returns the length of the longest word of the trie that starts at pos and ends before end, or 0.
+	 */
+	int longestPrefix(CharSequence text, int pos, int end, boolean ignoreCase) {
+		int node = 0;
+		int len = 0;
+		for (int i = pos; i < end; i++) {
+			node = child(node, text.charAt(i), ignoreCase);
+			if (node < 0) {
+				break;
+			}
+			if (isWord[node]) {
+				len = i + 1 - pos;
+			}
+		}
+		return len;
+	}
+
+	/*
+	 * Returns the length of the word of the trie that starts at pos and is followed by the given suffix, or 0.
+	 * When several words qualify, the shortest one is taken.
+	 */
+	int prefixFollowedBy(CharSequence text, int pos, int end, String suffix, boolean ignoreCase) {
+		int node = 0;
+		for (int i = pos; i < end; i++) {
+			node = child(node, text.charAt(i), ignoreCase);
+			if (node < 0) {
+				return 0;
+			}
+			if (isWord[node] && startsWith(text, i + 1, end, suffix)) {
+				return i + 1 - pos;
+			}
+		}
+		return 0;
+	}
+
+	private static boolean startsWith(CharSequence text, int pos, int end, String prefix) {
+		if (pos + prefix.length() > end) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length(); i++) {
+			if (text.charAt(pos + i) != prefix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/*
+	 * Returns the child of a node labeled with c, or -1.
+	 */
+	private int child(int node, char c, boolean ignoreCase) {
+		if (ignoreCase && c >= 'A' && c <= 'Z') {
+			c += 'a' - 'A';
+		}
+		int low = firstChild[node];
+		int high = firstChild[node + 1] - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			char label = childChar[mid];
+			if (label < c) {
+				low = mid + 1;
+			} else if (label > c) {
+				high = mid - 1;
+			} else {
+				return childNode[mid];
+			}
+		}
+		return -1;
+	}
+
+}
@@ -0,0 +1,89 @@
+package com.parc.chat.tokenizer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * A Java Flight Recorder event for a call of tokenize() that took longer than the threshold of the recording,
+ * 10 ms unless the recording sets another, for example with
+ * {@code jfr configure +com.parc.chat.tokenizer.SlowTokenize#threshold=1ms} or in a .jfc file. The event tells
+ * how long the text was and where the time went, but holds nothing of the text itself.
+ *
+ * MicroTextTokenizer creates the events through {@link Events}, which it only loads when the library was built
+ * with the jdk17 profile and the jdk.jfr module is present. While no recording has the event enabled, the
+ * tokenizer does not even read the clock for it.
+ */
+@Name("com.parc.chat.tokenizer.SlowTokenize")
+@Label("Slow Tokenize")
+@Category("MicroText Tokenizer")
+@Description("A text that took long to tokenize")
+@Threshold("10 ms")
+final class SlowTokenizeEvent extends jdk.jfr.Event implements TokenizeEvents.Event {
+
+	@Label("Message Length")
+	@Description("The length of the text in characters")
+	int messageLength;
+
+	@Label("Token Count")
+	int tokenCount;
+
+	@Label("Recognizers")
+	@Description("The recognizers that were tried on the text")
+	String recognizers;
+
+	@Label("Recognizer Time")
+	@Description("The time spent in the recognizers of emoticons, links and custom tokens")
+	@Timespan(Timespan.NANOSECONDS)
+	long recognizerTime;
+
+	@Label("State Machine Time")
+	@Description("The time spent in the state machine and everything else but the recognizers")
+	@Timespan(Timespan.NANOSECONDS)
+	long stateMachineTime;
+
+	@Label("Degraded")
+	@Description("Whether the text was too long or ran out of time and was only split at whitespace and punctuation")
+	boolean degraded;
+
+	@Override
+	public boolean finish() {
+		end();
+		return shouldCommit();
+	}
+
+	@Override
+	public void commit(int messageLength, int tokenCount, String recognizers, long recognizerTime, long stateMachineTime,
+			boolean degraded) {
+		this.messageLength = messageLength;
+		this.tokenCount = tokenCount;
+		this.recognizers = recognizers;
+		this.recognizerTime = recognizerTime;
+		this.stateMachineTime = stateMachineTime;
+		this.degraded = degraded;
+		commit();
+	}
+
+	/**
+	 * Creates the events, and is loaded by name by MicroTextTokenizer.
+	 */
+	static final class Events implements TokenizeEvents {
+
+		// Tells whether a recording has the event enabled without creating one.
+		private static final SlowTokenizeEvent PROBE = new SlowTokenizeEvent();
+
+		@Override
+		public TokenizeEvents.Event begin() {
+			if (!PROBE.isEnabled()) {
+				return null;
+			}
+			SlowTokenizeEvent event = new SlowTokenizeEvent();
+			event.begin();
+			return event;
+		}
+	}
+
+}
@@ -0,0 +1,57 @@
+package com.parc.chat.tokenizer;
+
+import java.util.Arrays;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/*
+ * Scans 8, 16 or 32 characters at a time, depending on the vector width of the CPU, with the incubating Vector
+ * API. This class is compiled only by the jdk17 profile and loaded by PreScan only when the
+ * jdk.incubator.vector module is present, for example with --add-modules jdk.incubator.vector.
+ */
+final class VectorCharScanner implements CharScanner {
+
+	private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+
+	@Override
+	public boolean scan(char[] chars, int length, long[] spaceBits, long[] triggerBits) {
+		int words = (length + 63) >>> 6;
+		Arrays.fill(spaceBits, 0, words, 0L);
+		Arrays.fill(triggerBits, 0, words, 0L);
+
+		// The number of lanes divides 64, so the bits of one vector always fall in the same word.
+		int lanes = SPECIES.length();
+		int bound = SPECIES.loopBound(length);
+		boolean ascii = true;
+		int i = 0;
+		for (; i < bound; i += lanes) {
+			ShortVector v = ShortVector.fromCharArray(SPECIES, chars, i);
+			VectorMask<Short> space = v.compare(VectorOperators.EQ, (short) ' ')
+					.or(v.compare(VectorOperators.GE, (short) '\t').and(v.compare(VectorOperators.LE, (short) '\r')));
+			VectorMask<Short> trigger = v.compare(VectorOperators.EQ, (short) '@')
+					.or(v.compare(VectorOperators.EQ, (short) ':'))
+					.or(v.compare(VectorOperators.EQ, (short) '.'));
+			if (ascii && v.compare(VectorOperators.UNSIGNED_GE, (short) 0x80).anyTrue()) {
+				ascii = false;
+			}
+			spaceBits[i >>> 6] |= space.toLong() << i;
+			triggerBits[i >>> 6] |= trigger.toLong() << i;
+		}
+
+		for (; i < length; i++) {
+			char c = chars[i];
+			if (c >= 128) {
+				ascii = false;
+			} else if (LookaheadRecognizer.isSpace(c)) {
+				spaceBits[i >>> 6] |= 1L << i;
+			} else if (c == '@' || c == ':' || c == '.') {
+				triggerBits[i >>> 6] |= 1L << i;
+			}
+		}
+		return ascii;
+	}
+
+}
@@ -0,0 +1,103 @@
+package com.parc.chat.tokenizer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class CorpusTokenizerTest {
+
+	private static final String[] LINES = {
+		"I just got my Samsung Galaxy 4 and I love it! :-)",
+		"",
+		"Prof. D.H. Jones, Mr. x and Dr smith met at 12:30 p.m. today.\r",
+		"reach henderson453@yahoo.com or http://www.gooddeals.com/asdf/asdfh.php. Act now!",
+		"café ‘au lait’ 😀 ok",
+		"@someone #hashtag it's $1,000.00 for testpage.htm ... www.parc.com/XLE.html",
+	};
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void everyLineWithItsByteOffset() throws IOException {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 50; i++) {
+			text.append(LINES[i % LINES.length]).append('\n');
+		}
+		text.append("no newline at the end");
+		File file = folder.newFile("corpus.txt");
+		byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+		Files.write(file.toPath(), bytes);
+
+		// Segments much shorter than the lines check that segments are extended to the end of the line.
+		for (int segmentSize : new int[] { 1, 100, 1000, CorpusTokenizer.DEFAULT_SEGMENT_SIZE }) {
+			final Map<Long, String> messages = new ConcurrentSkipListMap<Long, String>();
+			CorpusTokenizer tokenizer = new CorpusTokenizer(3, segmentSize);
+			try {
+				tokenizer.tokenize(file.toPath(), new CorpusHandler() {
+					@Override
+					public void message(long byteOffset, int byteLength, CharSequence message, TokenBuffer tokens) {
+						messages.put(byteOffset, byteLength + ":" + message + ":" + describe(tokens));
+					}
+				});
+			} finally {
+				tokenizer.close();
+			}
+
+			List<String> expected = new ArrayList<String>();
+			List<String> actual = new ArrayList<String>();
+			MicroTextTokenizer lineTokenizer = new MicroTextTokenizer();
+			TokenBuffer tokens = new TokenBuffer();
+			int lineStart = 0;
+			for (int i = 0; i <= bytes.length; i++) {
+				if (i == bytes.length || bytes[i] == '\n') {
+					int lineEnd = i > lineStart && bytes[i - 1] == '\r' ? i - 1 : i;
+					String line = new String(bytes, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+					lineTokenizer.tokenize(line, tokens);
+					expected.add(lineStart + "=" + (lineEnd - lineStart) + ":" + line + ":" + describe(tokens));
+					lineStart = i + 1;
+				}
+			}
+			for (Map.Entry<Long, String> message : messages.entrySet()) {
+				actual.add(message.getKey() + "=" + message.getValue());
+			}
+			assertEquals("segment size " + segmentSize, expected, actual);
+		}
+	}
+
+	@Test
+	public void emptyFile() throws IOException {
+		File file = folder.newFile("empty.txt");
+		CorpusTokenizer tokenizer = new CorpusTokenizer(2);
+		try {
+			tokenizer.tokenize(file.toPath(), new CorpusHandler() {
+				@Override
+				public void message(long byteOffset, int byteLength, CharSequence message, TokenBuffer tokens) {
+					fail("No message expected");
+				}
+			});
+		} finally {
+			tokenizer.close();
+		}
+	}
+
+	private static String describe(TokenBuffer tokens) {
+		StringBuilder description = new StringBuilder();
+		for (int i = 0; i < tokens.size(); i++) {
+			description.append(tokens.getStem(i)).append('/').append(tokens.getTokenType(i)).append('@')
+					.append(tokens.getStart(i)).append('-').append(tokens.getEnd(i)).append(' ');
+		}
+		return description.toString();
+	}
+
+}
@@ -29,5 +29,52 @@ public class EmoticonFSTTest {
 		assertEquals(3, len);
 	}
 
+	@Test
+	public void testWithinBounds() {
+		String text = "see :-) there";
+		assertEquals(3, EmoticonFST.recognizeEmoticon(text, 4, 7));
+		assertEquals(3, EmoticonFST.recognizeEmoticon(new StringBuilder(text), 4, text.length()));
+		assertEquals(0, EmoticonFST.recognizeEmoticon(text, 4, 6));
+	}
+
+	@Test
+	public void longestMatch() {
+		assertEquals(2, EmoticonFST.recognizeEmoticon(":))"));
+		assertEquals(3, EmoticonFST.recognizeEmoticon(":-)."));
+		assertEquals(0, EmoticonFST.recognizeEmoticon(":-:)"));
+		assertEquals(0, EmoticonFST.recognizeEmoticon(":"));
+		assertEquals(0, EmoticonFST.recognizeEmoticon(": x"));
+		assertEquals(0, EmoticonFST.recognizeEmoticon("12:30", 2));
+		assertEquals(0, EmoticonFST.recognizeEmoticon("http://x", 4));
+	}
+
+	@Test
+	public void moreForms() {
+		String[] emoticons = { ":'(", ":'-)", ">:(", ">;-D", "(:", "(-;", "<3", "</3", "o_O", "O_o", "^_^", "-_-", "T_T", ">_<" };
+		for (String emoticon : emoticons) {
+			assertEquals(emoticon, emoticon.length(), EmoticonFST.recognizeEmoticon(emoticon + " ok"));
+			assertEquals(emoticon, emoticon.length(), EmoticonFST.recognizeEmoticon(emoticon + "!"));
+		}
+	}
+
+	@Test
+	public void wordBoundaries() {
+		assertEquals(0, EmoticonFST.recognizeEmoticon("<30"));
+		assertEquals(0, EmoticonFST.recognizeEmoticon("(:x"));
+		assertEquals(0, EmoticonFST.recognizeEmoticon("o_OK"));
+		assertEquals(0, EmoticonFST.recognizeEmoticon(":Dear"));
+		assertEquals(0, EmoticonFST.recognizeEmoticon(":-p2"));
+		assertEquals(2, EmoticonFST.recognizeEmoticon(":D!"));
+		assertEquals(3, EmoticonFST.recognizeEmoticon("hello_o", 4));
+		assertEquals(0, EmoticonFST.recognizeEmoticon("hello_o", 0, 4, 7));
+		assertEquals(3, EmoticonFST.recognizeEmoticon("hello_o", 4, 4, 7));
+	}
+
+	@Test
+	public void initialChars() {
+		for (char c = 0; c < 256; c++) {
+			assertEquals(String.valueOf(c), ":;>(<oO^-T".indexOf(c) >= 0, EmoticonFST.isInitialEmoticonChar(c));
+		}
+	}
 
 }
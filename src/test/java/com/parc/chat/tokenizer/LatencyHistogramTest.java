@@ -0,0 +1,74 @@
+package com.parc.chat.tokenizer;
+
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import com.parc.chat.tokenizer.TokenizerMetrics.LengthRange;
+
+public class LatencyHistogramTest {
+
+	@Test
+	public void buckets() {
+		assertEquals(0, LatencyHistogram.bucketOf(0));
+		assertEquals(15, LatencyHistogram.bucketOf(15));
+		assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE));
+		for (int bucket = 0; bucket < LatencyHistogram.BUCKET_COUNT - 1; bucket++) {
+			long lower = LatencyHistogram.lowerBound(bucket);
+			long upper = LatencyHistogram.upperBound(bucket);
+			assertEquals(bucket, LatencyHistogram.bucketOf(lower));
+			assertEquals(bucket, LatencyHistogram.bucketOf(upper));
+			assertEquals(upper + 1, LatencyHistogram.lowerBound(bucket + 1));
+			// Log-linear: no bucket is more than 12.5% wider than its lower bound.
+			assertTrue(upper - lower + 1 <= Math.max(1, lower / 8));
+		}
+		Random random = new Random(24);
+		for (int i = 0; i < 10000; i++) {
+			long nanos = random.nextLong() >>> (24 + random.nextInt(40));
+			int bucket = LatencyHistogram.bucketOf(nanos);
+			assertTrue(LatencyHistogram.lowerBound(bucket) <= nanos);
+			assertTrue(nanos <= LatencyHistogram.upperBound(bucket));
+		}
+	}
+
+	@Test
+	public void percentiles() {
+		long[] counts = new long[LatencyHistogram.BUCKET_COUNT];
+		// 990 texts took 1000 ns, 9 took 100 us and one took 10 ms.
+		counts[LatencyHistogram.bucketOf(1000)] = 990;
+		counts[LatencyHistogram.bucketOf(100000)] = 9;
+		counts[LatencyHistogram.bucketOf(10000000)] = 1;
+		LatencyHistogram histogram = new LatencyHistogram(LengthRange.CHARS_0_140, counts);
+		assertEquals(1000, histogram.getCount());
+		assertEquals(LatencyHistogram.upperBound(LatencyHistogram.bucketOf(1000)), histogram.getMedian());
+		assertEquals(histogram.getMedian(), histogram.getP99());
+		assertEquals(LatencyHistogram.upperBound(LatencyHistogram.bucketOf(100000)), histogram.getP999());
+		assertEquals(LatencyHistogram.upperBound(LatencyHistogram.bucketOf(10000000)), histogram.getMax());
+		assertEquals(histogram.getMax(), histogram.getValueAtPercentile(100));
+		assertTrue(histogram.getMedian() >= 1000 && histogram.getMedian() < 1125);
+		assertEquals(11890, histogram.getMean(), 1200);
+		assertArrayEquals(new long[] { 990, 9, 1 }, histogram.getBucketCounts());
+		assertEquals(3, histogram.getBucketLowerBounds().length);
+
+		LatencyHistogram twice = histogram.merge(histogram);
+		assertEquals(2000, twice.getCount());
+		assertEquals(histogram.getP999(), twice.getP999());
+
+		LatencyHistogram empty = new LatencyHistogram(LengthRange.CHARS_0_140, new long[LatencyHistogram.BUCKET_COUNT]);
+		assertEquals(0, empty.getMax());
+		assertEquals(0, empty.getP99());
+		assertEquals(0, empty.getMean(), 0);
+	}
+
+	@Test
+	public void lengthRanges() {
+		assertEquals(LengthRange.CHARS_0_140, LengthRange.of(0));
+		assertEquals(LengthRange.CHARS_0_140, LengthRange.of(140));
+		assertEquals(LengthRange.CHARS_141_280, LengthRange.of(141));
+		assertEquals(LengthRange.CHARS_281_1000, LengthRange.of(1000));
+		assertEquals(LengthRange.CHARS_1001_10000, LengthRange.of(10000));
+		assertEquals(LengthRange.CHARS_OVER_10000, LengthRange.of(10001));
+	}
+
+}
@@ -0,0 +1,201 @@
+package com.parc.chat.tokenizer;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import com.parc.chat.tokenizer.LexicalFSA.Alphabet;
+import com.parc.chat.tokenizer.LexicalFSA.State;
+
+public class LexicalFSATest {
+
+	// Characters whose class depends on the characters around them.
+	private static final char[] CONTEXT_CHARS = {
+		'\'', (char)0x2018, (char)0x2019, (char)0x201a, (char)0x201b, (char)0xff07, '.'
+	};
+
+	@Test
+	public void everyCharacter() {
+		Random random = new Random(5);
+		for (int c = 0; c <= Character.MAX_VALUE; c++) {
+			for (int k = 0; k < 4; k++) {
+				char lastchar = (char) random.nextInt(Character.MAX_VALUE + 1);
+				char lookahead = (char) random.nextInt(Character.MAX_VALUE + 1);
+				checkSymbol((char) c, lastchar, lookahead);
+			}
+			checkSymbol((char) c, (char) 0, (char) 0);
+		}
+	}
+
+	@Test
+	public void everyContext() {
+		for (char c : CONTEXT_CHARS) {
+			for (int other = 0; other <= Character.MAX_VALUE; other++) {
+				checkSymbol(c, 'a', (char) other);
+				checkSymbol(c, '1', (char) other);
+				checkSymbol(c, (char) other, 'b');
+				checkSymbol(c, (char) other, 's');
+				checkSymbol(c, (char) other, (char) other);
+			}
+		}
+	}
+
+	@Test
+	public void asciiSymbols() {
+		for (char c = 0; c < 128; c++) {
+			for (char lastchar = 0; lastchar < 128; lastchar++) {
+				for (char lookahead = 0; lookahead < 128; lookahead++) {
+					if (LexicalFSA.asciiSymbol(c, lastchar, lookahead) != LexicalFSA.symbol(c, lastchar, lookahead)) {
+						fail("Character " + (int) c + " between " + (int) lastchar + " and " + (int) lookahead);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void transitions() {
+		assertEquals(State.IN_WORD, LexicalFSA.getNextState(State.START, Alphabet.ALPHA));
+		assertEquals(State.ON_AT, LexicalFSA.getNextState(State.IN_HASH_TAG, Alphabet.AT_SIGN));
+		assertEquals(State.ON_PUNCT, LexicalFSA.getNextState(State.IN_HASH_TAG, Alphabet.PUNCT));
+		assertEquals(State.ON_UNKNOWN, LexicalFSA.getNextState(State.ERROR, Alphabet.UNKNOWN));
+		for (State state : State.values()) {
+			for (Alphabet symbol : Alphabet.values()) {
+				assertEquals(LexicalFSA.getNextState(state, symbol).ordinal(), LexicalFSA.nextState(state.ordinal(), symbol.ordinal()));
+			}
+		}
+	}
+
+	@Test
+	public void compileRejectsBadTables() {
+		checkRejected(completeTable(), 1, 1, Alphabet.PUNCT, "names PUNCT more than once");
+		checkRejected(new Object[][] { completeTable()[0] }, -1, 0, null, "has no row for ON_HASH");
+		Object[][] table = completeTable();
+		table[1] = table[0];
+		checkRejected(table, -1, 0, null, "more than one row for START");
+		table = completeTable();
+		table[2] = Arrays.copyOf(table[2], table[2].length - 2);
+		checkRejected(table, -1, 0, null, "must be a state followed by");
+	}
+
+	@Test
+	public void compileCompleteTable() {
+		byte[] transitions = LexicalFSA.compile(completeTable());
+		assertEquals(State.values().length * LexicalFSA.ALPHABET_SIZE, transitions.length);
+		for (int i = 0; i < transitions.length; i++) {
+			assertEquals(State.ON_PUNCT.ordinal(), transitions[i]);
+		}
+	}
+
+	/*
+	 * Builds a table that sends every state to ON_PUNCT on every symbol.
+	 */
+	private static Object[][] completeTable() {
+		Object[][] table = new Object[State.values().length][];
+		for (State state : State.values()) {
+			Object[] row = new Object[1 + 2 * LexicalFSA.ALPHABET_SIZE];
+			row[0] = state;
+			for (Alphabet symbol : Alphabet.values()) {
+				row[1 + 2 * symbol.ordinal()] = symbol;
+				row[2 + 2 * symbol.ordinal()] = State.ON_PUNCT;
+			}
+			table[state.ordinal()] = row;
+		}
+		return table;
+	}
+
+	/*
+	 * Replaces the symbol at a position of a row, if a row is given, and checks that compile() rejects the table.
+	 */
+	private static void checkRejected(Object[][] table, int row, int pair, Alphabet symbol, String message) {
+		if (row >= 0) {
+			table[row][1 + 2 * pair] = symbol;
+		}
+		try {
+			LexicalFSA.compile(table);
+			fail("Table should be rejected: " + message);
+		} catch (IllegalStateException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains(message));
+		}
+	}
+
+	private static void checkSymbol(char c, char lastchar, char lookahead) {
+		Alphabet expected = oldSymbol(c, lastchar, lookahead);
+		if (expected != LexicalFSA.getSymbol(c, lastchar, lookahead)) {
+			fail("Character " + (int) c + " between " + (int) lastchar + " and " + (int) lookahead + ": expected "
+					+ expected + " but was " + LexicalFSA.getSymbol(c, lastchar, lookahead));
+		}
+	}
+
+	// The if/else chain the character table replaces.
+	private static Alphabet oldSymbol(char c, char lastchar, char lookahead) {
+		Alphabet symbol = null;
+
+		if (Character.isWhitespace(c))
+			symbol = Alphabet.SPACE;
+		else if (c == '-' || c == (char)0x2012 || c == (char)0x2013 || c == (char)0x2014 || c == (char)0x2015)
+			symbol = Alphabet.HYPHEN;
+		else if (c == '=')
+			symbol = Alphabet.PUNCT;
+		else if (Character.isLetter(c))
+			symbol = Alphabet.ALPHA;
+		else if (Character.isDigit(c))
+			symbol = Alphabet.DIGIT;
+		else if (c == '"' || c == (char)0x201c || c == (char)0x201d || c == (char)0x201e || c == (char)0x201f || c == (char)0x301d || c == (char)0x301e || c == (char)0x301f || c == (char)0xff02)
+			symbol = Alphabet.PUNCT;
+		else if (c == '\'' ||  c == (char)0x2018 || c == (char)0x2019 || c == (char)0x201a || c == (char)0x201b || c == (char)0xff07)
+			if (lookahead == 's')
+				symbol = Alphabet.ALPHA;
+			else if (Character.isLetter(lookahead) && Character.isLetter(lastchar))
+				symbol = Alphabet.ALPHA;
+			else
+				symbol = Alphabet.PUNCT;
+		else if (c == '?')
+			symbol = Alphabet.QMARK;
+		else if (c == '!')
+			symbol = Alphabet.EPOINT;
+		else if (c == '.')
+			if (Character.isDigit(lookahead)) {
+				symbol = Alphabet.DECIMAL;
+			} else {
+				symbol = Alphabet.PERIOD;
+			}
+		else if (c == ',')
+			symbol = Alphabet.PUNCT;
+		else if (c == '&')
+			symbol = Alphabet.AMPERSAND;
+		else if (c == ':')
+			symbol = Alphabet.COLON;
+		else if (c == ';')
+			symbol = Alphabet.SEMICOLON;
+		else if (c == '\\')
+			symbol = Alphabet.PUNCT;
+		else if (c == '/')
+			symbol = Alphabet.PUNCT;
+		else if (c == '@')
+			symbol = Alphabet.AT_SIGN;
+		else if (c == '#')
+			symbol = Alphabet.HASH;
+		else if (c == '(' || c == '[')
+			symbol = Alphabet.OPEN_PAREN;
+		else if (c == ')')
+			symbol = Alphabet.CLOSE_PAREN;
+		else if (c == '<')
+			symbol = Alphabet.OPEN_ANGLE;
+		else if (c == '>')
+			symbol = Alphabet.CLOSE_ANGLE;
+		else if (c == '_')
+			symbol = Alphabet.ALPHA;
+		else if (c == '$')
+			symbol = Alphabet.PUNCT;
+		else if (c == '*')
+			symbol = Alphabet.ALPHA;
+		else
+			symbol = Alphabet.UNKNOWN;
+
+		return symbol;
+	}
+
+}
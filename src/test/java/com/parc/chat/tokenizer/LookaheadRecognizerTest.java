@@ -0,0 +1,141 @@
+package com.parc.chat.tokenizer;
+
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LookaheadRecognizerTest {
+
+	// The expressions the recognizer replaces, as they were defined in MicroTextTokenizer.
+	private static String protocolList = "http|https|mailto|sftp|ftp|smb|htp|htps|smtp|fax|xrxscanwebservice|mailbox|usb|webdav|webdavs";
+	private static Pattern urlPattern = Pattern.compile("^(((" + protocolList + "):\\/\\/)" + "\\S+" + ").*", Pattern.CASE_INSENSITIVE);
+	private static String domainPart = "([A-Za-z0-9-]+\\.)+(com|edu|org|net|gov|mil|co|us)";
+	private static Pattern hostnamePattern = Pattern.compile("(" + domainPart + ")", Pattern.CASE_INSENSITIVE);
+	private static Pattern hostnamePathPattern = Pattern.compile("(" + domainPart + "\\/([\\w\\d\\.\\/-])+)", Pattern.CASE_INSENSITIVE);
+	private static Pattern emailPattern = Pattern.compile("^([^\\.\\s][a-zA-Z0-9!#$%&'*+\\-/=?\\^_`{|}~]*@" + domainPart + ").*");
+	private static String fileExtension = "aiff?|au|avi|bat|bmp|class|csv|cvs|dbf|dif|docx?|eps|exe|fm3|gif|hqx|html?|java|jpeg"
+			+ "|jpg|mac|map|mdb|mid|midi|mov|mtb|mtw|pdf|png|ppt|pptx|psd|psp|qt|qxd|ra|rtf|sit|tar|tif|txt|wav|xls|xlsx|zip";
+	private static Pattern filenamePattern = Pattern.compile("^(\\S+\\.(" + fileExtension + ")).*", Pattern.CASE_INSENSITIVE);
+
+	private static final String[] FRAGMENTS = {
+		"a", "Z", "0", "-", "_", ".", "..", "/", "@", ":", "://", " ", "\t", "\n", "\u2028", "é", "😀",
+		"http", "HTTPS", "webdavs", "www", "example", "com", "Co", "us", "org", "comm", "pdf", "Docx", "midi",
+		"htm", "x@y", "!#", "'", "?", "=", "~"
+	};
+
+	@Test
+	public void emailAddresses() {
+		checkAllPositions("somebody@example.com");
+		checkAllPositions("reach henderson453@yahoo.com. or not");
+		checkAllPositions("a@b.community");
+		checkAllPositions("@@host.example.co");
+		checkAllPositions("name@Example.COM");
+		checkAllPositions("first.last@x.org\nsecond line");
+	}
+
+	@Test
+	public void urls() {
+		checkAllPositions("get the best deals at http://www.gooddeals.com/asdf/asdfh.php. Act now!");
+		checkAllPositions("WebDavS://jtmmp.parc.xerox.com/Public");
+		checkAllPositions("xhttp://a htps://b");
+		checkAllPositions("http:// nothing");
+		checkAllPositions("http://a b c");
+	}
+
+	@Test
+	public void hostnames() {
+		checkAllPositions("www.parc.com/XLE.html");
+		checkAllPositions("see www.oceana.org");
+		checkAllPositions("WSJ.com");
+		checkAllPositions("a..b.com");
+		checkAllPositions("a.b.com/");
+		checkAllPositions("under_score.com/path_x");
+		checkAllPositions("x.y.com/a/b.net/c");
+	}
+
+	@Test
+	public void filenames() {
+		checkAllPositions("open /Users/kdent/Documents/speech_rfp.docx");
+		checkAllPositions("testpage.htm is a file");
+		checkAllPositions("song.midi.x and a.ppt.pptx");
+		checkAllPositions(".pdf");
+		checkAllPositions("a.pdf\nb");
+	}
+
+	@Test
+	public void features() {
+		assertEquals(0, LookaheadRecognizer.features("lol see u 2nite ;)", 0, 18));
+		assertEquals(LookaheadRecognizer.DOT, LookaheadRecognizer.features("at 12:30. ok", 0, 12));
+		assertEquals(LookaheadRecognizer.AT | LookaheadRecognizer.DOT, LookaheadRecognizer.features("x@y.org", 0, 7));
+		assertEquals(LookaheadRecognizer.SCHEME, LookaheadRecognizer.features("http://a", 0, 8));
+		assertEquals(0, LookaheadRecognizer.features("http:/a:/", 0, 9));
+		assertEquals(0, LookaheadRecognizer.features("a://b", 1, 3));
+		assertEquals(LookaheadRecognizer.NON_ASCII | LookaheadRecognizer.AT, LookaheadRecognizer.features("é@", 0, 2));
+	}
+
+	@Test
+	public void randomText() {
+		Random random = new Random(42);
+		for (int i = 0; i < 2000; i++) {
+			StringBuilder text = new StringBuilder();
+			int count = 1 + random.nextInt(12);
+			for (int j = 0; j < count; j++) {
+				text.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+			}
+			checkAllPositions(text.toString());
+		}
+	}
+
+	private static void checkAllPositions(String text) {
+		LookaheadRecognizer recognizer = new LookaheadRecognizer();
+		recognizer.reset(text);
+		for (int pos = 0; pos < text.length(); pos++) {
+			String rest = text.substring(pos);
+			String message = "at " + pos + " in \"" + text + "\"";
+			assertEquals(message, expected(emailPattern, rest), recognizer.matchEmail(pos));
+			assertEquals(message, expected(urlPattern, rest), recognizer.matchUrl(pos));
+			assertEquals(message, expected(hostnamePathPattern, rest), recognizer.matchHostnamePath(pos));
+			assertEquals(message, expected(hostnamePattern, rest), recognizer.matchHostname(pos));
+			assertEquals(message, expected(filenamePattern, rest), recognizer.matchFilename(pos));
+		}
+
+		// match() at every position, probed in order as the tokenizer does.
+		recognizer.reset(text);
+		for (int pos = 0; pos < text.length(); pos++) {
+			String rest = text.substring(pos);
+			String message = "at " + pos + " in \"" + text + "\"";
+			int len = recognizer.match(pos);
+			if (expected(emailPattern, rest) > 0) {
+				assertEquals(message, expected(emailPattern, rest), len);
+				assertEquals(message, TokenType.EMAIL_ADDR, recognizer.getMatchType());
+			} else if (expected(urlPattern, rest) > 0) {
+				assertEquals(message, withoutFinalPeriod(rest, expected(urlPattern, rest)), len);
+				assertEquals(message, TokenType.URL, recognizer.getMatchType());
+			} else if (expected(hostnamePathPattern, rest) > 0) {
+				assertEquals(message, withoutFinalPeriod(rest, expected(hostnamePathPattern, rest)), len);
+				assertEquals(message, TokenType.URL, recognizer.getMatchType());
+			} else if (expected(hostnamePattern, rest) > 0) {
+				assertEquals(message, expected(hostnamePattern, rest), len);
+				assertEquals(message, TokenType.URL, recognizer.getMatchType());
+			} else if (expected(filenamePattern, rest) > 0) {
+				assertEquals(message, expected(filenamePattern, rest), len);
+				assertEquals(message, TokenType.FILENAME, recognizer.getMatchType());
+			} else {
+				assertEquals(message, 0, len);
+			}
+		}
+	}
+
+	private static int withoutFinalPeriod(String rest, int len) {
+		return rest.charAt(len - 1) == '.' ? len - 1 : len;
+	}
+
+	private static int expected(Pattern pattern, String rest) {
+		Matcher m = pattern.matcher(rest);
+		return m.matches() ? m.group(1).length() : 0;
+	}
+
+}
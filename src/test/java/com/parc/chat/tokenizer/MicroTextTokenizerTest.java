@@ -189,6 +189,24 @@ public class MicroTextTokenizerTest {
 		assertEquals(34, tokenStack.get(7).getCharacterPosition());
 	}
 
+	@Test
+	public void emoticonFollowedByTextTest() {
+		MicroTextTokenizer tok = new MicroTextTokenizer("Note:this :)) ok :-).");
+		assertEquals("[Note/note, :/:, this/this, :)/:), )/), ok/ok, :-)/:-), ./.]", tok.tokenize().toString());
+		assertEquals(TokenType.PUNCT, tok.tokenize().get(1).getTokenType());
+	}
+
+	@Test
+	public void letterMouthFollowedByTextTest() {
+		// A mouth that is a letter only makes an emoticon when no letter or digit follows it.
+		assertEquals("[Note/note, :/:, Do/do, it/it]", new MicroTextTokenizer("Note:Do it").tokenize().toString());
+		assertEquals("[Re/re, :/:, Ok/ok]", new MicroTextTokenizer("Re:Ok").tokenize().toString());
+		assertEquals("[Error/error, :/:, Out/out]", new MicroTextTokenizer("Error:Out").tokenize().toString());
+		MicroTextTokenizer tok = new MicroTextTokenizer("ok :D, >:P");
+		assertEquals("[ok/ok, :D/:D, ,/,, >:P/>:P]", tok.tokenize().toString());
+		assertEquals(TokenType.EMOTICON, tok.tokenize().get(1).getTokenType());
+	}
+
 	@Test
 	public void testSentenceEndDot() {
 		MicroTextTokenizer tok = new MicroTextTokenizer("the first one.");
@@ -605,4 +623,193 @@ public class MicroTextTokenizerTest {
         List<LabeledToken> tokenList = tok.tokenize();
         assertEquals("http://13.101.3.213:8080/tilde/k/kdent", tokenList.get(4).getOriginalWord());
 	}
+
+	@Test(timeout = 10000)
+	public void longMessageTest() {
+		// Lookahead for URLs and hostnames used to rescan the rest of the message at every position.
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 50000; i++) {
+			text.append("a.b");
+		}
+		text.append(".xyz");
+		MicroTextTokenizer tok = new MicroTextTokenizer(text.toString());
+		assertEquals(100003, tok.tokenize().size());
+	}
+
+	@Test
+	public void reusedTokenizerTest() {
+		String[] messages = {
+			"Hello @kdent http://tinyurl.us/asdf :)",
+			"D.H. Lawrence wrote several books",
+			"",
+			"Cake?@Username K gotta get the hair,eyebrows n nails",
+			"print testpage.pdf on beech"
+		};
+		MicroTextTokenizer reused = new MicroTextTokenizer();
+		for (String message : messages) {
+			Stack<LabeledToken> expected = new MicroTextTokenizer(message).tokenize();
+			Stack<LabeledToken> tokenStack = reused.tokenize(message);
+			assertEquals(expected.toString(), tokenStack.toString());
+			for (int i = 0; i < expected.size(); i++) {
+				assertEquals(expected.get(i).getIndex(), tokenStack.get(i).getIndex());
+				assertEquals(expected.get(i).getCharacterPosition(), tokenStack.get(i).getCharacterPosition());
+				assertEquals(expected.get(i).getTokenType(), tokenStack.get(i).getTokenType());
+			}
+			assertEquals(message, reused.getText());
+		}
+	}
+
+	@Test
+	public void resetTest() {
+		MicroTextTokenizer tok = new MicroTextTokenizer();
+		tok.reset(new StringBuilder("A string of words."));
+		tok.tokenize();
+		assertEquals("[A, string, of, words, .]", tok.getTokensAsList().toString());
+		tok.reset("Another one");
+		Stack<LabeledToken> tokenStack = tok.tokenize();
+		assertEquals("[Another, one]", tok.getTokensAsList().toString());
+		assertEquals(1, tokenStack.get(0).getIndex());
+		assertEquals(8, tok.getTokenPosition(1));
+	}
+
+	@Test
+	public void hashTagFollowedBySymbolTest() {
+		MicroTextTokenizer tok = new MicroTextTokenizer("#tag@name hi");
+		Stack<LabeledToken> tokenStack = tok.tokenize();
+		assertEquals("[#tag, @name, hi]", tok.getTokensAsList().toString());
+		assertEquals(TokenType.AT_NAME, tokenStack.get(1).getTokenType());
+
+		tok = new MicroTextTokenizer("#tag=x");
+		tokenStack = tok.tokenize();
+		assertEquals("[#tag, =, x]", tok.getTokensAsList().toString());
+		assertEquals(TokenType.PUNCT, tokenStack.get(1).getTokenType());
+	}
+
+	@Test
+	public void alphaReclassificationTest() {
+		MicroTextTokenizer tok = new MicroTextTokenizer("\u00e9t\u00e9 \u00e9\u00e9 \u212A * a_b x0 *5");
+		Stack<LabeledToken> tokenStack = tok.tokenize();
+		assertEquals(TokenType.ALPHA, tokenStack.get(0).getTokenType());
+		assertEquals(TokenType.PUNCT, tokenStack.get(1).getTokenType());
+		// The Kelvin sign is lowercased to an ASCII 'k'.
+		assertEquals("k", tokenStack.get(2).getStem());
+		assertEquals(TokenType.ALPHA, tokenStack.get(2).getTokenType());
+		assertEquals(TokenType.PUNCT, tokenStack.get(3).getTokenType());
+		assertEquals(TokenType.ALPHA, tokenStack.get(4).getTokenType());
+		assertEquals("xo", tokenStack.get(5).getStem());
+		assertEquals(TokenType.ALPHA, tokenStack.get(5).getTokenType());
+		assertEquals(TokenType.PUNCT, tokenStack.get(6).getTokenType());
+	}
+
+	@Test
+	public void asciiFastPathTest() {
+		// A non-ASCII character anywhere in the text makes the tokenizer take the Unicode path for all of it, so
+		// the same text with " \u00e9" at the end must give the same tokens before that one.
+		String text = "Hi Mr. O'Brien, it's 4.5 PM at WWW.PARC.COM/X.html :-) I'M #Done @You 2ND.";
+		MicroTextTokenizer tok = new MicroTextTokenizer();
+		TokenBuffer slow = tok.tokenize(text + " \u00e9", new TokenBuffer());
+		TokenBuffer fast = tok.tokenize(text, new TokenBuffer());
+		assertEquals("[Hi/hi, Mr./mr., O'Brien/obrien, ,/,, it's/it's, 4.5/4.5, PM/pm, at/at, WWW.PARC.COM/X.html/www.parc.com/x.html, :-)/:-), I'M/im, #Done/#done, @You/ATNAME, 2ND/2nd, ./.]", fast.toString());
+		assertEquals(fast.size() + 1, slow.size());
+		assertEquals("\u00e9", slow.getOriginalWord(fast.size()));
+		for (int i = 0; i < fast.size(); i++) {
+			assertEquals(fast.getOriginalWord(i), slow.getOriginalWord(i));
+			assertEquals(fast.getStem(i), slow.getStem(i));
+			assertEquals(fast.getTokenType(i), slow.getTokenType(i));
+			assertEquals(fast.getStart(i), slow.getStart(i));
+		}
+	}
+
+	@Test
+	public void maxMessageLengthTest() {
+		MicroTextTokenizer tok = new MicroTextTokenizer();
+		tok.setMaxMessageLength(24);
+		TokenBuffer tokens = new TokenBuffer();
+		tok.tokenize("Hi @bob :-) www.parc.com", tokens);
+		assertFalse(tok.isDegraded());
+		assertFalse(tokens.isDegraded());
+		assertEquals("[Hi/hi, @bob/ATNAME, :-)/:-), www.parc.com/www.parc.com]", tokens.toString());
+
+		tok.tokenize("Hi @bob :-) www.parc.com 42", tokens);
+		assertTrue(tok.isDegraded());
+		assertTrue(tokens.isDegraded());
+		assertEquals("[Hi/hi, @/@, bob/bob, :/:, -/-, )/), www/www, ./., parc/parc, ./., com/com, 42/42]", tokens.toString());
+		assertEquals(TokenType.PUNCT, tokens.getTokenType(1));
+		assertEquals(TokenType.NUMERIC, tokens.getTokenType(11));
+		assertEquals(25, tokens.getStart(11));
+
+		tok.tokenize("short", tokens);
+		assertFalse(tok.isDegraded());
+		assertFalse(tokens.isDegraded());
+	}
+
+	@Test
+	public void maxMessageLengthAfterAsciiTest() {
+		// A text over the limit is lowercased the same whatever the tokenizer saw before.
+		MicroTextTokenizer tok = new MicroTextTokenizer();
+		tok.setMaxMessageLength(10);
+		TokenBuffer tokens = new TokenBuffer();
+		tok.tokenize("hello", tokens);
+		tok.tokenize("ÉCOLE ÉTÉ ÜBER ALLES", tokens);
+		assertTrue(tok.isDegraded());
+		assertEquals("[ÉCOLE/école, ÉTÉ/été, ÜBER/über, ALLES/alles]", tokens.toString());
+	}
+
+	@Test(timeout = 10000)
+	public void timeBudgetTest() {
+		// Takes 20 microseconds for every 'x', so the text below would take a second.
+		Recognizer slow = new Recognizer() {
+			public boolean canStartWith(char c) {
+				return c == 'x';
+			}
+
+			public int recognize(CharSequence text, int pos, int end) {
+				long until = System.nanoTime() + 20000;
+				while (System.nanoTime() < until) {
+					// Wait.
+				}
+				return 0;
+			}
+
+			public String getLabel() {
+				return null;
+			}
+		};
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 50000; i++) {
+			text.append("x1 ");
+		}
+		MicroTextTokenizer tok = new MicroTextTokenizer();
+		tok.addRecognizer(slow);
+		tok.setTimeBudget(5000000);
+		TokenBuffer tokens = new TokenBuffer();
+		long start = System.nanoTime();
+		tok.tokenize(text, tokens);
+		assertTrue(System.nanoTime() - start < 500000000L);
+		assertTrue(tok.isDegraded());
+		assertEquals(50000, tokens.size());
+		for (int i = 0; i < tokens.size(); i++) {
+			assertEquals("x1", tokens.getOriginalWord(i));
+			assertEquals(3 * i, tokens.getStart(i));
+		}
+
+		tok.setTimeBudget(0);
+		tok.tokenize("x1 x2", tokens);
+		assertFalse(tok.isDegraded());
+	}
+
+	@Test
+	public void degradedSinkTest() {
+		MicroTextTokenizer tok = new MicroTextTokenizer();
+		tok.setMaxMessageLength(3);
+		final StringBuilder lexemes = new StringBuilder();
+		assertTrue(tok.tokenize("It's :)", new TokenSink() {
+			public boolean token(TokenType type, int start, int end, CharSequence source, char[] lexeme, int lexemeOffset, int lexemeLength) {
+				lexemes.append(lexeme, lexemeOffset, lexemeLength).append('|');
+				return true;
+			}
+		}));
+		assertTrue(tok.isDegraded());
+		assertEquals("it|'|s|:|)|", lexemes.toString());
+	}
 }
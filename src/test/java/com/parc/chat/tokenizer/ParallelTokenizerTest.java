@@ -0,0 +1,64 @@
+package com.parc.chat.tokenizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ParallelTokenizerTest {
+
+	private static final String[] FRAGMENTS = {
+		"a", "Mr", "x", "4", "1,000", ".", ". ", " ", " ", "@", "#", "'", "!", ":-)", "http://a.com/x",
+		"www.parc.com", "x@y.org", "f.pdf", "é", "\n"
+	};
+
+	@Test
+	public void resultsInInputOrder() {
+		Random random = new Random(13);
+		List<String> messages = new ArrayList<String>();
+		for (int i = 0; i < 3000; i++) {
+			StringBuilder text = new StringBuilder();
+			int count = random.nextInt(20);
+			for (int j = 0; j < count; j++) {
+				text.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+			}
+			messages.add(text.toString());
+		}
+
+		List<List<LabeledToken>> results;
+		ParallelTokenizer tokenizer = new ParallelTokenizer(4, 7);
+		try {
+			assertEquals(4, tokenizer.getParallelism());
+			results = tokenizer.tokenizeAll(messages);
+			assertEquals(results.toString(), tokenizer.tokenizeAll(messages.stream()).toString());
+		} finally {
+			tokenizer.close();
+		}
+
+		assertEquals(messages.size(), results.size());
+		for (int i = 0; i < messages.size(); i++) {
+			assertEquals(messages.get(i), new MicroTextTokenizer(messages.get(i)).tokenize().toString(), results.get(i).toString());
+		}
+	}
+
+	@Test
+	public void emptyAndNullMessages() {
+		ParallelTokenizer tokenizer = new ParallelTokenizer(2);
+		try {
+			assertEquals(0, tokenizer.tokenizeAll(new ArrayList<String>()).size());
+			List<List<LabeledToken>> results = tokenizer.tokenizeAll(Arrays.asList("one two", null, ""));
+			assertEquals("[[one/one, two/two], [], []]", results.toString());
+		} finally {
+			tokenizer.close();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void chunkSizeMustBePositive() {
+		new ParallelTokenizer(2, 0);
+	}
+
+}
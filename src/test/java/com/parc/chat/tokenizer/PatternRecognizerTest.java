@@ -0,0 +1,161 @@
+package com.parc.chat.tokenizer;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PatternRecognizerTest {
+
+	private static final String[] EXPRESSIONS = {
+		"ORD-\\d{6}", "[A-Z]{3}-[0-9A-Z]{4}", "[a-z0-9-]+\\.corp\\.example", "a(b|c)*d?", "(?:ab)+", "x{2,3}y{1,}",
+		"[^\\s.]+\\.txt", "\\w+@\\w+", "é+|ü?z", ".\\..", "[-a]\\-[\\]\\\\]"
+	};
+
+	private static final String[] FRAGMENTS = {
+		"ORD-", "123456", "1", "ABC", "-", "X9Z", "a", "b", "c", "d", "x", "y", "z", ".", "corp", "example", ".txt",
+		"@", "_", " ", "\n", "é", "ü", "]", "\\"
+	};
+
+	@Test
+	public void longestMatchLikeRegex() {
+		PatternRecognizer recognizer = new PatternRecognizer();
+		Pattern[] patterns = new Pattern[EXPRESSIONS.length];
+		for (int p = 0; p < EXPRESSIONS.length; p++) {
+			recognizer.addPattern("P" + p, EXPRESSIONS[p]);
+			patterns[p] = Pattern.compile(EXPRESSIONS[p]);
+		}
+		Random random = new Random(19);
+		for (int n = 0; n < 3000; n++) {
+			StringBuilder text = new StringBuilder();
+			for (int j = random.nextInt(8); j >= 0; j--) {
+				text.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+			}
+			for (int pos = 0; pos < text.length(); pos++) {
+				// The longest prefix any expression matches, and the first expression that matches it.
+				int expectedLength = 0;
+				int expectedPattern = -1;
+				for (int len = text.length() - pos; len > 0 && expectedPattern < 0; len--) {
+					for (int p = 0; p < patterns.length && expectedPattern < 0; p++) {
+						if (patterns[p].matcher(text.subSequence(pos, pos + len)).matches()) {
+							expectedLength = len;
+							expectedPattern = p;
+						}
+					}
+				}
+				String message = "at " + pos + " in \"" + text + "\"";
+				assertEquals(message, expectedLength, recognizer.recognize(text, pos, text.length()));
+				if (expectedPattern >= 0) {
+					assertEquals(message, "P" + expectedPattern, recognizer.getLabel());
+					assertEquals(TokenType.CUSTOM, recognizer.getTokenType());
+					assertTrue(message, recognizer.canStartWith(text.charAt(pos)));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void minimized() {
+		PatternRecognizer alternatives = new PatternRecognizer();
+		alternatives.addPattern("X", "(a|b)*c");
+		PatternRecognizer charClass = new PatternRecognizer();
+		charClass.addPattern("X", "[ab]*c");
+		assertEquals(2, charClass.getStateCount());
+		assertEquals(2, alternatives.getStateCount());
+
+		PatternRecognizer same = new PatternRecognizer();
+		same.addPattern("X", "abc|abc|a(b)c");
+		assertEquals(4, same.getStateCount());
+	}
+
+	@Test
+	public void tokenizer() {
+		PatternRecognizer recognizer = new PatternRecognizer();
+		recognizer.addPattern("ORDER", "ORD-\\d{6}");
+		recognizer.addPattern("SKU", "[A-Z]{3}-[0-9A-Z]{4}");
+		recognizer.addPattern(TokenType.URL, "[a-z0-9-]+\\.corp\\.example");
+		assertTrue(recognizer.canStartWith('O'));
+		assertTrue(recognizer.canStartWith('k'));
+		assertFalse(recognizer.canStartWith('.'));
+
+		MicroTextTokenizer tokenizer = new MicroTextTokenizer();
+		tokenizer.addRecognizer(recognizer);
+		TokenBuffer tokens = new TokenBuffer();
+		tokenizer.tokenize("ORD-123456 has ABC-12X4 from build-7.corp.example", tokens);
+		assertEquals("[ORD-123456/ord-123456, has/has, ABC-12X4/abc-12x4, from/from, build-7.corp.example/build-7.corp.example]",
+				tokens.toString());
+		assertEquals("ORDER", tokens.getLabel(0));
+		assertEquals(TokenType.CUSTOM, tokens.getTokenType(2));
+		assertEquals("SKU", tokens.getLabel(2));
+		assertEquals(TokenType.URL, tokens.getTokenType(4));
+		assertNull(tokens.getLabel(4));
+
+		try {
+			recognizer.addPattern("LATE", "x");
+			fail("Added a pattern to a DFA in use");
+		} catch (IllegalStateException e) {
+			// Expected.
+		}
+	}
+
+	@Test
+	public void manyPatterns() {
+		PatternRecognizer recognizer = new PatternRecognizer();
+		for (int i = 0; i < 200; i++) {
+			recognizer.addPattern("T" + i, "T" + i + "-\\d+");
+		}
+		assertEquals(7, recognizer.recognize("T123-45 ", 0, 8));
+		assertEquals("T123", recognizer.getLabel());
+		assertEquals(0, recognizer.recognize("T200-45", 0, 7));
+	}
+
+	@Test(timeout = 10000)
+	public void limits() {
+		// Each too large on its own, caught before the NFA is built.
+		for (String expression : new String[] { "((a{1000}){1000}){1000}", "(a{1000}){1000}", "(x|y{1000}){30}" }) {
+			try {
+				new PatternRecognizer().addPattern("X", expression);
+				fail(expression);
+			} catch (PatternSyntaxException e) {
+				assertEquals(expression, e.getPattern());
+			}
+		}
+
+		// Small enough one by one, but not together.
+		PatternRecognizer many = new PatternRecognizer();
+		for (int i = 0; i < 12; i++) {
+			many.addPattern("X" + i, "x{1000}");
+		}
+		try {
+			new MicroTextTokenizer().addRecognizer(many);
+			fail("Built " + many.getStateCount() + " states");
+		} catch (PatternSyntaxException e) {
+			assertTrue(e.getDescription(), e.getDescription().contains("NFA states"));
+		}
+
+		PatternRecognizer large = new PatternRecognizer();
+		large.addPattern("X", "[ab]*a[ab]{20}");
+		try {
+			large.getStateCount();
+			fail();
+		} catch (PatternSyntaxException e) {
+			assertTrue(e.getDescription(), e.getDescription().contains("DFA states"));
+		}
+	}
+
+	@Test
+	public void syntaxErrors() {
+		String[] invalid = { "(ab", "ab)", "[ab", "[]", "a{2,1}", "*a", "a\\1", "^a", "a$", "(?=a)", "a{1001}", "[b-a]" };
+		for (String expression : invalid) {
+			try {
+				new PatternRecognizer().addPattern("X", expression);
+				fail(expression);
+			} catch (PatternSyntaxException e) {
+				// Expected.
+			}
+		}
+	}
+
+}
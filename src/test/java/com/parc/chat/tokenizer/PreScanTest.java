@@ -0,0 +1,98 @@
+package com.parc.chat.tokenizer;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assume;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PreScanTest {
+
+	private static final String[] FRAGMENTS = {
+		"a", "Mr", "x", "4", ".", ". ", " ", " ", "\t", "\n", "@", "#", ":", ";", "/", ":-)", "http://a.com/x",
+		"www.parc.com", "x@y.org", "f.pdf", "é", " ", "　", "耠", "😀"
+	};
+
+	@Test
+	public void vectorScannerMarksSameBits() throws Exception {
+		Assume.assumeTrue("Vector API not available", PreScan.isVectorized());
+		CharScanner vector = (CharScanner) Class.forName("com.parc.chat.tokenizer.VectorCharScanner").getDeclaredConstructor().newInstance();
+		CharScanner scalar = new ScalarCharScanner();
+		Random random = new Random(23);
+		for (int n = 0; n < 2000; n++) {
+			int length = random.nextInt(300);
+			char[] chars = new char[length + random.nextInt(40)];
+			for (int i = 0; i < chars.length; i++) {
+				chars[i] = random.nextInt(4) == 0 ? (char) random.nextInt(Character.MAX_VALUE + 1) : (char) random.nextInt(128);
+			}
+			int words = (chars.length + 63) / 64 + 1;
+			long[] vectorSpaces = filled(words), vectorTriggers = filled(words);
+			long[] scalarSpaces = new long[words], scalarTriggers = new long[words];
+			assertEquals(scalar.scan(chars, length, scalarSpaces, scalarTriggers), vector.scan(chars, length, vectorSpaces, vectorTriggers));
+			for (int w = 0; w < (length + 63) / 64; w++) {
+				assertEquals(scalarSpaces[w], vectorSpaces[w]);
+				assertEquals(scalarTriggers[w], vectorTriggers[w]);
+			}
+		}
+	}
+
+	@Test
+	public void mayStartLinkWhereRecognizerTries() {
+		Random random = new Random(29);
+		PreScan preScan = new PreScan();
+		for (int n = 0; n < 2000; n++) {
+			String text = "<" + randomText(random, 30) + ">";
+			int start = 1;
+			int end = text.length() - 1;
+			preScan.scan(new StringBuilder(text), start, end);
+			boolean ascii = true;
+			for (int pos = start; pos < end; pos++) {
+				ascii &= text.charAt(pos) < 128;
+				boolean trigger = false;
+				for (int i = pos; i < end && !LookaheadRecognizer.isSpace(text.charAt(i)); i++) {
+					char c = text.charAt(i);
+					trigger |= i > pos && (c == '@' || c == ':' || c == '.');
+				}
+				assertEquals(text + " at " + pos, trigger, preScan.mayStartLink(pos));
+			}
+			assertEquals(text, ascii, preScan.isAscii());
+		}
+	}
+
+	@Test
+	public void sameTokensWithPreScan() {
+		Random random = new Random(31);
+		MicroTextTokenizer plain = new MicroTextTokenizer();
+		MicroTextTokenizer scanned = new MicroTextTokenizer();
+		scanned.setPreScan(true);
+		assertTrue(scanned.isPreScan());
+		TokenBuffer expected = new TokenBuffer();
+		TokenBuffer actual = new TokenBuffer();
+		for (int n = 0; n < 5000; n++) {
+			String text = randomText(random, 1 + random.nextInt(60));
+			plain.tokenize(text, expected);
+			scanned.tokenize(text, actual);
+			assertEquals(text, expected.toString(), actual.toString());
+			for (int i = 0; i < expected.size(); i++) {
+				assertEquals(text, expected.getTokenType(i), actual.getTokenType(i));
+				assertEquals(text, expected.getStart(i), actual.getStart(i));
+			}
+		}
+	}
+
+	private static long[] filled(int words) {
+		long[] bits = new long[words];
+		Arrays.fill(bits, -1L);
+		return bits;
+	}
+
+	private static String randomText(Random random, int count) {
+		StringBuilder text = new StringBuilder();
+		for (int j = 0; j < count; j++) {
+			text.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+		}
+		return text.toString();
+	}
+
+}
@@ -0,0 +1,201 @@
+package com.parc.chat.tokenizer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Stack;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class RecognizerTest {
+
+	/*
+	 * Recognizes stock cashtags such as $AAPL and counts how often it is called.
+	 */
+	private static class CashtagRecognizer implements Recognizer {
+		int calls;
+		int resets;
+
+		public boolean canStartWith(char c) {
+			return c == '$';
+		}
+
+		@Override
+		public void reset(CharSequence text, int start, int end) {
+			resets++;
+		}
+
+		public int recognize(CharSequence text, int pos, int end) {
+			calls++;
+			int i = pos + 1;
+			while (i < end && i - pos <= 5 && text.charAt(i) >= 'A' && text.charAt(i) <= 'Z') {
+				i++;
+			}
+			return i - pos >= 2 && i - pos <= 6 ? i - pos : 0;
+		}
+
+		public String getLabel() {
+			return "CASHTAG";
+		}
+	}
+
+	/*
+	 * Recognizes ticket IDs such as PROJ-123, reported as URLs to check that recognizers can pick the type.
+	 */
+	private static class TicketRecognizer implements Recognizer {
+		public boolean canStartWith(char c) {
+			return c >= 'A' && c <= 'Z';
+		}
+
+		public int recognize(CharSequence text, int pos, int end) {
+			int i = pos;
+			while (i < end && text.charAt(i) >= 'A' && text.charAt(i) <= 'Z') {
+				i++;
+			}
+			if (i == pos || i >= end || text.charAt(i) != '-') {
+				return 0;
+			}
+			int digits = ++i;
+			while (i < end && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+				i++;
+			}
+			return i > digits ? i - pos : 0;
+		}
+
+		@Override
+		public TokenType getTokenType() {
+			return TokenType.URL;
+		}
+
+		public String getLabel() {
+			return "TICKET";
+		}
+	}
+
+	@Test
+	public void customTokens() {
+		MicroTextTokenizer tokenizer = new MicroTextTokenizer();
+		CashtagRecognizer cashtags = new CashtagRecognizer();
+		tokenizer.addRecognizer(cashtags);
+		assertEquals(3, tokenizer.getRecognizers().size());
+
+		TokenBuffer tokens = new TokenBuffer();
+		tokenizer.tokenize("buy $AAPL and $GOOG now for $5 :-)", tokens);
+		assertEquals("[buy/buy, $AAPL/$aapl, and/and, $GOOG/$goog, now/now, for/for, $/$, 5/5, :-)/:-)]", tokens.toString());
+		assertEquals(TokenType.CUSTOM, tokens.getTokenType(1));
+		assertEquals("CASHTAG", tokens.getLabel(1));
+		assertEquals(4, tokens.getStart(1));
+		assertEquals(9, tokens.getEnd(1));
+		assertNotEquals(TokenType.CUSTOM, tokens.getTokenType(6));
+		assertNull(tokens.getLabel(6));
+		assertEquals(1, cashtags.resets);
+		// Only called where a '$' is.
+		assertEquals(3, cashtags.calls);
+
+		Stack<LabeledToken> stack = tokenizer.tokenize("$MSFT");
+		assertEquals(TokenType.CUSTOM, stack.get(0).getTokenType());
+		assertEquals("CASHTAG", stack.get(0).getLabel());
+	}
+
+	/*
+	 * Collects the type and label of every token.
+	 */
+	private static class LabelSink implements TokenSink {
+		final List<String> labels = new ArrayList<String>();
+
+		public boolean token(TokenType type, int start, int end, CharSequence source, char[] lexeme, int lexemeOffset, int lexemeLength) {
+			throw new AssertionError("Called without the label");
+		}
+
+		@Override
+		public boolean token(TokenType type, String label, int start, int end, CharSequence source, char[] lexeme,
+				int lexemeOffset, int lexemeLength) {
+			labels.add(type + "/" + label);
+			return true;
+		}
+	}
+
+	@Test
+	public void sinkLabels() {
+		PatternRecognizer patterns = new PatternRecognizer();
+		patterns.addPattern("ORDER", "ORD-\\d{6}");
+		patterns.addPattern("SKU", "[A-Z]{3}-[0-9A-Z]{4}");
+		MicroTextTokenizer tokenizer = new MicroTextTokenizer();
+		tokenizer.addRecognizer(new CashtagRecognizer());
+		tokenizer.addRecognizer(patterns);
+		String text = "ORD-123456 for $AAPL ABC-12X4 :-)";
+		LabelSink sink = new LabelSink();
+		tokenizer.tokenize(text, sink);
+		assertEquals("[CUSTOM/ORDER, ALPHA/null, CUSTOM/CASHTAG, CUSTOM/SKU, EMOTICON/null]", sink.labels.toString());
+
+		Utf8Tokenizer utf8 = new Utf8Tokenizer();
+		utf8.getTokenizer().addRecognizer(new CashtagRecognizer());
+		LabelSink utf8Sink = new LabelSink();
+		utf8.tokenize(ByteBuffer.wrap("café $AAPL".getBytes(StandardCharsets.UTF_8)), utf8Sink);
+		assertEquals("[ALPHA/null, CUSTOM/CASHTAG]", utf8Sink.labels.toString());
+	}
+
+	@Test
+	public void order() {
+		MicroTextTokenizer tokenizer = new MicroTextTokenizer();
+		tokenizer.addRecognizer(new TicketRecognizer());
+		TokenBuffer tokens = new TokenBuffer();
+		tokenizer.tokenize("see PROJ-123 and www.PROJ.com", tokens);
+		assertEquals("[see/see, PROJ-123/proj-123, and/and, www.PROJ.com/www.proj.com]", tokens.toString());
+		assertEquals(TokenType.URL, tokens.getTokenType(1));
+		assertNull(tokens.getLabel(1));
+
+		// The built-in recognizers come first unless they are moved.
+		tokenizer.tokenize("ABC-12.pdf", tokens);
+		assertEquals("[ABC-12.pdf/abc-12.pdf]", tokens.toString());
+		assertEquals(TokenType.FILENAME, tokens.getTokenType(0));
+		List<Recognizer> recognizers = tokenizer.getRecognizers();
+		Collections.reverse(recognizers);
+		tokenizer.setRecognizers(recognizers);
+		tokenizer.tokenize("ABC-12.pdf", tokens);
+		assertEquals("ABC-12", tokens.getOriginalWord(0));
+		assertEquals(TokenType.URL, tokens.getTokenType(0));
+	}
+
+	@Test
+	public void withoutBuiltInRecognizers() {
+		MicroTextTokenizer tokenizer = new MicroTextTokenizer();
+		tokenizer.setRecognizers(new ArrayList<Recognizer>());
+		TokenBuffer tokens = new TokenBuffer();
+		tokenizer.tokenize("x@y.org :-)", tokens);
+		for (int i = 0; i < tokens.size(); i++) {
+			assertNotEquals(TokenType.EMAIL_ADDR, tokens.getTokenType(i));
+			assertNotEquals(TokenType.EMOTICON, tokens.getTokenType(i));
+		}
+	}
+
+	@Test
+	public void dispatchTable() {
+		List<Recognizer> recognizers = new ArrayList<Recognizer>();
+		recognizers.add(new CashtagRecognizer());
+		recognizers.add(EmoticonFST.RECOGNIZER);
+		recognizers.add(new TicketRecognizer());
+		DispatchTable table = new DispatchTable(recognizers);
+		for (int c = 0; c <= Character.MAX_VALUE; c++) {
+			long expected = 0;
+			for (int r = 0; r < recognizers.size(); r++) {
+				if (recognizers.get(r).canStartWith((char) c)) {
+					expected |= 1L << r;
+				}
+			}
+			assertEquals(expected, table.get((char) c));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void tooManyRecognizers() {
+		MicroTextTokenizer tokenizer = new MicroTextTokenizer();
+		for (int i = 0; i < DispatchTable.MAX_RECOGNIZERS; i++) {
+			tokenizer.addRecognizer(new CashtagRecognizer());
+		}
+	}
+
+}
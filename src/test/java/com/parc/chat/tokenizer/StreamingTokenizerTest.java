@@ -0,0 +1,90 @@
+package com.parc.chat.tokenizer;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class StreamingTokenizerTest {
+
+	private static final String[] FRAGMENTS = {
+		"a", "Mr", "x", "4", "1,000", ".", ". ", " ", " ", " ", "@", "#", "'", "!", ":-)", "http://a.com/x",
+		"www.parc.com", "x@y.org", "f.pdf", "é", "\n", "\n", "\r\n", "\r"
+	};
+
+	@Test
+	public void sameTokensAsEachLine() {
+		Random random = new Random(3);
+		MicroTextTokenizer tokenizer = new MicroTextTokenizer();
+		TokenBuffer buffer = new TokenBuffer();
+		for (int n = 0; n < 2000; n++) {
+			StringBuilder text = new StringBuilder();
+			int count = random.nextInt(40);
+			for (int j = 0; j < count; j++) {
+				text.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+			}
+
+			// Tokenize each line by itself.
+			List<String> expected = new ArrayList<String>();
+			int longestLine = 0;
+			int lineStart = 0;
+			int line = 1;
+			for (int i = 0; i <= text.length(); i++) {
+				char c = i < text.length() ? text.charAt(i) : '\n';
+				if (c == '\n' || c == '\r') {
+					tokenizer.tokenize(text, lineStart, i, buffer);
+					for (int k = 0; k < buffer.size(); k++) {
+						expected.add(buffer.getStem(k) + "/" + buffer.getTokenType(k) + "@" + buffer.getStart(k) + "-" + buffer.getEnd(k) + ":" + line);
+					}
+					longestLine = Math.max(longestLine, i - lineStart);
+					if (c == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n') {
+						i++;
+					}
+					lineStart = i + 1;
+					line++;
+				}
+			}
+
+			StreamingTokenizer stream = new StreamingTokenizer(new StringReader(text.toString()), longestLine + 1 + random.nextInt(8));
+			List<String> actual = new ArrayList<String>();
+			while (stream.hasNext()) {
+				StreamToken token = stream.next();
+				actual.add(token.getStem() + "/" + token.getTokenType() + "@" + token.getStartOffset() + "-" + token.getEndOffset() + ":" + token.getLine());
+			}
+			assertEquals(text.toString(), expected, actual);
+		}
+	}
+
+	@Test
+	public void longTokensSurviveRefills() {
+		String text = "see http://www.parc.com/some/long/path ok\r\nthen :-) and me@parc.com";
+		StreamingTokenizer stream = new StreamingTokenizer(new StringReader(text), 8);
+		List<String> tokens = new ArrayList<String>();
+		while (stream.hasNext()) {
+			StreamToken token = stream.next();
+			assertEquals(token.getOriginalWord(), text.substring((int) token.getStartOffset(), (int) token.getEndOffset()));
+			tokens.add(token.getOriginalWord() + ":" + token.getLine());
+		}
+		assertEquals("[see:1, http://www.parc.com/some/long/path:1, ok:1, then:2, :-):2, and:2, me@parc.com:2]", tokens.toString());
+	}
+
+	@Test
+	public void readFromChannel() {
+		String text = "café au lait\nnext line";
+		ByteArrayInputStream in = new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+		StreamingTokenizer stream = new StreamingTokenizer(Channels.newChannel(in), StandardCharsets.UTF_8, 4);
+		List<String> tokens = new ArrayList<String>();
+		while (stream.hasNext()) {
+			StreamToken token = stream.next();
+			tokens.add(token.getStem() + "@" + token.getStartOffset());
+		}
+		assertEquals("[café@0, au@5, lait@8, next@13, line@18]", tokens.toString());
+	}
+
+}
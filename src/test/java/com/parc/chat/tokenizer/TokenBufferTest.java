@@ -0,0 +1,76 @@
+package com.parc.chat.tokenizer;
+
+import java.util.Stack;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TokenBufferTest {
+
+	private static final String[] TEXTS = {
+		"I just got my Samsung Galaxy 4 and I love it! :-)",
+		"Prof. D.H. Jones, Mr. x and Dr smith met at 12:30 p.m. today.",
+		"reach henderson453@yahoo.com or http://www.gooddeals.com/asdf/asdfh.php. Act now!",
+		"@someone #hashtag it's $1,000.00 for testpage.htm ... www.parc.com/XLE.html",
+		"Hi Mr . x, I am a b. ok",
+		"",
+	};
+
+	@Test
+	public void sameTokensAsStack() {
+		MicroTextTokenizer tokenizer = new MicroTextTokenizer();
+		TokenBuffer buffer = new TokenBuffer(1);
+		for (String text : TEXTS) {
+			Stack<LabeledToken> tokenStack = new MicroTextTokenizer(text).tokenize();
+			assertSame(buffer, tokenizer.tokenize(text, buffer));
+			assertEquals(text, tokenStack.size(), buffer.size());
+			assertEquals(tokenStack.toString(), buffer.toString());
+			for (int i = 0; i < buffer.size(); i++) {
+				LabeledToken token = tokenStack.get(i);
+				assertEquals(token.getOriginalWord(), buffer.getOriginalWord(i));
+				assertEquals(token.getOriginalWord(), buffer.getSurfaceForm(i).toString());
+				assertEquals(token.getStem(), buffer.getStem(i));
+				assertEquals(token.getStem(), buffer.getLexeme(i).toString());
+				assertEquals(token.getTokenType(), buffer.getTokenType(i));
+				assertEquals(token.getIndex(), buffer.getIndex(i));
+				assertEquals(token.getCharacterPosition(), buffer.getCharacterPosition(i));
+				assertEquals(token.toString(), buffer.getLabeledToken(i).toString());
+			}
+		}
+	}
+
+	@Test
+	public void tokenOffsets() {
+		String text = "see Mr. Jones :-) at www.parc.com";
+		TokenBuffer buffer = new MicroTextTokenizer().tokenize(text, new TokenBuffer());
+		assertEquals("[see/see, Mr./mr., Jones/jones, :-)/:-), at/at, www.parc.com/www.parc.com]", buffer.toString());
+		for (int i = 0; i < buffer.size(); i++) {
+			assertEquals(buffer.getOriginalWord(i), text.substring(buffer.getStart(i), buffer.getEnd(i)));
+		}
+	}
+
+	@Test
+	public void bufferIsClearedForNextText() {
+		MicroTextTokenizer tokenizer = new MicroTextTokenizer();
+		TokenBuffer buffer = new TokenBuffer();
+		tokenizer.tokenize("one two three four five six", buffer);
+		tokenizer.tokenize("seven", buffer);
+		assertEquals(1, buffer.size());
+		assertEquals("seven", buffer.getStem(0));
+		assertEquals(1, buffer.getIndex(0));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void indexOutOfRange() {
+		TokenBuffer buffer = new MicroTextTokenizer().tokenize("one", new TokenBuffer());
+		buffer.getStem(1);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void noListAfterBuffer() {
+		MicroTextTokenizer tokenizer = new MicroTextTokenizer();
+		tokenizer.tokenize("one", new TokenBuffer());
+		tokenizer.getTokensAsList();
+	}
+
+}
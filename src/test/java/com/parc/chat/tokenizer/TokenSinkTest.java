@@ -0,0 +1,132 @@
+package com.parc.chat.tokenizer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TokenSinkTest {
+
+	private static final String[] FRAGMENTS = {
+		"a", "b", "aa", "Mr", "dr", "x", "4", "1,000", ".", "..", ". ", " ", " ", " ", "\n", "@", "#", "-", "'",
+		"!", ":", ":-)", "http://a.com/x", "www.parc.com", "x@y.org", "f.pdf", "é"
+	};
+
+	/*
+	 * Collects the lexemes and offsets of the tokens it receives and stops after a number of tokens.
+	 */
+	private static class CollectingSink implements TokenSink {
+		private final int limit;
+		private final List<String> tokens = new ArrayList<String>();
+		private final List<String> details = new ArrayList<String>();
+
+		CollectingSink(int limit) {
+			this.limit = limit;
+		}
+
+		public boolean token(TokenType type, int start, int end, CharSequence source, char[] lexeme, int lexemeOffset, int lexemeLength) {
+			tokens.add(new String(lexeme, lexemeOffset, lexemeLength));
+			details.add(type + "@" + start + "-" + end);
+			return tokens.size() < limit;
+		}
+	}
+
+	@Test
+	public void sameTokensAsBuffer() {
+		MicroTextTokenizer tokenizer = new MicroTextTokenizer();
+		TokenBuffer buffer = new TokenBuffer();
+		Random random = new Random(7);
+		for (int i = 0; i < 5000; i++) {
+			String text = randomText(random);
+			tokenizer.tokenize(text, buffer);
+			CollectingSink sink = new CollectingSink(Integer.MAX_VALUE);
+			assertTrue(tokenizer.tokenize(text, sink));
+			assertEquals(text, buffer.size(), sink.tokens.size());
+			for (int j = 0; j < buffer.size(); j++) {
+				assertEquals(text, buffer.getStem(j), sink.tokens.get(j));
+				assertEquals(text, buffer.getTokenType(j) + "@" + buffer.getStart(j) + "-" + buffer.getEnd(j), sink.details.get(j));
+			}
+		}
+	}
+
+	@Test
+	public void regionSameAsSubstring() {
+		MicroTextTokenizer tokenizer = new MicroTextTokenizer();
+		TokenBuffer whole = new TokenBuffer();
+		TokenBuffer region = new TokenBuffer();
+		Random random = new Random(11);
+		for (int i = 0; i < 5000; i++) {
+			String before = randomText(random);
+			String text = randomText(random);
+			StringBuilder buffer = new StringBuilder(before).append(text).append(randomText(random));
+			int start = before.length();
+			int end = start + text.length();
+			boolean relative = random.nextBoolean();
+			int offset = relative ? 0 : start;
+
+			tokenizer.setPositionsRelativeToRegion(false);
+			tokenizer.tokenize(text, whole);
+			tokenizer.setPositionsRelativeToRegion(relative);
+			tokenizer.tokenize(buffer, start, end, region);
+			assertEquals(text, tokenizer.getText());
+			assertEquals(text, whole.size(), region.size());
+			for (int j = 0; j < whole.size(); j++) {
+				assertEquals(text, whole.getStem(j), region.getStem(j));
+				assertEquals(text, whole.getTokenType(j), region.getTokenType(j));
+				assertEquals(text, whole.getStart(j) + offset, region.getStart(j));
+				assertEquals(text, whole.getEnd(j) + offset, region.getEnd(j));
+				assertEquals(text, whole.getCharacterPosition(j) + offset, region.getCharacterPosition(j));
+			}
+
+			CollectingSink sink = new CollectingSink(Integer.MAX_VALUE);
+			assertTrue(tokenizer.tokenize(buffer, start, end, sink));
+			assertEquals(text, whole.size(), sink.tokens.size());
+			for (int j = 0; j < whole.size(); j++) {
+				assertEquals(text, whole.getStem(j), sink.tokens.get(j));
+				assertEquals(text, whole.getTokenType(j) + "@" + (whole.getStart(j) + offset) + "-" + (whole.getEnd(j) + offset), sink.details.get(j));
+			}
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void regionOutsideText() {
+		new MicroTextTokenizer().tokenize("one two", 4, 8, new TokenBuffer());
+	}
+
+	@Test
+	public void abbreviationsBeforeLastPeriod() {
+		CollectingSink sink = new CollectingSink(Integer.MAX_VALUE);
+		new MicroTextTokenizer().tokenize("aa bb cc dd x. y. z. w. ok", sink);
+		assertEquals("[z., w., ok]", sink.tokens.toString());
+	}
+
+	@Test
+	public void stopEarly() {
+		CollectingSink sink = new CollectingSink(2);
+		assertFalse(new MicroTextTokenizer().tokenize("one two three four", sink));
+		assertEquals("[one, two]", sink.tokens.toString());
+
+		sink = new CollectingSink(3);
+		assertFalse(new MicroTextTokenizer().tokenize("Hi Mr. Jones, meet Dr. Smith. Then they left", sink));
+		assertEquals("[hi, mr., jones]", sink.tokens.toString());
+	}
+
+	@Test
+	public void stopOnLastToken() {
+		CollectingSink sink = new CollectingSink(3);
+		assertFalse(new MicroTextTokenizer().tokenize("one two three", sink));
+		assertEquals("[one, two, three]", sink.tokens.toString());
+	}
+
+	private static String randomText(Random random) {
+		StringBuilder text = new StringBuilder();
+		int count = 1 + random.nextInt(16);
+		for (int j = 0; j < count; j++) {
+			text.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+		}
+		return text.toString();
+	}
+
+}
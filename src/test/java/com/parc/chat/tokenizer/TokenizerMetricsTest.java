@@ -0,0 +1,146 @@
+package com.parc.chat.tokenizer;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import com.parc.chat.tokenizer.TokenizerMetrics.LengthRange;
+import com.parc.chat.tokenizer.TokenizerMetrics.Probe;
+
+public class TokenizerMetricsTest {
+
+	private static final String TEXT = "Dr. D.H. Jones mailed x@y.org about www.parc.com :-) ok";
+
+	@Test
+	public void counts() {
+		TokenizerMetrics metrics = new TokenizerMetrics();
+		MicroTextTokenizer tokenizer = new MicroTextTokenizer();
+		assertNull(tokenizer.getMetrics());
+		tokenizer.setMetrics(metrics);
+		assertSame(metrics, tokenizer.getMetrics());
+		TokenBuffer tokens = tokenizer.tokenize(TEXT, new TokenBuffer());
+
+		assertEquals(1, metrics.getMessages());
+		assertEquals(TEXT.length(), metrics.getCharacters());
+		long total = 0;
+		for (TokenType type : TokenType.values()) {
+			int expected = 0;
+			for (int i = 0; i < tokens.size(); i++) {
+				if (tokens.getTokenType(i) == type) {
+					expected++;
+				}
+			}
+			assertEquals(type.name(), expected, metrics.getTokens(type));
+			total += metrics.getTokens(type);
+		}
+		assertEquals(tokens.size(), total);
+		assertEquals(1, metrics.getTokens(TokenType.EMAIL_ADDR));
+		assertEquals(1, metrics.getProbeHits(Probe.EMAIL));
+		assertTrue(metrics.getProbeAttempts(Probe.EMAIL) >= 1);
+		assertEquals(1, metrics.getProbeHits(Probe.EMOTICON));
+		assertTrue(metrics.getProbeAttempts(Probe.HOSTNAME) > 0);
+		assertEquals(0, metrics.getProbeAttempts(Probe.URL));
+		assertEquals(0, metrics.getProbeAttempts(Probe.CUSTOM));
+		assertEquals(1, metrics.getAbbreviationMerges());
+		assertEquals(0, metrics.getDegradedMessages());
+
+		// A sink gets the same tokens, and they are counted the same.
+		TokenizerMetrics sinkMetrics = new TokenizerMetrics();
+		tokenizer.setMetrics(sinkMetrics);
+		tokenizer.tokenize(TEXT, new TokenSink() {
+			public boolean token(TokenType type, int start, int end, CharSequence source, char[] lexeme, int lexemeOffset, int lexemeLength) {
+				return true;
+			}
+		});
+		assertEquals(metrics.toString(), sinkMetrics.toString());
+
+		tokenizer.setMaxMessageLength(10);
+		tokenizer.tokenize(TEXT);
+		assertEquals(1, sinkMetrics.getDegradedMessages());
+		assertEquals(2, sinkMetrics.getMessages());
+
+		sinkMetrics.reset();
+		assertEquals(0, sinkMetrics.getMessages());
+		assertEquals(0, sinkMetrics.getTokens(TokenType.ALPHA));
+		assertEquals(0, sinkMetrics.getLatencyHistogram(LengthRange.CHARS_0_140).getCount());
+
+		tokenizer.setMetrics(null);
+		tokenizer.tokenize(TEXT);
+		assertEquals(0, sinkMetrics.getMessages());
+	}
+
+	@Test
+	public void latencies() {
+		TokenizerMetrics metrics = new TokenizerMetrics();
+		MicroTextTokenizer tokenizer = new MicroTextTokenizer();
+		tokenizer.setMetrics(metrics);
+		StringBuilder text = new StringBuilder();
+		while (text.length() < 20000) {
+			text.append(TEXT).append(' ');
+		}
+		for (int length : new int[] { 0, 140, 200, 281, 5000, 20000, 20000 }) {
+			tokenizer.tokenize(text.substring(0, length));
+		}
+		long[] expected = { 2, 1, 1, 1, 2 };
+		List<LatencyHistogram> histograms = metrics.getLatencyHistograms();
+		for (LengthRange range : LengthRange.values()) {
+			LatencyHistogram histogram = metrics.getLatencyHistogram(range);
+			assertEquals(range, histogram.getLengthRange());
+			assertEquals(range.name(), expected[range.ordinal()], histogram.getCount());
+			assertEquals(histogram.getCount(), histograms.get(range.ordinal()).getCount());
+		}
+		assertTrue(metrics.getLatencyHistogram(LengthRange.CHARS_OVER_10000).getMax() > 0);
+	}
+
+	@Test
+	public void parallel() {
+		TokenizerMetrics metrics = new TokenizerMetrics();
+		List<String> messages = new ArrayList<String>();
+		for (int i = 0; i < 1000; i++) {
+			messages.add(i + " lol :)");
+		}
+		try (ParallelTokenizer tokenizer = new ParallelTokenizer(4, 16)) {
+			tokenizer.setMetrics(metrics);
+			tokenizer.tokenizeAll(messages);
+		}
+		assertEquals(1000, metrics.getMessages());
+		assertEquals(1000, metrics.getTokens(TokenType.NUMERIC));
+		assertEquals(1000, metrics.getTokens(TokenType.EMOTICON));
+		assertEquals(1000, metrics.getProbeHits(Probe.EMOTICON));
+	}
+
+	@Test
+	public void jmx() throws Exception {
+		TokenizerMetrics metrics = new TokenizerMetrics();
+		ObjectName name = metrics.register("test");
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			assertTrue(server.isRegistered(name));
+			MicroTextTokenizer tokenizer = new MicroTextTokenizer();
+			tokenizer.setMetrics(metrics);
+			tokenizer.tokenize(TEXT);
+			assertEquals(1L, server.getAttribute(name, "Messages"));
+			TabularData tokens = (TabularData) server.getAttribute(name, "Tokens");
+			assertEquals(1L, tokens.get(new Object[] { "EMOTICON" }).get("value"));
+			CompositeData[] histograms = (CompositeData[]) server.getAttribute(name, "LatencyHistograms");
+			assertEquals(LengthRange.values().length, histograms.length);
+			assertEquals("CHARS_0_140", histograms[0].get("lengthRange"));
+			assertEquals(1L, histograms[0].get("count"));
+			assertTrue((Long) histograms[0].get("p99") > 0);
+			server.invoke(name, "reset", null, null);
+			assertEquals(0L, server.getAttribute(name, "Messages"));
+		} finally {
+			metrics.unregister();
+		}
+		assertFalse(server.isRegistered(name));
+	}
+
+}
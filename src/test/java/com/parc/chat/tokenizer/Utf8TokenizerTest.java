@@ -0,0 +1,143 @@
+package com.parc.chat.tokenizer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class Utf8TokenizerTest {
+
+	private static final String[] FRAGMENTS = {
+		"a", "Mr", "x", "4", "1,000", ".", ". ", " ", " ", "@", "#", "'", "’", "!", ":-)", "http://a.com/x",
+		"www.parc.com", "x@y.org", "f.pdf", "é", "ñandú", "日本語", "😀", " ", "\n"
+	};
+
+	@Test
+	public void sameTokensAsCharEngineOnTestSuite() throws IOException {
+		// Every text MicroTextTokenizerTest tokenizes.
+		String source = new String(Files.readAllBytes(Paths.get("src/test/java/com/parc/chat/tokenizer/MicroTextTokenizerTest.java")), StandardCharsets.UTF_8);
+		Matcher literal = Pattern.compile("new MicroTextTokenizer\\(\"((?:[^\"\\\\]|\\\\.)*)\"\\)").matcher(source);
+		List<String> texts = new ArrayList<String>();
+		while (literal.find()) {
+			texts.add(unescape(literal.group(1)));
+		}
+		assertTrue(texts.size() > 50);
+		for (String text : texts) {
+			checkSameTokens(text);
+		}
+	}
+
+	@Test
+	public void sameTokensAsCharEngine() {
+		Random random = new Random(17);
+		for (int i = 0; i < 5000; i++) {
+			StringBuilder text = new StringBuilder();
+			int count = random.nextInt(16);
+			for (int j = 0; j < count; j++) {
+				text.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+			}
+			checkSameTokens(text.toString());
+		}
+	}
+
+	@Test
+	public void directByteBuffer() {
+		byte[] bytes = "café at www.parc.com".getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 2);
+		buffer.put((byte) 'x').put(bytes).put((byte) 'y');
+		buffer.position(1).limit(1 + bytes.length);
+		TokenBuffer tokens = new Utf8Tokenizer().tokenize(buffer, new TokenBuffer());
+		assertEquals("[café/café, at/at, www.parc.com/www.parc.com]", tokens.toString());
+		assertEquals(6, tokens.getStart(1));
+		assertEquals(21, tokens.getEnd(2));
+		assertEquals(1, buffer.position());
+	}
+
+	@Test
+	public void malformedBytes() {
+		byte[] bytes = { 'o', 'k', ' ', (byte) 0xc3, ' ', 'a', (byte) 0xff, 'b', ' ', (byte) 0xe6, (byte) 0x97 };
+		Utf8Tokenizer tokenizer = new Utf8Tokenizer();
+		TokenBuffer tokens = tokenizer.tokenize(bytes, 0, bytes.length, new TokenBuffer());
+		assertEquals("ok � a�b �", tokenizer.getText().toString());
+		assertEquals(9, tokens.getStart(tokens.size() - 1));
+		assertEquals(11, tokens.getEnd(tokens.size() - 1));
+	}
+
+	private static void checkSameTokens(String text) {
+		byte[] bytes = ("<<" + text + ">>").getBytes(StandardCharsets.UTF_8);
+		int length = bytes.length - 4;
+		TokenBuffer expected = new MicroTextTokenizer().tokenize(text, new TokenBuffer());
+
+		Utf8Tokenizer tokenizer = new Utf8Tokenizer();
+		TokenBuffer bytesTokens = tokenizer.tokenize(bytes, 2, length, new TokenBuffer());
+		assertEquals(text, tokenizer.getText().toString());
+		tokenizer.setCharOffsets(true);
+		TokenBuffer charTokens = tokenizer.tokenize(ByteBuffer.wrap(bytes, 2, length).slice(), new TokenBuffer());
+
+		final List<String> sinkOffsets = new ArrayList<String>();
+		tokenizer.setCharOffsets(false);
+		tokenizer.tokenize(bytes, 2, length, new TokenSink() {
+			@Override
+			public boolean token(TokenType type, int start, int end, CharSequence source, char[] lexeme, int lexemeOffset, int lexemeLength) {
+				sinkOffsets.add(start + "-" + end);
+				return true;
+			}
+		});
+
+		assertEquals(text, expected.toString(), bytesTokens.toString());
+		assertEquals(text, expected.toString(), charTokens.toString());
+		assertEquals(text, expected.size(), sinkOffsets.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(text, expected.getTokenType(i), bytesTokens.getTokenType(i));
+			assertEquals(text, expected.getCharacterPosition(i), bytesTokens.getCharacterPosition(i));
+			assertEquals(text, expected.getStart(i), charTokens.getStart(i));
+			assertEquals(text, expected.getEnd(i), charTokens.getEnd(i));
+			int start = byteOffset(text, expected.getStart(i));
+			int end = byteOffset(text, expected.getEnd(i));
+			assertEquals(text, start, bytesTokens.getStart(i));
+			assertEquals(text, end, bytesTokens.getEnd(i));
+			assertEquals(text, start + "-" + end, sinkOffsets.get(i));
+		}
+	}
+
+	/*
+	 * Returns the number of UTF-8 bytes before a char. A char in the middle of a code point above U+FFFF has
+	 * the offset of the code point.
+	 */
+	private static int byteOffset(String text, int index) {
+		if (index > 0 && index < text.length() && Character.isLowSurrogate(text.charAt(index))) {
+			index--;
+		}
+		return text.substring(0, index).getBytes(StandardCharsets.UTF_8).length;
+	}
+
+	private static String unescape(String literal) {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < literal.length(); i++) {
+			char c = literal.charAt(i);
+			if (c != '\\') {
+				text.append(c);
+				continue;
+			}
+			c = literal.charAt(++i);
+			switch (c) {
+			case 'n': text.append('\n'); break;
+			case 'r': text.append('\r'); break;
+			case 't': text.append('\t'); break;
+			case 'u': text.append((char) Integer.parseInt(literal.substring(i + 1, i + 5), 16)); i += 4; break;
+			default: text.append(c);
+			}
+		}
+		return text.toString();
+	}
+
+}
@@ -0,0 +1,120 @@
+package com.parc.chat.tokenizer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Stack;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class WordTrieTest {
+
+	@Test
+	public void lookups() {
+		WordTrie trie = new WordTrie("com", "co", "community", "US");
+		assertEquals(4, trie.size());
+		assertTrue(trie.contains("co"));
+		assertTrue(trie.contains("COM"));
+		assertTrue(trie.contains("us"));
+		assertFalse(trie.contains("comm"));
+		assertFalse(trie.contains(""));
+		assertEquals(3, trie.longestPrefix("x.comm", 2, 6, false));
+		assertEquals(9, trie.longestPrefix("community", 0, 9, false));
+		assertEquals(0, trie.longestPrefix("COM", 0, 3, false));
+		assertEquals(3, trie.longestPrefix("COM", 0, 3, true));
+		assertTrue(trie.matches("a.Co", 2, 4, true));
+		assertFalse(trie.matches("a.Co", 2, 4, false));
+	}
+
+	@Test
+	public void prefixFollowedBy() {
+		WordTrie trie = new WordTrie("http", "https", "xrxscanwebservice");
+		assertEquals(4, trie.prefixFollowedBy("HTTP://x", 0, 8, "://", true));
+		assertEquals(5, trie.prefixFollowedBy("https://x", 0, 9, "://", true));
+		assertEquals(0, trie.prefixFollowedBy("httpx://x", 0, 9, "://", true));
+		assertEquals(0, trie.prefixFollowedBy("http:/", 0, 6, "://", true));
+	}
+
+	@Test
+	public void sameAsWordList() {
+		Random random = new Random(3);
+		List<String> words = new ArrayList<String>();
+		for (int i = 0; i < 1500; i++) {
+			words.add(randomWord(random));
+		}
+		WordTrie trie = new WordTrie(words);
+		for (String word : words) {
+			assertTrue(word, trie.contains(word));
+		}
+		for (int i = 0; i < 10000; i++) {
+			String word = randomWord(random);
+			assertEquals(word, words.contains(word), trie.contains(word));
+		}
+	}
+
+	@Test
+	public void readWordList() throws IOException {
+		WordTrie trie = WordTrie.read(new StringReader("# comment\n\n  Com \nnet\n"));
+		assertEquals(2, trie.size());
+		assertTrue(trie.contains("com"));
+		assertTrue(trie.contains("net"));
+	}
+
+	@Test
+	public void readResourceAndFile() throws IOException {
+		WordTrie trie = WordTrie.readResource("com/parc/chat/tokenizer/tlds.txt");
+		assertEquals(6, trie.size());
+		assertTrue(trie.contains("io"));
+		assertTrue(trie.contains("xn--p1ai"));
+		assertFalse(trie.contains("net"));
+
+		File file = File.createTempFile("protocols", ".txt");
+		try {
+			Files.write(file.toPath(), "scan\nfax\n".getBytes("UTF-8"));
+			assertEquals(2, WordTrie.read(file).size());
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void missingResource() throws IOException {
+		WordTrie.readResource("com/parc/chat/tokenizer/no-such-list.txt");
+	}
+
+	@Test
+	public void tokenizerWithCustomLists() throws IOException {
+		MicroTextTokenizer tok = new MicroTextTokenizer();
+		Stack<LabeledToken> tokenStack = tok.tokenize("see example.io");
+		assertEquals("[see, example, ., io]", tok.getTokensAsList().toString());
+
+		tok.setTopLevelDomains(WordTrie.readResource("com/parc/chat/tokenizer/tlds.txt"));
+		tok.setProtocols(new WordTrie("scan"));
+		tokenStack = tok.tokenize("see example.io");
+		assertEquals("[see, example.io]", tok.getTokensAsList().toString());
+		assertEquals(TokenType.URL, tokenStack.get(1).getTokenType());
+
+		tokenStack = tok.tokenize("mail me@example.community");
+		assertEquals("me@example.community", tokenStack.get(1).getOriginalWord());
+		assertEquals(TokenType.EMAIL_ADDR, tokenStack.get(1).getTokenType());
+
+		tokenStack = tok.tokenize("scan://printer/7 or http://x.com");
+		assertEquals("scan://printer/7", tokenStack.get(0).getOriginalWord());
+		assertEquals(TokenType.URL, tokenStack.get(0).getTokenType());
+		assertEquals("http", tokenStack.get(2).getOriginalWord());
+	}
+
+	private static String randomWord(Random random) {
+		char[] chars = new char[1 + random.nextInt(6)];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = (char) ('a' + random.nextInt(6));
+		}
+		return new String(chars);
+	}
+
+}
@@ -0,0 +1,100 @@
+package com.parc.chat.tokenizer;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SlowTokenizeEventTest {
+
+	private static final String EVENT = "com.parc.chat.tokenizer.SlowTokenize";
+
+	/*
+	 * Recognizes stock cashtags such as $AAPL.
+	 */
+	private static class CashtagRecognizer implements Recognizer {
+		public boolean canStartWith(char c) {
+			return c == '$';
+		}
+
+		public int recognize(CharSequence text, int pos, int end) {
+			int i = pos + 1;
+			while (i < end && text.charAt(i) >= 'A' && text.charAt(i) <= 'Z') {
+				i++;
+			}
+			return i - pos >= 2 ? i - pos : 0;
+		}
+
+		public String getLabel() {
+			return "CASHTAG";
+		}
+	}
+
+	@Test
+	public void notRecording() {
+		assertFalse(new SlowTokenizeEvent().isEnabled());
+		assertNull(new SlowTokenizeEvent.Events().begin());
+	}
+
+	@Test
+	public void slowTokenizations() throws Exception {
+		MicroTextTokenizer tokenizer = new MicroTextTokenizer();
+		tokenizer.addRecognizer(new CashtagRecognizer());
+		Path file = Files.createTempFile("tokenizer", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable(EVENT).withThreshold(Duration.ZERO);
+			recording.start();
+			tokenizer.tokenize("buy $AAPL now :-) at www.example.com");
+			tokenizer.tokenize("ok", new TokenSink() {
+				public boolean token(TokenType type, int start, int end, CharSequence source, char[] lexeme, int lexemeOffset, int lexemeLength) {
+					return true;
+				}
+			});
+			recording.stop();
+			recording.dump(file);
+		}
+		List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+		Files.delete(file);
+		events.removeIf(e -> !e.getEventType().getName().equals(EVENT));
+		assertEquals(2, events.size());
+
+		RecordedEvent first = events.get(0);
+		assertEquals(36, first.getInt("messageLength"));
+		assertEquals(6, first.getInt("tokenCount"));
+		assertEquals("emoticons, links, CashtagRecognizer", first.getString("recognizers"));
+		assertTrue(first.getLong("recognizerTime") > 0);
+		assertTrue(first.getLong("stateMachineTime") > 0);
+		assertTrue(first.getLong("recognizerTime") + first.getLong("stateMachineTime") <= first.getDuration().toNanos() + 1000000);
+		assertFalse(first.getBoolean("degraded"));
+
+		RecordedEvent second = events.get(1);
+		assertEquals(2, second.getInt("messageLength"));
+		assertEquals(1, second.getInt("tokenCount"));
+		assertEquals("emoticons, links", second.getString("recognizers"));
+	}
+
+	@Test
+	public void threshold() throws Exception {
+		MicroTextTokenizer tokenizer = new MicroTextTokenizer();
+		Path file = Files.createTempFile("tokenizer", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable(EVENT).withThreshold(Duration.ofSeconds(10));
+			recording.start();
+			tokenizer.tokenize("a quick one :)");
+			recording.stop();
+			recording.dump(file);
+		}
+		List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+		Files.delete(file);
+		events.removeIf(e -> !e.getEventType().getName().equals(EVENT));
+		assertTrue(events.isEmpty());
+	}
+
+}